@@ -0,0 +1,67 @@
+package com.github.kristofa.brave;
+
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures the overhead of {@link AnnotationSubmitter#submitBinaryAnnotation(String, String)}.
+ *
+ * <p>Each invocation annotates a new, empty span, so that spans don't grow for the duration of
+ * the run. The allocation of that span is included in the results.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnnotationSubmitterBenchmarks {
+
+  static final Endpoint ENDPOINT = new Endpoint(127 << 24 | 1, (short) 8080, "benchmark");
+
+  /** Holds the span being annotated by the current benchmark thread. */
+  @State(Scope.Thread)
+  public static class CurrentSpan implements SpanAndEndpoint {
+    final AnnotationSubmitter annotationSubmitter = AnnotationSubmitter.create(this);
+    Span span;
+
+    @Override
+    public Span span() {
+      return span;
+    }
+
+    @Override
+    public Endpoint endpoint() {
+      return ENDPOINT;
+    }
+  }
+
+  @Benchmark
+  public Span submitBinaryAnnotation(CurrentSpan current) {
+    current.span = new Span();
+    current.annotationSubmitter.submitBinaryAnnotation("http.uri", "/api/v1/users/42");
+    return current.span;
+  }
+
+  @Benchmark
+  public Span submitBinaryAnnotation_int(CurrentSpan current) {
+    current.span = new Span();
+    current.annotationSubmitter.submitBinaryAnnotation("http.responsecode", 200);
+    return current.span;
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(AnnotationSubmitterBenchmarks.class);
+  }
+}
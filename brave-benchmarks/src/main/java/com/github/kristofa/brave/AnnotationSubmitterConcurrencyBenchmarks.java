@@ -0,0 +1,84 @@
+package com.github.kristofa.brave;
+
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures threads annotating the same span, as happens when async code passes a span between
+ * threads with {@link ServerSpanThreadBinder} or {@link ClientSpanThreadBinder}.
+ *
+ * <p>{@link #submitAnnotation_synchronized} is the approach {@link AnnotationSubmitter} used
+ * before annotations were recorded lock-free: add a Thrift annotation while holding the span's
+ * monitor. Compare both at increasing thread counts with {@link #main(String[])}.
+ *
+ * <p>So that spans don't grow for the duration of the run, each thread replaces the shared span
+ * with a new one every {@link #ANNOTATIONS_PER_SPAN} annotations.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AnnotationSubmitterConcurrencyBenchmarks implements SpanAndEndpoint {
+
+  static final int ANNOTATIONS_PER_SPAN = 8;
+  static final Endpoint ENDPOINT = new Endpoint(127 << 24 | 1, (short) 8080, "benchmark");
+
+  final AtomicReference<Span> sharedSpan = new AtomicReference<Span>(new Span());
+  final AnnotationSubmitter annotationSubmitter = AnnotationSubmitter.create(this);
+
+  @Override
+  public Span span() {
+    return sharedSpan.get();
+  }
+
+  @Override
+  public Endpoint endpoint() {
+    return ENDPOINT;
+  }
+
+  @State(Scope.Thread)
+  public static class Counter {
+    int annotations;
+
+    void rotate(AtomicReference<Span> sharedSpan) {
+      if (++annotations % ANNOTATIONS_PER_SPAN == 0) sharedSpan.set(new Span());
+    }
+  }
+
+  @Benchmark
+  public void submitAnnotation(Counter counter) {
+    annotationSubmitter.submitAnnotation("foo", 1L);
+    counter.rotate(sharedSpan);
+  }
+
+  @Benchmark
+  public void submitAnnotation_synchronized(Counter counter) {
+    Span span = sharedSpan.get();
+    Annotation annotation = new Annotation(1L, "foo");
+    annotation.setHost(ENDPOINT);
+    synchronized (span) {
+      span.addToAnnotations(annotation);
+    }
+    counter.rotate(sharedSpan);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(AnnotationSubmitterConcurrencyBenchmarks.class);
+  }
+}
@@ -0,0 +1,108 @@
+package com.github.kristofa.brave;
+
+import com.twitter.zipkin.gen.Span;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures request threads reporting spans at once to a span collector queue, which a single
+ * thread drains in batches to a transport that discards them.
+ *
+ * <p>{@code AsyncReporter} offers to a lock-free ring buffer. {@code ArrayBlockingQueue} and {@code
+ * LinkedBlockingQueue} are the queues span collectors used before, where every request thread
+ * takes a lock to offer. Spans are dropped when the queue is full, so the score is the cost of
+ * reporting, not the throughput of the transport.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@Threads(64)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AsyncReporterBenchmarks {
+
+  static final int QUEUE_SIZE = 1000;
+  static final int BATCH_SIZE = 100;
+
+  @Param({"AsyncReporter", "ArrayBlockingQueue", "LinkedBlockingQueue"})
+  String queue;
+
+  final Span span = new Span().setTrace_id(1L).setId(1L).setName("get");
+  AsyncReporter<Span> reporter;
+  BlockingQueue<Span> blockingQueue;
+  Thread drainer;
+
+  @Setup
+  public void setup() {
+    if (queue.equals("AsyncReporter")) {
+      reporter = AsyncReporter.builder(new AsyncReporter.Sender<Span>() {
+        @Override
+        public void send(List<Span> spans) {
+        }
+      }).queueSize(QUEUE_SIZE).maxBatchSize(BATCH_SIZE).build();
+      return;
+    }
+    blockingQueue = queue.equals("ArrayBlockingQueue")
+        ? new ArrayBlockingQueue<Span>(QUEUE_SIZE)
+        : new LinkedBlockingQueue<Span>(QUEUE_SIZE);
+    drainer = new Thread() {
+      @Override
+      public void run() {
+        List<Span> batch = new ArrayList<Span>(BATCH_SIZE);
+        try {
+          while (!isInterrupted()) {
+            Span first = blockingQueue.poll(1, TimeUnit.SECONDS);
+            if (first == null) continue;
+            batch.add(first);
+            blockingQueue.drainTo(batch, BATCH_SIZE - 1);
+            batch.clear();
+          }
+        } catch (InterruptedException e) {
+        }
+      }
+    };
+    drainer.start();
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    if (reporter != null) reporter.close();
+    if (drainer != null) {
+      drainer.interrupt();
+      drainer.join();
+    }
+  }
+
+  @Benchmark
+  public void report() {
+    if (reporter != null) {
+      reporter.report(span);
+    } else {
+      blockingQueue.offer(span);
+    }
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreads(AsyncReporterBenchmarks.class, 64);
+  }
+}
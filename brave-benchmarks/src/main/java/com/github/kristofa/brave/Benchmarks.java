@@ -0,0 +1,50 @@
+package com.github.kristofa.brave;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Shared entry-point for the {@code main} methods of the benchmarks in this module.
+ */
+public final class Benchmarks {
+
+  /**
+   * Runs the benchmark class once per thread count, doubling from 1 up to the number of available
+   * processors, so that contention shows up as a drop in per-thread throughput. The GC profiler
+   * is enabled, so that allocation rates are reported alongside timings.
+   */
+  public static void runWithThreadCounts(Class<?> benchmarkClass) throws RunnerException {
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+      Options opt = new OptionsBuilder()
+          .include(".*" + benchmarkClass.getSimpleName() + ".*")
+          .threads(threads)
+          .addProfiler(GCProfiler.class)
+          .build();
+
+      new Runner(opt).run();
+      if (threads == maxThreads) break;
+    }
+  }
+
+  /**
+   * Runs the benchmark class with the given number of threads, with the GC profiler enabled. Use
+   * this to measure contention beyond the number of available processors, as happens when many
+   * request threads report spans.
+   */
+  public static void runWithThreads(Class<?> benchmarkClass, int threads) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(".*" + benchmarkClass.getSimpleName() + ".*")
+        .threads(threads)
+        .addProfiler(GCProfiler.class)
+        .build();
+
+    new Runner(opt).run();
+  }
+
+  private Benchmarks() {
+  }
+}
@@ -0,0 +1,92 @@
+package com.github.kristofa.brave;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures the overhead of a traced client request: {@link ClientRequestInterceptor#handle}
+ * followed by {@link ClientResponseInterceptor#handle}. Spans are sent to an {@link
+ * EmptySpanCollector}, so collection cost isn't included.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ClientInterceptorBenchmarks {
+
+  static final ClientRequestAdapter REQUEST = new ClientRequestAdapter() {
+    final Collection<KeyValueAnnotation> annotations =
+        Collections.singletonList(KeyValueAnnotation.create("http.uri", "/api/v1/users/42"));
+
+    @Override
+    public String getSpanName() {
+      return "get";
+    }
+
+    @Override
+    public void addSpanIdToRequest(SpanId spanId) {
+    }
+
+    @Override
+    public String getClientServiceName() {
+      return "users";
+    }
+
+    @Override
+    public Collection<KeyValueAnnotation> requestAnnotations() {
+      return annotations;
+    }
+  };
+
+  static final Brave BRAVE = new Brave.Builder(127 << 24 | 1, 8080, "benchmark")
+      .spanCollector(new EmptySpanCollector()).build();
+
+  /** Makes client requests children of a sampled server span bound to the benchmark thread. */
+  @State(Scope.Thread)
+  public static class InServerSpan {
+    @Setup(Level.Trial)
+    public void bindServerSpan() {
+      BRAVE.serverTracer().setStateCurrentTrace(1L, 2L, null, "get");
+    }
+
+    @TearDown(Level.Trial)
+    public void clearServerSpan() {
+      BRAVE.serverTracer().clearCurrentSpan();
+    }
+  }
+
+  /** There's no server span, so each client request starts a new trace. */
+  @Benchmark
+  public void roundTrip_newTrace() {
+    BRAVE.clientRequestInterceptor().handle(REQUEST);
+    BRAVE.clientResponseInterceptor().handle(NoAnnotationsClientResponseAdapter.getInstance());
+  }
+
+  /** Each client request is a child of the current server span. */
+  @Benchmark
+  public void roundTrip_inServerSpan(InServerSpan inServerSpan) {
+    BRAVE.clientRequestInterceptor().handle(REQUEST);
+    BRAVE.clientResponseInterceptor().handle(NoAnnotationsClientResponseAdapter.getInstance());
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(ClientInterceptorBenchmarks.class);
+  }
+}
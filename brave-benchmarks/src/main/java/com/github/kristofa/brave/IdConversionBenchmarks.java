@@ -0,0 +1,50 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures the lower-hex codec used for trace and span ids in B3 headers.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class IdConversionBenchmarks {
+
+  long id = -4667777584646200191L;
+  String hex = "bf38b90488a1e481";
+  char[] buffer = new char[16];
+
+  @Benchmark
+  public long convertToLong() {
+    return IdConversion.convertToLong(hex);
+  }
+
+  @Benchmark
+  public String convertToString() {
+    return IdConversion.convertToString(id);
+  }
+
+  /** Encodes into a reused buffer, as opposed to allocating a String per id. */
+  @Benchmark
+  public int convertToChars() {
+    return IdConversion.convertToChars(id, buffer, 0);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(IdConversionBenchmarks.class);
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.kristofa.brave;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Compares the default {@link IdGenerator} with the shared {@link Random} previously used by
+ * {@link Brave.Builder}.
+ *
+ * <p>Run with {@link #main(String[])} to measure each thread count from 1 up to the number of
+ * available processors. Throughput per thread of the default generator should stay flat, while
+ * the shared random degrades as threads contend on its seed.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmarks {
+
+  final IdGenerator sharedRandom = IdGenerator.create(new Random());
+  final IdGenerator threadLocalRandom = IdGenerator.create();
+
+  @Benchmark
+  public long nextId_sharedRandom() {
+    return sharedRandom.nextId();
+  }
+
+  @Benchmark
+  public long nextId_threadLocalRandom() {
+    return threadLocalRandom.nextId();
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(IdGeneratorBenchmarks.class);
+  }
+}
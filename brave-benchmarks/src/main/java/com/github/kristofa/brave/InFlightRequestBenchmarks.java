@@ -0,0 +1,86 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures memory per in-flight request, when {@link #IN_FLIGHT} asynchronous requests are parked at once: each
+ * request starts a server and a local span, captures its trace context for the continuation, and leaves the thread.
+ *
+ * <p>Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the bytes allocated per request. Spans are the same for
+ * each state implementation, so differences come from setting state and capturing the context. Thread-bound states
+ * capture a {@link CurrentSpans} snapshot, while {@link ScopedServerClientAndLocalSpanState} passes its immutable
+ * context by reference.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class InFlightRequestBenchmarks {
+
+  static final int IN_FLIGHT = 100000;
+  static final int IP = 127 << 24 | 1;
+
+  @Param({"ThreadLocal", "SingleThreadLocal", "Scoped"})
+  String state;
+
+  ServerClientAndLocalSpanState spanState;
+  Brave brave;
+  final Object[] inFlight = new Object[IN_FLIGHT];
+
+  @Setup
+  public void setup() {
+    if (state.equals("ThreadLocal")) {
+      spanState = new ThreadLocalServerClientAndLocalSpanState(IP, 8080, "benchmark");
+    } else if (state.equals("SingleThreadLocal")) {
+      spanState = new SingleThreadLocalServerClientAndLocalSpanState(IP, 8080, "benchmark");
+    } else {
+      spanState = new ScopedServerClientAndLocalSpanState(IP, 8080, "benchmark");
+    }
+    brave = new Brave.Builder(spanState).spanCollector(new EmptySpanCollector()).build();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(IN_FLIGHT)
+  public Object[] parkRequests() {
+    ServerTracer serverTracer = brave.serverTracer();
+    for (int i = 0; i < IN_FLIGHT; i++) {
+      serverTracer.setStateCurrentTrace(i + 1L, i + 1L, null, "get");
+      serverTracer.setServerReceived();
+      brave.localTracer().startNewSpan("codec", "decode");
+
+      inFlight[i] = captureContext();
+
+      // the thread moves on to the next request
+      spanState.setCurrentLocalSpan(null);
+      serverTracer.clearCurrentSpan();
+    }
+    return inFlight;
+  }
+
+  Object captureContext() {
+    if (spanState instanceof ScopedServerClientAndLocalSpanState) {
+      return ((ScopedServerClientAndLocalSpanState) spanState).currentContext();
+    }
+    return CurrentSpans.capture(brave);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(InFlightRequestBenchmarks.class);
+  }
+}
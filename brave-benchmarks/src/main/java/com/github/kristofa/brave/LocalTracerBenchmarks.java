@@ -0,0 +1,66 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures the overhead of {@link LocalTracer#startNewSpan(String, String)} followed by {@link
+ * LocalTracer#finishSpan()}. Spans are sent to an {@link EmptySpanCollector}, so collection cost
+ * isn't included.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class LocalTracerBenchmarks {
+
+  static final Brave BRAVE = new Brave.Builder(127 << 24 | 1, 8080, "benchmark")
+      .spanCollector(new EmptySpanCollector()).build();
+
+  /** Makes local spans children of a sampled server span bound to the benchmark thread. */
+  @State(Scope.Thread)
+  public static class InServerSpan {
+    @Setup(Level.Trial)
+    public void bindServerSpan() {
+      BRAVE.serverTracer().setStateCurrentTrace(1L, 2L, null, "get");
+    }
+
+    @TearDown(Level.Trial)
+    public void clearServerSpan() {
+      BRAVE.serverTracer().clearCurrentSpan();
+    }
+  }
+
+  /** There's no server span, so each local span starts a new trace. */
+  @Benchmark
+  public void startAndFinish_newTrace() {
+    BRAVE.localTracer().startNewSpan("codec", "encode");
+    BRAVE.localTracer().finishSpan();
+  }
+
+  /** Each local span is a child of the current server span. */
+  @Benchmark
+  public void startAndFinish_inServerSpan(InServerSpan inServerSpan) {
+    BRAVE.localTracer().startNewSpan("codec", "encode");
+    BRAVE.localTracer().finishSpan();
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(LocalTracerBenchmarks.class);
+  }
+}
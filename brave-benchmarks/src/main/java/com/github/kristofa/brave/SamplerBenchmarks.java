@@ -0,0 +1,55 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Compares the cost of sampling decisions, which are made for each new trace.
+ *
+ * <p>{@link RateLimitingSampler} is measured with a budget that's used up almost immediately, the
+ * steady state at peak traffic, and with one that's never used up. Run with {@link #main(String[])}
+ * to see whether throughput holds up as threads are added.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SamplerBenchmarks {
+
+  static final long TRACE_ID = 1234567890123456789L;
+
+  final Sampler percentage = Sampler.create(0.1f);
+  final Sampler rateLimited = RateLimitingSampler.create(100);
+  final Sampler rateLimited_underLimit = RateLimitingSampler.create(Integer.MAX_VALUE);
+
+  @Benchmark
+  public boolean isSampled_percentage() {
+    return percentage.isSampled(TRACE_ID);
+  }
+
+  @Benchmark
+  public boolean isSampled_rateLimited() {
+    return rateLimited.isSampled(TRACE_ID);
+  }
+
+  @Benchmark
+  public boolean isSampled_rateLimited_underLimit() {
+    return rateLimited_underLimit.isSampled(TRACE_ID);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(SamplerBenchmarks.class);
+  }
+}
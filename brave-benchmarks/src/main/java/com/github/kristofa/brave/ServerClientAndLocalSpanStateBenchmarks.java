@@ -0,0 +1,89 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Compares {@link ServerClientAndLocalSpanState} implementations under a typical request: a
+ * sampled server span, with a local span and two client requests in its scope.
+ *
+ * <p>{@link #clientRequest_stateOnly} isolates the state lookups of {@link
+ * ClientTracer#startNewSpan(String)}, without tracing overhead.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ServerClientAndLocalSpanStateBenchmarks {
+
+  static final int IP = 127 << 24 | 1;
+
+  @Param({"ThreadLocal", "SingleThreadLocal", "Scoped"})
+  String state;
+
+  ServerClientAndLocalSpanState spanState;
+  Brave brave;
+
+  @Setup
+  public void setup() {
+    if (state.equals("ThreadLocal")) {
+      spanState = new ThreadLocalServerClientAndLocalSpanState(IP, 8080, "benchmark");
+    } else if (state.equals("SingleThreadLocal")) {
+      spanState = new SingleThreadLocalServerClientAndLocalSpanState(IP, 8080, "benchmark");
+    } else {
+      spanState = new ScopedServerClientAndLocalSpanState(IP, 8080, "benchmark");
+    }
+    brave = new Brave.Builder(spanState).spanCollector(new EmptySpanCollector()).build();
+  }
+
+  @Benchmark
+  public void serverRequest_withLocalAndClientSpans() {
+    ServerTracer serverTracer = brave.serverTracer();
+    serverTracer.setStateCurrentTrace(1L, 2L, null, "get");
+    serverTracer.setServerReceived();
+
+    brave.localTracer().startNewSpan("codec", "decode");
+    brave.localTracer().finishSpan();
+
+    clientRequest("users");
+    clientRequest("accounts");
+
+    serverTracer.setServerSend();
+  }
+
+  void clientRequest(String serviceName) {
+    ClientTracer clientTracer = brave.clientTracer();
+    clientTracer.startNewSpan("get");
+    clientTracer.setCurrentClientServiceName(serviceName);
+    clientTracer.setClientSent();
+    clientTracer.setClientReceived();
+  }
+
+  @Benchmark
+  public Object clientRequest_stateOnly() {
+    Boolean sample = spanState.sample();
+    Object parent = spanState.getCurrentLocalSpan();
+    if (parent == null) parent = spanState.getCurrentServerSpan().getSpan();
+    spanState.setCurrentClientSpan(null);
+    spanState.setCurrentClientServiceName(null);
+    return sample != null ? sample : parent;
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(ServerClientAndLocalSpanStateBenchmarks.class);
+  }
+}
@@ -0,0 +1,106 @@
+package com.github.kristofa.brave;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures the overhead of a traced server request: {@link ServerRequestInterceptor#handle}
+ * followed by {@link ServerResponseInterceptor#handle}. Spans are sent to an {@link
+ * EmptySpanCollector}, so collection cost isn't included.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ServerInterceptorBenchmarks {
+
+  static final ServerRequestAdapter JOIN_SAMPLED = new FakeServerRequestAdapter(
+      TraceData.builder().sample(true).spanId(SpanId.create(1L, 2L, 3L)).build());
+  static final ServerRequestAdapter NOT_SAMPLED = new FakeServerRequestAdapter(
+      TraceData.builder().sample(false).build());
+  static final ServerRequestAdapter NEW_TRACE = new FakeServerRequestAdapter(
+      TraceData.builder().build());
+  static final ServerResponseAdapter RESPONSE = new ServerResponseAdapter() {
+    @Override
+    public Collection<KeyValueAnnotation> responseAnnotations() {
+      return Collections.singletonList(KeyValueAnnotation.create("http.responsecode", "200"));
+    }
+  };
+
+  final Brave brave = new Brave.Builder(127 << 24 | 1, 8080, "benchmark")
+      .spanCollector(new EmptySpanCollector()).build();
+  final Brave unsampledBrave = new Brave.Builder(127 << 24 | 1, 8080, "benchmark")
+      .spanCollector(new EmptySpanCollector())
+      .traceSampler(Sampler.create(0.0f)).build();
+
+  /** The caller propagated a sampled trace, so this request joins it. */
+  @Benchmark
+  public void roundTrip_joinSampled() {
+    brave.serverRequestInterceptor().handle(JOIN_SAMPLED);
+    brave.serverResponseInterceptor().handle(RESPONSE);
+  }
+
+  /** The caller propagated a decision not to sample. */
+  @Benchmark
+  public void roundTrip_notSampled() {
+    brave.serverRequestInterceptor().handle(NOT_SAMPLED);
+    brave.serverResponseInterceptor().handle(RESPONSE);
+  }
+
+  /** No trace was propagated, and the sampler decided to start one. */
+  @Benchmark
+  public void roundTrip_newTrace_sampled() {
+    brave.serverRequestInterceptor().handle(NEW_TRACE);
+    brave.serverResponseInterceptor().handle(RESPONSE);
+  }
+
+  /** No trace was propagated, and the sampler decided not to start one. */
+  @Benchmark
+  public void roundTrip_newTrace_unsampled() {
+    unsampledBrave.serverRequestInterceptor().handle(NEW_TRACE);
+    unsampledBrave.serverResponseInterceptor().handle(RESPONSE);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(ServerInterceptorBenchmarks.class);
+  }
+
+  static final class FakeServerRequestAdapter implements ServerRequestAdapter {
+    final TraceData traceData;
+    final Collection<KeyValueAnnotation> annotations =
+        Collections.singletonList(KeyValueAnnotation.create("http.uri", "/api/v1/users/42"));
+
+    FakeServerRequestAdapter(TraceData traceData) {
+      this.traceData = traceData;
+    }
+
+    @Override
+    public TraceData getTraceData() {
+      return traceData;
+    }
+
+    @Override
+    public String getSpanName() {
+      return "get";
+    }
+
+    @Override
+    public Collection<KeyValueAnnotation> requestAnnotations() {
+      return annotations;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.github.kristofa.brave.http;
+
+import com.github.kristofa.brave.Benchmarks;
+import com.github.kristofa.brave.SpanId;
+import com.github.kristofa.brave.TraceData;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Measures parsing and writing of B3 headers by {@link HttpServerRequestAdapter} and {@link
+ * HttpClientRequestAdapter}.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class B3HeaderBenchmarks {
+
+  static final URI URI = java.net.URI.create("http://localhost/api/v1/users/42");
+
+  final HttpServerRequestAdapter serverAdapter = new HttpServerRequestAdapter(new HttpServerRequest() {
+    @Override
+    public String getHttpHeaderValue(String headerName) {
+      switch (headerName) {
+        case "X-B3-TraceId":
+          return "7a842183262a6c62";
+        case "X-B3-SpanId":
+          return "bf38b90488a1e481";
+        case "X-B3-ParentSpanId":
+          return "8000000000000000";
+        case "X-B3-Sampled":
+          return "true";
+        default:
+          return null;
+      }
+    }
+
+    @Override
+    public URI getUri() {
+      return URI;
+    }
+
+    @Override
+    public String getHttpMethod() {
+      return "GET";
+    }
+  }, new DefaultSpanNameProvider());
+
+  final HttpClientRequestAdapter clientAdapter = new HttpClientRequestAdapter(new HttpClientRequest() {
+    @Override
+    public void addHeader(String header, String value) {
+    }
+
+    @Override
+    public URI getUri() {
+      return URI;
+    }
+
+    @Override
+    public String getHttpMethod() {
+      return "GET";
+    }
+  }, new StringServiceNameProvider("users"), new DefaultSpanNameProvider());
+
+  final SpanId spanId = SpanId.create(8828218016717761634L, -4667777584646200191L, Long.MIN_VALUE);
+
+  @Benchmark
+  public TraceData server_getTraceData() {
+    return serverAdapter.getTraceData();
+  }
+
+  @Benchmark
+  public void client_addSpanIdToRequest() {
+    clientAdapter.addSpanIdToRequest(spanId);
+  }
+
+  // Convenience main entry-point
+  public static void main(String[] args) throws RunnerException {
+    Benchmarks.runWithThreadCounts(B3HeaderBenchmarks.class);
+  }
+}
@@ -0,0 +1,145 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Samples a percentage of traces, lowering the percentage while the span collector drops spans and
+ * raising it again once the collector keeps up.
+ *
+ * <p>Pass this sampler to the span collector as its {@link SpanCollectorMetricsHandler}. Events
+ * are forwarded to the handler given on creation, so existing metrics keep working. Once per
+ * second, the first caller of {@link #isSampled(long)} adjusts the rate: when spans were dropped,
+ * the rate is cut by at least half, or by the drop ratio if that is larger, but to no less than a
+ * tenth. Otherwise, it grows by a tenth of the maximum rate, so a collector that recovers gets the
+ * full rate back within ten seconds. When the collector also reports its queue depth, a queue
+ * that is more than three quarters full lowers the rate before spans are dropped. Collectors built
+ * on an {@link AsyncReporter} do so without extra wiring: the reporter hands itself to the sampler
+ * given as its metrics handler, which then {@link #readQueueDepth(AsyncReporter) reads} the queue
+ * depth at each adjustment. Other collectors can call {@link #updateQueueDepth(int, int)}.
+ *
+ * <p>Like {@link Sampler#create(float)}, decisions are made on the trace ID, so all hosts with the
+ * same rate agree on which traces to keep.
+ */
+public final class AdaptiveSampler extends Sampler implements SpanCollectorMetricsHandler {
+
+  static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  static final float MIN_RATE = 0.0001f;
+  static final float DECREASE_FACTOR = 0.5f;
+  static final float MAX_DECREASE_FACTOR = 0.1f;
+  static final float QUEUE_DECREASE_FACTOR = 0.75f;
+  static final float QUEUE_HIGH_WATERMARK = 0.75f;
+  static final float INCREASE_STEP = 0.1f;
+
+  /**
+   * Returns a sampler that starts at, and never exceeds, the given rate.
+   *
+   * @param maxRate rate expressed as a percentage, between 0.0001 and 1
+   * @param delegate receives all span collector events, for example {@link
+   * EmptySpanCollectorMetricsHandler}.
+   */
+  public static AdaptiveSampler create(float maxRate, SpanCollectorMetricsHandler delegate) {
+    return new AdaptiveSampler(maxRate, delegate, Clock.create());
+  }
+
+  private final float maxRate;
+  private final SpanCollectorMetricsHandler delegate;
+  private final Clock clock;
+  private final AtomicInteger accepted = new AtomicInteger();
+  private final AtomicInteger dropped = new AtomicInteger();
+  private final AtomicLong nextAdjustment;
+  private volatile float queueUsage;
+  private volatile AsyncReporter<?> reporter; // null unless the queue depth is read from it
+  private volatile float rate;
+  private volatile long boundary;
+
+  AdaptiveSampler(float maxRate, SpanCollectorMetricsHandler delegate, Clock clock) {
+    if (maxRate < MIN_RATE || maxRate > 1) {
+      throw new IllegalArgumentException("maxRate should be between 0.0001 and 1: was " + maxRate);
+    }
+    this.maxRate = maxRate;
+    this.delegate = checkNotNull(delegate, "Null delegate");
+    this.clock = clock;
+    this.nextAdjustment = new AtomicLong(clock.nanoTime() + NANOS_PER_SECOND);
+    setRate(maxRate);
+  }
+
+  @Override
+  public boolean isSampled(long traceId) {
+    long now = clock.nanoTime();
+    long adjustment = nextAdjustment.get();
+    if (now - adjustment >= 0 && nextAdjustment.compareAndSet(adjustment, now + NANOS_PER_SECOND)) {
+      adjustRate();
+    }
+    // The absolute value of Long.MIN_VALUE is larger than a long, so it returns identity.
+    long t = traceId == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(traceId);
+    return t <= boundary;
+  }
+
+  @Override
+  public void incrementAcceptedSpans(int quantity) {
+    accepted.addAndGet(quantity);
+    delegate.incrementAcceptedSpans(quantity);
+  }
+
+  @Override
+  public void incrementDroppedSpans(int quantity) {
+    dropped.addAndGet(quantity);
+    delegate.incrementDroppedSpans(quantity);
+  }
+
+  /**
+   * Called by span collectors that know how many spans are waiting to be sent.
+   *
+   * @param pending spans currently queued
+   * @param capacity spans the queue can hold before dropping
+   */
+  public void updateQueueDepth(int pending, int capacity) {
+    queueUsage = capacity > 0 ? (float) pending / capacity : 0f;
+  }
+
+  /**
+   * Reads the queue depth of the given reporter each time the rate is adjusted, instead of waiting
+   * for {@link #updateQueueDepth(int, int)}. Called by {@link AsyncReporter.Builder#build()} when
+   * this sampler is its metrics handler.
+   */
+  public void readQueueDepth(AsyncReporter<?> reporter) {
+    this.reporter = checkNotNull(reporter, "Null reporter");
+  }
+
+  /** Returns the current sample rate, between 0.0001 and the maximum rate. */
+  public float rate() {
+    return rate;
+  }
+
+  void adjustRate() {
+    int acceptedSpans = accepted.getAndSet(0);
+    int droppedSpans = dropped.getAndSet(0);
+    AsyncReporter<?> reporter = this.reporter;
+    if (reporter != null) queueUsage = reporter.queueUsage();
+    float current = rate;
+    float next;
+    if (droppedSpans > 0) {
+      float dropRatio = (float) droppedSpans / Math.max(acceptedSpans, droppedSpans);
+      next = current * Math.max(MAX_DECREASE_FACTOR, Math.min(DECREASE_FACTOR, 1 - dropRatio));
+    } else if (queueUsage > QUEUE_HIGH_WATERMARK) {
+      next = current * QUEUE_DECREASE_FACTOR;
+    } else {
+      next = current + maxRate * INCREASE_STEP;
+    }
+    setRate(Math.max(MIN_RATE, Math.min(maxRate, next)));
+  }
+
+  private void setRate(float rate) {
+    this.rate = rate;
+    this.boundary = (long) (Long.MAX_VALUE * rate); // safe cast as rate <= 1
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveSampler(" + maxRate + ")";
+  }
+}
@@ -1,9 +1,8 @@
 package com.github.kristofa.brave;
 
+import com.github.kristofa.brave.internal.EndpointCache;
 import com.github.kristofa.brave.internal.Nullable;
-import com.twitter.zipkin.gen.Annotation;
-import com.twitter.zipkin.gen.AnnotationType;
-import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.github.kristofa.brave.internal.SpanRecorder;
 import com.twitter.zipkin.gen.Endpoint;
 import com.twitter.zipkin.gen.Span;
 
@@ -16,25 +15,38 @@ import static com.github.kristofa.brave.internal.Util.checkNotNull;
  */
 public abstract class AnnotationSubmitter {
 
+    private static final EndpointCache remoteEndpoints = new EndpointCache();
+
     public static AnnotationSubmitter create(SpanAndEndpoint spanAndEndpoint) {
-        return new AnnotationSubmitterImpl(spanAndEndpoint);
+        return create(spanAndEndpoint, Clock.create());
+    }
+
+    public static AnnotationSubmitter create(SpanAndEndpoint spanAndEndpoint, Clock clock) {
+        return new AnnotationSubmitterImpl(spanAndEndpoint, clock);
     }
 
     abstract SpanAndEndpoint spanAndEndpoint();
 
+    abstract Clock clock();
+
+    /**
+     * The span whose wall-clock reading is shared by spans started in its scope, such as the
+     * current server span, or null if there is none.
+     */
+    @Nullable
+    Span localRootSpan() {
+        return null;
+    }
+
     /**
      * Associates an event that explains latency with the current system time.
      *
-     * @param value A short tag indicating the event, like "finagle.retry"
+     * @param value A short tag indicating the event, like "finagle.retry". Ignored if <code>null</code>.
      */
     public void submitAnnotation(String value) {
         Span span = spanAndEndpoint().span();
-        if (span != null) {
-            Annotation annotation = new Annotation();
-            annotation.setTimestamp(currentTimeMicroseconds());
-            annotation.setHost(spanAndEndpoint().endpoint());
-            annotation.setValue(value);
-            addAnnotation(span, annotation);
+        if (span != null && value != null) {
+            annotate(span, currentTimeMicroseconds(span), value);
         }
     }
 
@@ -42,19 +54,15 @@ public abstract class AnnotationSubmitter {
      * Associates an event that explains latency with a timestamp.
      *
      * <p/> This is an alternative to {@link #submitAnnotation(String)}, when
-     * you have a timestamp more precise or accurate than {@link System#currentTimeMillis()}.
+     * you have a timestamp more precise or accurate than the {@link Clock}.
      *
-     * @param value     A short tag indicating the event, like "finagle.retry"
+     * @param value     A short tag indicating the event, like "finagle.retry". Ignored if <code>null</code>.
      * @param timestamp microseconds from epoch
      */
     public void submitAnnotation(String value, long timestamp) {
         Span span = spanAndEndpoint().span();
-        if (span != null) {
-            Annotation annotation = new Annotation();
-            annotation.setTimestamp(timestamp);
-            annotation.setHost(spanAndEndpoint().endpoint());
-            annotation.setValue(value);
-            addAnnotation(span, annotation);
+        if (span != null && value != null) {
+            annotate(span, timestamp, value);
         }
     }
 
@@ -62,14 +70,11 @@ public abstract class AnnotationSubmitter {
     void submitStartAnnotation(String annotationName) {
         Span span = spanAndEndpoint().span();
         if (span != null) {
-            Annotation annotation = new Annotation();
-            annotation.setTimestamp(currentTimeMicroseconds());
-            annotation.setHost(spanAndEndpoint().endpoint());
-            annotation.setValue(annotationName);
-            synchronized (span) {
-                span.setTimestamp(annotation.getTimestamp());
-                span.addToAnnotations(annotation);
-            }
+            long startTick = clock().nanoTime();
+            long timestamp = startTimestamp(startTick);
+            span.setTimestamp(timestamp);
+            span.startTick = startTick; // after the timestamp, as readers derive time from both
+            SpanRecorder.start(span, timestamp, annotationName, spanAndEndpoint().endpoint());
         }
     }
 
@@ -84,12 +89,19 @@ public abstract class AnnotationSubmitter {
         if (span == null) {
           return false;
         }
-        Annotation annotation = new Annotation();
-        annotation.setTimestamp(currentTimeMicroseconds());
-        annotation.setHost(spanAndEndpoint().endpoint());
-        annotation.setValue(annotationName);
-        span.addToAnnotations(annotation);
-        span.setDuration(annotation.getTimestamp() - span.getTimestamp());
+        Long startTick = span.startTick;
+        long timestamp;
+        long duration;
+        if (startTick != null) {
+            duration = (clock().nanoTime() - startTick) / 1000;
+            timestamp = span.getTimestamp() + duration;
+        } else {
+            timestamp = currentTimeMicroseconds();
+            duration = timestamp - span.getTimestamp();
+        }
+        span.setDuration(duration);
+        // publishes annotations recorded by any thread
+        SpanRecorder.finish(span, timestamp, annotationName, spanAndEndpoint().endpoint());
         spanCollector.collect(span);
         return true;
     }
@@ -106,13 +118,8 @@ public abstract class AnnotationSubmitter {
         Span span = spanAndEndpoint().span();
         if (span != null) {
             serviceName = serviceName != null ? serviceName : "unknown";
-            Endpoint endpoint = new Endpoint(ipv4, (short) port, serviceName);
-            BinaryAnnotation ba = new BinaryAnnotation();
-            ba.setKey(key);
-            ba.setValue(new byte[]{1});
-            ba.setAnnotation_type(AnnotationType.BOOL);
-            ba.setHost(endpoint);
-            addBinaryAnnotation(span, ba);
+            Endpoint endpoint = remoteEndpoints.get(ipv4, (short) port, serviceName);
+            SpanRecorder.of(span).address(key, endpoint);
         }
     }
 
@@ -126,8 +133,7 @@ public abstract class AnnotationSubmitter {
     public void submitBinaryAnnotation(String key, String value) {
         Span span = spanAndEndpoint().span();
         if (span != null) {
-            BinaryAnnotation ba = new BinaryAnnotation(key, value, spanAndEndpoint().endpoint());
-            addBinaryAnnotation(span, ba);
+            SpanRecorder.of(span).tag(key, value, spanAndEndpoint().endpoint());
         }
     }
 
@@ -143,19 +149,33 @@ public abstract class AnnotationSubmitter {
     }
 
     long currentTimeMicroseconds() {
-        return System.currentTimeMillis() * 1000;
+        return clock().currentTimeMicroseconds();
     }
 
-    private void addAnnotation(Span span, Annotation annotation) {
-        synchronized (span) {
-            span.addToAnnotations(annotation);
-        }
+    /**
+     * Returns the current time in epoch microseconds, derived from the span's start tick if it has
+     * one, as opposed to reading the wall clock again.
+     */
+    long currentTimeMicroseconds(Span span) {
+        Long startTick = span.startTick;
+        if (startTick == null) return currentTimeMicroseconds();
+        return span.getTimestamp() + (clock().nanoTime() - startTick) / 1000;
     }
 
-    private void addBinaryAnnotation(Span span, BinaryAnnotation ba) {
-        synchronized (span) {
-            span.addToBinary_annotations(ba);
-        }
+    /**
+     * Returns the epoch microseconds of a span starting at {@code startTick}. This is derived from
+     * the {@link #localRootSpan() local root span} when it has a start tick, so that the wall clock
+     * is read once per trace in this process.
+     */
+    long startTimestamp(long startTick) {
+        Span root = localRootSpan();
+        Long rootTick = root != null ? root.startTick : null;
+        if (rootTick == null) return currentTimeMicroseconds();
+        return root.getTimestamp() + (startTick - rootTick) / 1000;
+    }
+
+    private void annotate(Span span, long timestamp, String value) {
+        SpanRecorder.of(span).annotate(timestamp, value, spanAndEndpoint().endpoint());
     }
 
     AnnotationSubmitter() {
@@ -164,14 +184,21 @@ public abstract class AnnotationSubmitter {
     private static final class AnnotationSubmitterImpl extends AnnotationSubmitter {
 
         private final SpanAndEndpoint spanAndEndpoint;
+        private final Clock clock;
 
-        private AnnotationSubmitterImpl(SpanAndEndpoint spanAndEndpoint) {
+        private AnnotationSubmitterImpl(SpanAndEndpoint spanAndEndpoint, Clock clock) {
             this.spanAndEndpoint = checkNotNull(spanAndEndpoint, "Null spanAndEndpoint");
+            this.clock = checkNotNull(clock, "Null clock");
         }
 
         @Override
         SpanAndEndpoint spanAndEndpoint() {
             return spanAndEndpoint;
         }
+
+        @Override
+        Clock clock() {
+            return clock;
+        }
     }
 }
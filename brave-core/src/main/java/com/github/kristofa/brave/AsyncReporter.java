@@ -0,0 +1,370 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.RingBuffer;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Queues spans reported by request threads, and sends them in batches from a single background
+ * thread. This is the queue and thread behind span collectors, which only supply a {@link Sender}
+ * for their transport.
+ *
+ * <pre>
+ * reporter = AsyncReporter.builder(sender)
+ *     .metrics(metricsHandler)
+ *     .sizer(ThriftSpanSizer.INSTANCE)
+ *     .queuedMaxBytes(10 * 1024 * 1024)
+ *     .build();
+ *
+ * reporter.report(span); // from any thread
+ * </pre>
+ *
+ * <p>Reporting never blocks: spans are added to a lock-free {@link RingBuffer}, and dropped when it
+ * is full. The background thread sends a batch when {@code maxBatchSize} spans are queued, when
+ * {@code messageMaxBytes} are queued, or when the flush interval elapsed, whichever comes first. All events are counted by the {@link
+ * SpanCollectorMetricsHandler}: spans are accepted when reported, and dropped when the queue is
+ * full, when sending fails, or when they are still queued after {@link #close()}.
+ *
+ * <p>With a {@link Sizer}, the queue is bounded by the size of spans in bytes, so that a span with
+ * a large annotation, such as a SQL query, counts for more than a small one. The number of spans
+ * is bounded too, but by default high enough that the byte limit is reached first. Batches are
+ * then split so that each stays within {@code messageMaxBytes}, for transports or servers that
+ * limit the size of a message.
+ *
+ * @param <S> type of queued spans, for example {@link com.twitter.zipkin.gen.Span}.
+ */
+public final class AsyncReporter<S> implements Flushable, Closeable {
+
+  static final int DEFAULT_QUEUE_SIZE = 10000;
+  static final long DEFAULT_QUEUED_MAX_BYTES = Runtime.getRuntime().maxMemory() / 100;
+  static final int DEFAULT_MAX_BATCH_SIZE = 100;
+  static final long DEFAULT_FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  static final long DEFAULT_CLOSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  private static final Logger LOGGER = Logger.getLogger(AsyncReporter.class.getName());
+
+  /** Sends batches of spans to a transport, such as http or kafka. */
+  public interface Sender<S> {
+
+    /**
+     * Sends the spans, blocking until they are sent. This is called from one thread at a time. If
+     * this throws, all the spans are counted as dropped.
+     */
+    void send(List<S> spans) throws IOException;
+  }
+
+  /** Estimates the size in bytes of a span once encoded, for example with {@code TBinaryProtocol}. */
+  public interface Sizer<S> {
+    int sizeInBytes(S span);
+  }
+
+  public static <S> Builder<S> builder(Sender<S> sender) {
+    return new Builder<S>(sender);
+  }
+
+  public static final class Builder<S> {
+    final Sender<S> sender;
+    SpanCollectorMetricsHandler metrics = new EmptySpanCollectorMetricsHandler();
+    int queueSize = DEFAULT_QUEUE_SIZE;
+    Sizer<S> sizer;
+    long queuedMaxBytes = DEFAULT_QUEUED_MAX_BYTES;
+    int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    int messageMaxBytes = Integer.MAX_VALUE;
+    long flushIntervalNanos = DEFAULT_FLUSH_INTERVAL_NANOS;
+    long closeTimeoutNanos = DEFAULT_CLOSE_TIMEOUT_NANOS;
+    String threadName = "AsyncReporter";
+
+    Builder(Sender<S> sender) {
+      this.sender = checkNotNull(sender, "Null sender");
+    }
+
+    /**
+     * Gets notified when spans are accepted or dropped. Defaults to ignore these events. An
+     * {@link AdaptiveSampler} also reads the depth of the queue.
+     */
+    public Builder<S> metrics(SpanCollectorMetricsHandler metrics) {
+      this.metrics = checkNotNull(metrics, "Null metrics");
+      return this;
+    }
+
+    /** Maximum number of queued spans, after which further spans are dropped. Default 10000. */
+    public Builder<S> queueSize(int queueSize) {
+      if (queueSize <= 0) throw new IllegalArgumentException("queueSize <= 0");
+      this.queueSize = queueSize;
+      return this;
+    }
+
+    /** Sizes spans, so that the queue is bounded by {@link #queuedMaxBytes(long)}. Default none. */
+    public Builder<S> sizer(Sizer<S> sizer) {
+      this.sizer = checkNotNull(sizer, "Null sizer");
+      return this;
+    }
+
+    /**
+     * Maximum total size of queued spans, as computed by the {@link #sizer(Sizer) sizer}, after
+     * which further spans are dropped. Default 1% of the maximum heap size.
+     */
+    public Builder<S> queuedMaxBytes(long queuedMaxBytes) {
+      if (queuedMaxBytes <= 0) throw new IllegalArgumentException("queuedMaxBytes <= 0");
+      this.queuedMaxBytes = queuedMaxBytes;
+      return this;
+    }
+
+    /** Maximum number of spans passed to {@link Sender#send(List)} at once. Default 100. */
+    public Builder<S> maxBatchSize(int maxBatchSize) {
+      if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize <= 0");
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * Maximum total size of spans passed to {@link Sender#send(List)} at once, as computed by the
+     * {@link #sizer(Sizer) sizer}. A batch is sent as soon as this many bytes are queued, and a span
+     * larger than this is dropped, as it could never be sent. Default no limit.
+     */
+    public Builder<S> messageMaxBytes(int messageMaxBytes) {
+      if (messageMaxBytes <= 0) throw new IllegalArgumentException("messageMaxBytes <= 0");
+      this.messageMaxBytes = messageMaxBytes;
+      return this;
+    }
+
+    /**
+     * Maximum time a span waits for a batch to fill before it is sent. Default 1 second. 0 implies
+     * no background thread: spans are {@link #flush() flushed} externally.
+     */
+    public Builder<S> flushInterval(long flushInterval, TimeUnit unit) {
+      if (flushInterval < 0) throw new IllegalArgumentException("flushInterval < 0");
+      this.flushIntervalNanos = unit.toNanos(flushInterval);
+      return this;
+    }
+
+    /**
+     * How long {@link #close()} waits for queued spans to be sent. Default 5 seconds. A send in
+     * flight at that point isn't interrupted: it completes in the background, and spans still queued
+     * after it are dropped.
+     */
+    public Builder<S> closeTimeout(long closeTimeout, TimeUnit unit) {
+      if (closeTimeout < 0) throw new IllegalArgumentException("closeTimeout < 0");
+      this.closeTimeoutNanos = unit.toNanos(closeTimeout);
+      return this;
+    }
+
+    /** Name of the background thread. Default "AsyncReporter". */
+    public Builder<S> threadName(String threadName) {
+      this.threadName = checkNotNull(threadName, "Null threadName");
+      return this;
+    }
+
+    public AsyncReporter<S> build() {
+      AsyncReporter<S> reporter = new AsyncReporter<S>(this);
+      if (metrics instanceof AdaptiveSampler) {
+        ((AdaptiveSampler) metrics).readQueueDepth(reporter);
+      }
+      return reporter;
+    }
+  }
+
+  private final Sender<S> sender;
+  private final SpanCollectorMetricsHandler metrics;
+  private final RingBuffer<S> queue;
+  private final Sizer<S> sizer; // null when bounded by number of spans only
+  private final int maxBatchSize;
+  private final int messageMaxBytes;
+  private final long flushIntervalNanos;
+  private final long closeTimeoutNanos;
+  private final ReentrantLock sendLock = new ReentrantLock();
+  private final Thread flusher; // null when flushed externally
+  private volatile boolean parked;
+  private volatile boolean closed;
+  private volatile boolean terminated; // set once nothing will send queued spans anymore
+
+  AsyncReporter(Builder<S> builder) {
+    this.sender = builder.sender;
+    this.metrics = builder.metrics;
+    this.sizer = builder.sizer;
+    this.queue = sizer != null
+        ? new RingBuffer<S>(builder.queueSize, builder.queuedMaxBytes)
+        : new RingBuffer<S>(builder.queueSize);
+    this.maxBatchSize = builder.maxBatchSize;
+    this.messageMaxBytes = builder.messageMaxBytes;
+    this.flushIntervalNanos = builder.flushIntervalNanos;
+    this.closeTimeoutNanos = builder.closeTimeoutNanos;
+    if (flushIntervalNanos > 0) {
+      flusher = new Thread(new Flusher(), builder.threadName);
+      flusher.setDaemon(true);
+      flusher.start();
+    } else {
+      flusher = null;
+    }
+  }
+
+  /**
+   * Queues the span for sending, or drops it if the queue is full or this reporter is closed.
+   * Never blocks.
+   */
+  public void report(S span) {
+    checkNotNull(span, "Null span");
+    metrics.incrementAcceptedSpans(1);
+    int sizeInBytes = sizer != null ? sizer.sizeInBytes(span) : 0;
+    if (closed || sizeInBytes > messageMaxBytes || !queue.offer(span, sizeInBytes)) {
+      metrics.incrementDroppedSpans(1);
+      return;
+    }
+    // close() may have drained the queue between the check above and the offer
+    if (terminated) {
+      dropQueued();
+      return;
+    }
+    // wake up the flusher when a batch is ready, instead of waiting for the interval to elapse
+    if (parked && batchReady()) {
+      parked = false;
+      LockSupport.unpark(flusher);
+    }
+  }
+
+  /** Returns the number of spans waiting to be sent. */
+  public int queuedSpans() {
+    return queue.size();
+  }
+
+  /** Returns the total size of spans waiting to be sent, or 0 if there is no sizer. */
+  public long queuedBytes() {
+    return queue.bytes();
+  }
+
+  /**
+   * Returns how full the queue is, from 0 to 1: queued spans relative to the queue size or, with a
+   * sizer, their total size relative to the maximum, whichever is larger.
+   */
+  float queueUsage() {
+    float usage = (float) queuedSpans() / queue.capacity();
+    if (sizer != null) usage = Math.max(usage, (float) queuedBytes() / queue.maxBytes());
+    return usage;
+  }
+
+  /**
+   * Sends all queued spans on the current thread, in batches of at most {@code maxBatchSize} spans
+   * and {@code messageMaxBytes}. Waits for a batch the background thread is sending, if any.
+   */
+  @Override
+  public void flush() {
+    List<S> batch = new ArrayList<S>(Math.min(maxBatchSize, queue.capacity()));
+    while (sendBatch(batch) > 0) {
+      batch.clear();
+    }
+    if (terminated) dropQueued(); // a span reported meanwhile would otherwise stay queued
+  }
+
+  /**
+   * Stops accepting spans, and waits up to the close timeout for queued spans to be sent. Spans
+   * still queued afterwards are dropped. Returns after the timeout even if a send is in flight: the
+   * background thread drops the remaining spans once that send completes.
+   */
+  @Override
+  public void close() {
+    if (closed) return;
+    closed = true;
+    if (flusher != null) {
+      LockSupport.unpark(flusher);
+      try {
+        TimeUnit.NANOSECONDS.timedJoin(flusher, closeTimeoutNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    // set before draining, so that a span offered concurrently is dropped by either close or report
+    terminated = true;
+    dropQueued();
+  }
+
+  /**
+   * Throws any outstanding spans on the floor, unless another thread is sending or dropping them.
+   * Never waits for a send in flight: the thread sending checks the queue again once done.
+   */
+  void dropQueued() {
+    List<S> batch = null;
+    while (queue.size() > 0 && sendLock.tryLock()) {
+      try {
+        if (batch == null) batch = new ArrayList<S>();
+        int dropped;
+        while ((dropped = queue.drainTo(batch, maxBatchSize, messageMaxBytes)) > 0) {
+          metrics.incrementDroppedSpans(dropped);
+          batch.clear();
+        }
+      } finally {
+        sendLock.unlock();
+      }
+    }
+  }
+
+  /** Drains a batch and sends it, returning the number of spans drained. */
+  int sendBatch(List<S> batch) {
+    sendLock.lock(); // the sender is called from one thread at a time, in queue order
+    try {
+      int count = queue.drainTo(batch, maxBatchSize, messageMaxBytes);
+      if (count > 0) send(batch);
+      return count;
+    } finally {
+      sendLock.unlock();
+    }
+  }
+
+  /** Returns true if enough spans are queued to fill a batch, by count or by size. */
+  boolean batchReady() {
+    return queue.size() >= maxBatchSize || queue.bytes() >= messageMaxBytes;
+  }
+
+  void send(List<S> batch) {
+    try {
+      sender.send(batch);
+    } catch (IOException | RuntimeException e) {
+      metrics.incrementDroppedSpans(batch.size());
+      if (LOGGER.isLoggable(Level.FINE)) {
+        LOGGER.log(Level.FINE, "Dropped " + batch.size() + " spans: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Sends full batches, by count or by size, as soon as they are ready, and partial ones once the
+   * interval elapsed.
+   */
+  final class Flusher implements Runnable {
+    @Override
+    public void run() {
+      List<S> batch = new ArrayList<S>(Math.min(maxBatchSize, queue.capacity()));
+      long nextFlush = System.nanoTime() + flushIntervalNanos;
+      while (!closed) {
+        long remaining = nextFlush - System.nanoTime();
+        if (remaining <= 0 || batchReady()) {
+          if (sendBatch(batch) > 0) batch.clear();
+          if (!batchReady()) nextFlush = System.nanoTime() + flushIntervalNanos;
+          continue;
+        }
+        parked = true;
+        if (!batchReady() && !closed) LockSupport.parkNanos(this, remaining);
+        parked = false;
+      }
+      // send what was queued before close, until close gives up waiting
+      while (!terminated && sendBatch(batch) > 0) {
+        batch.clear();
+      }
+      if (terminated) dropQueued();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "AsyncReporter(" + sender + ")";
+  }
+}
@@ -3,7 +3,6 @@ package com.github.kristofa.brave;
 import com.github.kristofa.brave.internal.Util;
 import java.net.UnknownHostException;
 import java.util.List;
-import java.util.Random;
 
 import static com.github.kristofa.brave.InetAddressUtilities.getLocalHostLANAddress;
 import static com.github.kristofa.brave.InetAddressUtilities.toInt;
@@ -20,6 +19,7 @@ public class Brave {
     private final AnnotationSubmitter serverSpanAnnotationSubmitter;
     private final ServerSpanThreadBinder serverSpanThreadBinder;
     private final ClientSpanThreadBinder clientSpanThreadBinder;
+    private final LocalSpanThreadBinder localSpanThreadBinder;
 
     /**
      * Builds Brave api objects with following defaults if not overridden:
@@ -28,15 +28,19 @@ public class Brave {
      * <li>ThreadLocalServerClientAndLocalSpanState which binds trace/span state to current thread.</li>
      * <li>LoggingSpanCollector</li>
      * <li>Sampler that samples all traces</li>
+     * <li>IdGenerator that uses a random number generator local to the calling thread</li>
+     * <li>Clock that reads the system wall clock and nanoTime</li>
      * </ul>
      */
     public static class Builder {
 
         private final ServerClientAndLocalSpanState state;
         private SpanCollector spanCollector = new LoggingSpanCollector();
-        private Random random = new Random();
+        private IdGenerator idGenerator = IdGenerator.create();
+        private Clock clock = Clock.create();
         // default added so callers don't need to check null.
         private Sampler sampler = Sampler.create(1.0f);
+        private RequestMetrics requestMetrics;
 
         /**
          * Builder which initializes with serviceName = "unknown".
@@ -100,6 +104,30 @@ public class Brave {
             return this;
         }
 
+        /**
+         * Used to generate new trace/span ids. Defaults to {@link IdGenerator#create()}.
+         */
+        public Builder idGenerator(IdGenerator idGenerator) {
+            this.idGenerator = Util.checkNotNull(idGenerator, "idGenerator must be specified.");
+            return this;
+        }
+
+        /**
+         * Used for span timestamps and durations. Defaults to {@link Clock#create()}.
+         */
+        public Builder clock(Clock clock) {
+            this.clock = Util.checkNotNull(clock, "clock must be specified.");
+            return this;
+        }
+
+        /**
+         * Counts all server and client requests handled by the interceptors, sampled or not. Not set by default.
+         */
+        public Builder requestMetrics(RequestMetrics requestMetrics) {
+            this.requestMetrics = Util.checkNotNull(requestMetrics, "requestMetrics must be specified.");
+            return this;
+        }
+
         /**
          * @param spanCollector
          */
@@ -185,6 +213,16 @@ public class Brave {
         return clientSpanThreadBinder;
     }
 
+    /**
+     * Helper object that can be used to propagate local trace state. Typically over different threads.
+     *
+     * @return {@link LocalSpanThreadBinder}.
+     * @see LocalSpanThreadBinder
+     */
+    public LocalSpanThreadBinder localSpanThreadBinder() {
+        return localSpanThreadBinder;
+    }
+
     /**
      * Can be used to submit application specific annotations to the current server span.
      *
@@ -196,29 +234,34 @@ public class Brave {
 
     private Brave(Builder builder) {
         serverTracer = ServerTracer.builder()
-                .randomGenerator(builder.random)
+                .idGenerator(builder.idGenerator)
+                .clock(builder.clock)
                 .spanCollector(builder.spanCollector)
                 .state(builder.state)
                 .traceSampler(builder.sampler).build();
 
         clientTracer = ClientTracer.builder()
-                .randomGenerator(builder.random)
+                .idGenerator(builder.idGenerator)
+                .clock(builder.clock)
                 .spanCollector(builder.spanCollector)
                 .state(builder.state)
                 .traceSampler(builder.sampler).build();
 
         localTracer = LocalTracer.builder()
-                .randomGenerator(builder.random)
+                .idGenerator(builder.idGenerator)
+                .clock(builder.clock)
                 .spanCollector(builder.spanCollector)
                 .spanAndEndpoint(SpanAndEndpoint.LocalSpanAndEndpoint.create(builder.state))
                 .traceSampler(builder.sampler).build();
         
-        serverRequestInterceptor = new ServerRequestInterceptor(serverTracer);
-        serverResponseInterceptor = new ServerResponseInterceptor(serverTracer);
-        clientRequestInterceptor = new ClientRequestInterceptor(clientTracer);
-        clientResponseInterceptor = new ClientResponseInterceptor(clientTracer);
-        serverSpanAnnotationSubmitter = AnnotationSubmitter.create(SpanAndEndpoint.ServerSpanAndEndpoint.create(builder.state));
+        serverRequestInterceptor = new ServerRequestInterceptor(serverTracer, builder.requestMetrics);
+        serverResponseInterceptor = new ServerResponseInterceptor(serverTracer, builder.requestMetrics);
+        clientRequestInterceptor = new ClientRequestInterceptor(clientTracer, builder.requestMetrics);
+        clientResponseInterceptor = new ClientResponseInterceptor(clientTracer, builder.requestMetrics);
+        serverSpanAnnotationSubmitter = AnnotationSubmitter.create(
+            SpanAndEndpoint.ServerSpanAndEndpoint.create(builder.state), builder.clock);
         serverSpanThreadBinder = new ServerSpanThreadBinder(builder.state);
         clientSpanThreadBinder = new ClientSpanThreadBinder(builder.state);
+        localSpanThreadBinder = new LocalSpanThreadBinder(builder.state);
     }
 }
@@ -2,12 +2,12 @@ package com.github.kristofa.brave;
 
 import java.util.concurrent.Callable;
 
-import com.github.kristofa.brave.internal.Nullable;
 import com.google.auto.value.AutoValue;
 
 /**
  * Callable implementation that wraps another Callable and makes sure the wrapped Callable will be executed in the same
- * Span/Trace context as the thread from which the Callable was executed.
+ * Span/Trace context as the thread from which the Callable was executed. The context of the executing thread is
+ * restored when the wrapped Callable completes.
  * <p/>
  * Is used by {@link BraveExecutorService}.
  * 
@@ -19,27 +19,43 @@ import com.google.auto.value.AutoValue;
 public abstract class BraveCallable<T> implements Callable<T> {
 
     /**
-     * Creates a new instance.
+     * Creates a new instance that propagates the current server span.
      *
      * @param wrappedCallable The wrapped Callable.
      * @param serverSpanThreadBinder ServerSpan thread binder.
      */
     public static <T> BraveCallable<T> create(Callable<T> wrappedCallable, ServerSpanThreadBinder serverSpanThreadBinder) {
-        return new AutoValue_BraveCallable<T>(wrappedCallable, serverSpanThreadBinder, serverSpanThreadBinder.getCurrentServerSpan());
+        return create(wrappedCallable, CurrentSpans.capture(serverSpanThreadBinder, null, null));
+    }
+
+    /**
+     * Creates a new instance that propagates the current server, client and local spans.
+     *
+     * @param wrappedCallable The wrapped Callable.
+     * @param brave Brave instance whose thread binders are used.
+     */
+    public static <T> BraveCallable<T> create(Callable<T> wrappedCallable, Brave brave) {
+        return create(wrappedCallable, CurrentSpans.capture(brave));
+    }
+
+    static <T> BraveCallable<T> create(Callable<T> wrappedCallable, CurrentSpans currentSpans) {
+        return new AutoValue_BraveCallable<T>(wrappedCallable, currentSpans);
     }
 
     abstract Callable<T> wrappedCallable();
-    abstract ServerSpanThreadBinder serverSpanThreadBinder();
-    @Nullable
-    abstract ServerSpan currentServerSpan();
+    abstract CurrentSpans currentSpans();
 
     /**
      * {@inheritDoc}
      */
     @Override
     public T call() throws Exception {
-        serverSpanThreadBinder().setCurrentSpan(currentServerSpan());
-        return wrappedCallable().call();
+        CurrentSpans previous = currentSpans().bind();
+        try {
+            return wrappedCallable().call();
+        } finally {
+            previous.restore();
+        }
     }
 
     BraveCallable() {
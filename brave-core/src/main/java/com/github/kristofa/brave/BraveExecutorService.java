@@ -1,5 +1,6 @@
 package com.github.kristofa.brave;
 
+import com.github.kristofa.brave.internal.Nullable;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -17,7 +18,9 @@ import static com.github.kristofa.brave.internal.Util.checkNotNull;
  * {@link ExecutorService} that wraps around an existing {@link ExecutorService} and that makes sure the threads are executed
  * in the same Span/Trace context as the the thread that invoked execution of the threads.
  * <p/>
- * It uses {@link ServerTracer} and {@link ServerSpanThreadBinder} to accomplish this in a transparent way for the user.
+ * It uses {@link ServerSpanThreadBinder} to accomplish this in a transparent way for the user. When created with a
+ * {@link Brave} instance, the current client and local spans are propagated as well. Each task restores the trace
+ * context of the thread that ran it when it completes, so pooled threads don't retain spans of earlier tasks.
  * <p/>
  * It also implements {@link Closeable}, calling {@link BraveExecutorService#shutdown()}, so the executor service is
  * shut down properly when for example using Spring.
@@ -28,11 +31,21 @@ import static com.github.kristofa.brave.internal.Util.checkNotNull;
  */
 public class BraveExecutorService implements ExecutorService, Closeable {
 
+    /**
+     * Annotation added to the local span of a task when it starts running. The time before it is spent in the queue.
+     *
+     * @see #BraveExecutorService(ExecutorService, Brave, String, ExecutorMetricsHandler)
+     */
+    public static final String TASK_START_ANNOTATION = "executor.start";
+
     private final ExecutorService wrappedExecutor;
     private final ServerSpanThreadBinder threadBinder;
+    private final ClientSpanThreadBinder clientThreadBinder;
+    private final LocalSpanThreadBinder localThreadBinder;
+    private final ExecutorInstrumentation instrumentation;
 
     /**
-     * Creates a new instance.
+     * Creates a new instance that propagates the current server span.
      * 
      * @param wrappedExecutor Wrapped ExecutorService to which execution will be delegated.
      * @param threadBinder Thread binder.
@@ -40,6 +53,48 @@ public class BraveExecutorService implements ExecutorService, Closeable {
     public BraveExecutorService(final ExecutorService wrappedExecutor, final ServerSpanThreadBinder threadBinder) {
         this.wrappedExecutor = checkNotNull(wrappedExecutor, "Null wrappedExecutor");
         this.threadBinder = checkNotNull(threadBinder, "Null threadBinder");
+        this.clientThreadBinder = null;
+        this.localThreadBinder = null;
+        this.instrumentation = null;
+    }
+
+    /**
+     * Creates a new instance that propagates the current server, client and local spans.
+     *
+     * @param wrappedExecutor Wrapped ExecutorService to which execution will be delegated.
+     * @param brave Brave instance whose thread binders are used.
+     */
+    public BraveExecutorService(final ExecutorService wrappedExecutor, final Brave brave) {
+        this.wrappedExecutor = checkNotNull(wrappedExecutor, "Null wrappedExecutor");
+        checkNotNull(brave, "Null brave");
+        this.threadBinder = brave.serverSpanThreadBinder();
+        this.clientThreadBinder = brave.clientSpanThreadBinder();
+        this.localThreadBinder = brave.localSpanThreadBinder();
+        this.instrumentation = null;
+    }
+
+    /**
+     * Creates a new instance that propagates the current server, client and local spans, and measures how long each
+     * task waits in the queue and runs.
+     * <p/>
+     * When a task span name is given, each sampled task is also traced as a local span of component "executor". The
+     * span starts when the task is submitted, has a {@link #TASK_START_ANNOTATION} when it starts running, and
+     * finishes when it completes. Spans started by the task are its children.
+     *
+     * @param wrappedExecutor Wrapped ExecutorService to which execution will be delegated.
+     * @param brave Brave instance whose thread binders and local tracer are used.
+     * @param taskSpanName Name of the local span recorded for each task, or <code>null</code> to not record spans.
+     * @param metricsHandler Receives queue wait and run time of tasks, and executor saturation.
+     */
+    public BraveExecutorService(final ExecutorService wrappedExecutor, final Brave brave,
+        @Nullable final String taskSpanName, final ExecutorMetricsHandler metricsHandler) {
+        this.wrappedExecutor = checkNotNull(wrappedExecutor, "Null wrappedExecutor");
+        checkNotNull(brave, "Null brave");
+        this.threadBinder = brave.serverSpanThreadBinder();
+        this.clientThreadBinder = brave.clientSpanThreadBinder();
+        this.localThreadBinder = brave.localSpanThreadBinder();
+        this.instrumentation =
+            new ExecutorInstrumentation(wrappedExecutor, brave.localTracer(), taskSpanName, metricsHandler);
     }
 
     /**
@@ -47,7 +102,7 @@ public class BraveExecutorService implements ExecutorService, Closeable {
      */
     @Override
     public void execute(final Runnable arg0) {
-        final BraveRunnable braveRunnable = BraveRunnable.create(arg0, threadBinder);
+        final Runnable braveRunnable = wrap(arg0);
         wrappedExecutor.execute(braveRunnable);
     }
 
@@ -131,7 +186,7 @@ public class BraveExecutorService implements ExecutorService, Closeable {
      */
     @Override
     public <T> Future<T> submit(final Callable<T> arg0) {
-        final BraveCallable<T> braveCallable = BraveCallable.create(arg0, threadBinder);
+        final Callable<T> braveCallable = wrap(arg0);
         return wrappedExecutor.submit(braveCallable);
     }
 
@@ -140,7 +195,7 @@ public class BraveExecutorService implements ExecutorService, Closeable {
      */
     @Override
     public Future<?> submit(final Runnable arg0) {
-        final BraveRunnable braveRunnable = BraveRunnable.create(arg0, threadBinder);
+        final Runnable braveRunnable = wrap(arg0);
         return wrappedExecutor.submit(braveRunnable);
     }
 
@@ -149,7 +204,7 @@ public class BraveExecutorService implements ExecutorService, Closeable {
      */
     @Override
     public <T> Future<T> submit(final Runnable arg0, final T arg1) {
-        final BraveRunnable braveRunnable = BraveRunnable.create(arg0, threadBinder);
+        final Runnable braveRunnable = wrap(arg0);
         return wrappedExecutor.submit(braveRunnable, arg1);
     }
 
@@ -157,11 +212,25 @@ public class BraveExecutorService implements ExecutorService, Closeable {
         final Collection<? extends Callable<T>> originalCollection) {
         final Collection<Callable<T>> collection = new ArrayList<Callable<T>>();
         for (final Callable<T> t : originalCollection) {
-            collection.add(BraveCallable.create(t, threadBinder));
+            collection.add(wrap(t));
         }
         return collection;
     }
 
+    Runnable wrap(final Runnable runnable) {
+        if (instrumentation != null) return instrumentation.task(runnable, currentSpans());
+        return BraveRunnable.create(runnable, currentSpans());
+    }
+
+    <T> Callable<T> wrap(final Callable<T> callable) {
+        if (instrumentation != null) return instrumentation.task(callable, currentSpans());
+        return BraveCallable.create(callable, currentSpans());
+    }
+
+    CurrentSpans currentSpans() {
+        return CurrentSpans.capture(threadBinder, clientThreadBinder, localThreadBinder);
+    }
+
     /**
      * Convenience for try-with-resources, or frameworks such as Spring that automatically process this.
      **/
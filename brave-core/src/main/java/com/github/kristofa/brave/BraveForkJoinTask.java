@@ -0,0 +1,83 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * {@link ForkJoinTask} that wraps another task and makes sure it is executed in the same Span/Trace context as the
+ * thread that created the wrapper. The context of the worker thread is restored when the wrapped task completes.
+ * <p/>
+ * {@link BraveExecutorService} covers {@link Runnable runnables} and {@link Callable callables} submitted to a
+ * {@link ForkJoinPool}. Use this for tasks passed to {@link ForkJoinPool#invoke(ForkJoinTask)} or forked from other
+ * tasks:
+ * <pre>
+ * pool.invoke(BraveForkJoinTask.create(new SumTask(values), brave));
+ * </pre>
+ * <p/>
+ * Only the wrapped task runs in the context. Subtasks it forks are plain tasks: a worker thread that steals one runs
+ * it without the context. Wrap them too, in {@code compute()}, where the context is bound:
+ * <pre>
+ * ForkJoinTask&lt;Long&gt; left = BraveForkJoinTask.create(new SumTask(leftValues), brave).fork();
+ * long right = new SumTask(rightValues).compute();
+ * return left.join() + right;
+ * </pre>
+ *
+ * @param <V> Result type.
+ * @see BraveExecutorService
+ */
+public final class BraveForkJoinTask<V> extends ForkJoinTask<V> {
+
+    private static final long serialVersionUID = 0L;
+
+    /**
+     * Creates a new instance that propagates the current server, client and local spans.
+     *
+     * @param task The wrapped task.
+     * @param brave Brave instance whose thread binders are used.
+     */
+    public static <V> BraveForkJoinTask<V> create(ForkJoinTask<V> task, Brave brave) {
+        return new BraveForkJoinTask<V>(task, CurrentSpans.capture(checkNotNull(brave, "Null brave")));
+    }
+
+    private final transient ForkJoinTask<V> wrappedTask;
+    private final transient CurrentSpans currentSpans;
+    private V result;
+
+    BraveForkJoinTask(ForkJoinTask<V> wrappedTask, CurrentSpans currentSpans) {
+        this.wrappedTask = checkNotNull(wrappedTask, "Null wrappedTask");
+        this.currentSpans = currentSpans;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V getRawResult() {
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setRawResult(V value) {
+        result = value;
+    }
+
+    /**
+     * Runs the wrapped task in this worker thread, rethrowing its exception if it failed.
+     */
+    @Override
+    protected boolean exec() {
+        CurrentSpans previous = currentSpans.bind();
+        try {
+            result = wrappedTask.invoke();
+            return true;
+        } finally {
+            previous.restore();
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.github.kristofa.brave;
 
-import com.github.kristofa.brave.internal.Nullable;
 import com.google.auto.value.AutoValue;
 
 /**
  * {@link Runnable} implementation that wraps another Runnable and makes sure the wrapped Runnable will be executed in the
- * same Span/Trace context as the thread from which the Runnable was executed.
+ * same Span/Trace context as the thread from which the Runnable was executed. The context of the executing thread is
+ * restored when the wrapped Runnable completes.
  * <p/>
  * Is used by {@link BraveExecutorService}.
  * 
@@ -16,26 +16,45 @@ import com.google.auto.value.AutoValue;
 public abstract class BraveRunnable implements Runnable {
 
     /**
-     * Creates a new instance.
+     * Creates a new instance that propagates the current server span.
      *
      * @param runnable The wrapped Callable.
      * @param serverSpanThreadBinder ServerSpan thread binder.
      */
     public static BraveRunnable create(Runnable runnable, ServerSpanThreadBinder serverSpanThreadBinder) {
-        return new AutoValue_BraveRunnable(runnable, serverSpanThreadBinder, serverSpanThreadBinder.getCurrentServerSpan());
+        return create(runnable, CurrentSpans.capture(serverSpanThreadBinder, null, null));
+    }
+
+    /**
+     * Creates a new instance that propagates the current server, client and local spans.
+     *
+     * @param runnable The wrapped Runnable.
+     * @param brave Brave instance whose thread binders are used.
+     */
+    public static BraveRunnable create(Runnable runnable, Brave brave) {
+        return create(runnable, CurrentSpans.capture(brave));
+    }
+
+    static BraveRunnable create(Runnable runnable, CurrentSpans currentSpans) {
+        return new AutoValue_BraveRunnable(runnable, currentSpans);
     }
 
     abstract Runnable wrappedRunnable();
-    abstract ServerSpanThreadBinder serverSpanThreadBinder();
-    @Nullable
-    abstract ServerSpan currentServerSpan();
+    abstract CurrentSpans currentSpans();
 
     /**
      * {@inheritDoc}
      */
     @Override
     public void run() {
-        serverSpanThreadBinder().setCurrentSpan(currentServerSpan());
-        wrappedRunnable().run();
+        CurrentSpans previous = currentSpans().bind();
+        try {
+            wrappedRunnable().run();
+        } finally {
+            previous.restore();
+        }
+    }
+
+    BraveRunnable() {
     }
 }
@@ -0,0 +1,76 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ScheduledExecutorService} that wraps around an existing {@link ScheduledExecutorService} and that makes sure
+ * scheduled tasks are executed in the same Span/Trace context as the thread that scheduled them.
+ * <p/>
+ * Periodic tasks run in the context that was current when they were scheduled, each time they run.
+ *
+ * @see BraveExecutorService
+ */
+public class BraveScheduledExecutorService extends BraveExecutorService implements ScheduledExecutorService {
+
+    private final ScheduledExecutorService wrappedExecutor;
+
+    /**
+     * Creates a new instance that propagates the current server span.
+     *
+     * @param wrappedExecutor Wrapped ScheduledExecutorService to which execution will be delegated.
+     * @param threadBinder Thread binder.
+     */
+    public BraveScheduledExecutorService(final ScheduledExecutorService wrappedExecutor,
+        final ServerSpanThreadBinder threadBinder) {
+        super(wrappedExecutor, threadBinder);
+        this.wrappedExecutor = wrappedExecutor;
+    }
+
+    /**
+     * Creates a new instance that propagates the current server, client and local spans.
+     *
+     * @param wrappedExecutor Wrapped ScheduledExecutorService to which execution will be delegated.
+     * @param brave Brave instance whose thread binders are used.
+     */
+    public BraveScheduledExecutorService(final ScheduledExecutorService wrappedExecutor, final Brave brave) {
+        super(wrappedExecutor, brave);
+        this.wrappedExecutor = wrappedExecutor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
+        return wrappedExecutor.schedule(wrap(command), delay, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit) {
+        return wrappedExecutor.schedule(wrap(callable), delay, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long initialDelay, final long period,
+        final TimeUnit unit) {
+        return wrappedExecutor.scheduleAtFixedRate(wrap(command), initialDelay, period, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay,
+        final TimeUnit unit) {
+        return wrappedExecutor.scheduleWithFixedDelay(wrap(command), initialDelay, delay, unit);
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.kristofa.brave;
 
+import com.github.kristofa.brave.internal.Nullable;
+
 import static com.github.kristofa.brave.internal.Util.checkNotNull;
 
 /**
@@ -20,9 +22,18 @@ import static com.github.kristofa.brave.internal.Util.checkNotNull;
 public class ClientRequestInterceptor {
 
     private final ClientTracer clientTracer;
+    private final RequestMetrics metrics;
 
     public ClientRequestInterceptor(ClientTracer clientTracer) {
+        this(clientTracer, null);
+    }
+
+    /**
+     * @param metrics Counts all requests, sampled or not, or <code>null</code> to only trace them.
+     */
+    public ClientRequestInterceptor(ClientTracer clientTracer, @Nullable RequestMetrics metrics) {
         this.clientTracer = checkNotNull(clientTracer, "Null clientTracer");
+        this.metrics = metrics;
     }
 
     /**
@@ -32,7 +43,8 @@ public class ClientRequestInterceptor {
      */
     public void handle(ClientRequestAdapter adapter) {
 
-        SpanId spanId = clientTracer.startNewSpan(adapter.getSpanName());
+        String spanName = adapter.getSpanName();
+        SpanId spanId = clientTracer.startNewSpan(spanName);
         if (spanId == null) {
             // We will not trace this request.
             adapter.addSpanIdToRequest(null);
@@ -44,6 +56,9 @@ public class ClientRequestInterceptor {
             }
             clientTracer.setClientSent();
         }
+        if (metrics != null) {
+            metrics.clientRequestStarted(spanName, spanId != null ? clientTracer.spanAndEndpoint().span() : null);
+        }
 
     }
 
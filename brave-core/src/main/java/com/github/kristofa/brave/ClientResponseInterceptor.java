@@ -2,6 +2,9 @@ package com.github.kristofa.brave;
 
 import static com.github.kristofa.brave.internal.Util.checkNotNull;
 
+import com.github.kristofa.brave.internal.Nullable;
+import com.twitter.zipkin.gen.Span;
+import java.util.Collection;
 import java.util.Objects;
 
 /**
@@ -18,9 +21,18 @@ import java.util.Objects;
 public class ClientResponseInterceptor {
 
     private final ClientTracer clientTracer;
+    private final RequestMetrics metrics;
 
     public ClientResponseInterceptor(ClientTracer clientTracer) {
+        this(clientTracer, null);
+    }
+
+    /**
+     * @param metrics Counts all requests, sampled or not, or <code>null</code> to only trace them.
+     */
+    public ClientResponseInterceptor(ClientTracer clientTracer, @Nullable RequestMetrics metrics) {
         this.clientTracer = checkNotNull(clientTracer, "Null clientTracer");
+        this.metrics = metrics;
     }
 
     /**
@@ -29,14 +41,19 @@ public class ClientResponseInterceptor {
      * @param adapter Adapter that hides implementation details.
      */
     public void handle(ClientResponseAdapter adapter) {
+        boolean error = false;
+        Span span = metrics != null ? clientTracer.spanAndEndpoint().state().getCurrentClientSpan() : null;
         try {
-            for (KeyValueAnnotation annotation : adapter.responseAnnotations()) {
+            Collection<KeyValueAnnotation> annotations = adapter.responseAnnotations();
+            for (KeyValueAnnotation annotation : annotations) {
                 clientTracer.submitBinaryAnnotation(annotation.getKey(), annotation.getValue());
             }
+            if (metrics != null) error = RequestMetrics.isError(annotations);
         }
         finally
         {
             clientTracer.setClientReceived();
+            if (metrics != null) metrics.clientRequestFinished(span, error);
         }
     }
 }
@@ -29,12 +29,12 @@ import java.util.Random;
 public abstract class ClientTracer extends AnnotationSubmitter {
 
     public static Builder builder() {
-        return new AutoValue_ClientTracer.Builder();
+        return new AutoValue_ClientTracer.Builder().clock(Clock.create());
     }
 
     @Override
     abstract ClientSpanAndEndpoint spanAndEndpoint();
-    abstract Random randomGenerator();
+    abstract IdGenerator idGenerator();
     abstract SpanCollector spanCollector();
     abstract Sampler traceSampler();
 
@@ -50,12 +50,26 @@ public abstract class ClientTracer extends AnnotationSubmitter {
         /**
          * Used to generate new trace/span ids.
          */
-        public abstract Builder randomGenerator(Random randomGenerator);
+        public abstract Builder idGenerator(IdGenerator idGenerator);
+
+        /**
+         * @deprecated use {@link #idGenerator(IdGenerator)}, as all callers of a shared {@link Random}
+         * contend on its seed.
+         */
+        @Deprecated
+        public Builder randomGenerator(Random randomGenerator) {
+            return idGenerator(IdGenerator.create(randomGenerator));
+        }
 
         public abstract Builder spanCollector(SpanCollector spanCollector);
 
         public abstract Builder traceSampler(Sampler sampler);
 
+        /**
+         * Used for span timestamps and durations. Defaults to {@link Clock#create()}.
+         */
+        public abstract Builder clock(Clock clock);
+
         abstract ClientTracer build();
     }
 
@@ -109,7 +123,7 @@ public abstract class ClientTracer extends AnnotationSubmitter {
         SpanId newSpanId = getNewSpanId();
         if (sample == null) {
             // No sample indication is present.
-            if (!traceSampler().isSampled(newSpanId.getTraceId())) {
+            if (!traceSampler().isSampled(newSpanId.getTraceId(), requestName)) {
                 spanAndEndpoint().state().setCurrentClientSpan(null);
                 spanAndEndpoint().state().setCurrentClientServiceName(null);
                 return null;
@@ -127,6 +141,56 @@ public abstract class ClientTracer extends AnnotationSubmitter {
         return newSpanId;
     }
 
+    /**
+     * Starts a new span for a client request, as a child of the given context instead of the state bound to the current
+     * thread.
+     * Like spans bound to the thread, its annotations carry the client endpoint, with the service name set by
+     * {@link #setCurrentClientServiceName(String)}, if any.
+     *
+     * @param parent Context of the parent span, such as {@link SpanHandle#context()}. When it has no span id, a new
+     *               trace is started.
+     * @param requestName Request name. Should be lowercase and not <code>null</code> or empty.
+     * @return the new span, or <code>null</code> in case we should not trace this new client request.
+     * @see SpanHandle
+     */
+    @Nullable
+    public SpanHandle startNewSpan(TraceData parent, String requestName) {
+        SpanId newSpanId = SpanHandle.nextSpanId(parent, requestName, idGenerator(), traceSampler());
+        if (newSpanId == null) return null;
+        Endpoint endpoint = spanAndEndpoint().endpoint(); // as for spans bound to the thread
+        return SpanHandle.create(SpanHandle.newSpan(newSpanId, requestName), endpoint, clock());
+    }
+
+    /**
+     * Like {@link #setClientSent()}, except for a span started with {@link #startNewSpan(TraceData, String)}.
+     *
+     * @param span span to annotate, or <code>null</code> if the request isn't traced.
+     */
+    public void setClientSent(@Nullable SpanHandle span) {
+        if (span != null) span.submitStartAnnotation(zipkinCoreConstants.CLIENT_SEND);
+    }
+
+    /**
+     * Like {@link #setClientSent(int, int, String)}, except for a span started with
+     * {@link #startNewSpan(TraceData, String)}.
+     *
+     * @param span span to annotate, or <code>null</code> if the request isn't traced.
+     */
+    public void setClientSent(@Nullable SpanHandle span, int ipv4, int port, @Nullable String serviceName) {
+        if (span == null) return;
+        span.submitAddress(zipkinCoreConstants.SERVER_ADDR, ipv4, port, serviceName);
+        span.submitStartAnnotation(zipkinCoreConstants.CLIENT_SEND);
+    }
+
+    /**
+     * Like {@link #setClientReceived()}, except for a span started with {@link #startNewSpan(TraceData, String)}.
+     *
+     * @param span span to finish, or <code>null</code> if the request isn't traced.
+     */
+    public void setClientReceived(@Nullable SpanHandle span) {
+        if (span != null) span.submitEndAnnotation(zipkinCoreConstants.CLIENT_RECV, spanCollector());
+    }
+
     /**
      * Override the service name that will be submitted in the annotations.
      * <p/>
@@ -139,6 +203,13 @@ public abstract class ClientTracer extends AnnotationSubmitter {
         spanAndEndpoint().state().setCurrentClientServiceName(serviceName);
     }
 
+    @Override
+    Span localRootSpan() {
+        ServerSpan serverSpan = spanAndEndpoint().state().getCurrentServerSpan();
+        Span root = serverSpan != null ? serverSpan.getSpan() : null;
+        return root != null ? root : spanAndEndpoint().state().getCurrentLocalSpan();
+    }
+
     private SpanId getNewSpanId() {
 
         Span parentSpan = spanAndEndpoint().state().getCurrentLocalSpan();
@@ -148,7 +219,7 @@ public abstract class ClientTracer extends AnnotationSubmitter {
                 parentSpan = serverSpan.getSpan();
             }
         }
-        long newSpanId = randomGenerator().nextLong();
+        long newSpanId = idGenerator().nextId();
         if (parentSpan == null) {
             return SpanId.create(newSpanId, newSpanId, null);
         }
@@ -0,0 +1,48 @@
+package com.github.kristofa.brave;
+
+/**
+ * Source of span timestamps and durations.
+ *
+ * <p>Tracers read the wall clock once, when the local root span of a trace starts, and derive
+ * later timestamps and durations from {@link #nanoTime()}. This gives sub-millisecond precision,
+ * and keeps durations correct when the wall clock steps, for example on NTP adjustments.
+ */
+// abstract for factory-method support on Java language level 7
+public abstract class Clock {
+
+  /** Returns the current time in microseconds since the epoch. */
+  public abstract long currentTimeMicroseconds();
+
+  /**
+   * Returns a monotonic tick in nanoseconds, only meaningful when compared with another tick from
+   * the same clock.
+   */
+  public abstract long nanoTime();
+
+  /**
+   * Returns the default clock, which reads {@link System#currentTimeMillis()} and {@link
+   * System#nanoTime()}.
+   */
+  public static Clock create() {
+    return SystemClock.INSTANCE;
+  }
+
+  static final class SystemClock extends Clock {
+    static final Clock INSTANCE = new SystemClock();
+
+    @Override
+    public long currentTimeMicroseconds() {
+      return System.currentTimeMillis() * 1000;
+    }
+
+    @Override
+    public long nanoTime() {
+      return System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+      return "SystemClock";
+    }
+  }
+}
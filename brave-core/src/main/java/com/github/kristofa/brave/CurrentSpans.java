@@ -0,0 +1,76 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.Nullable;
+import com.google.auto.value.AutoValue;
+import com.twitter.zipkin.gen.Span;
+
+/**
+ * Server, client and local spans current on a thread, captured so that they can be bound to the
+ * thread that runs a task. Binding returns the spans that were current before, so that the task
+ * doesn't leave its trace context on a pooled thread.
+ *
+ * <p/>Client and local spans are only captured when their thread binder is present.
+ *
+ * @see BraveRunnable
+ * @see BraveCallable
+ */
+@AutoValue
+abstract class CurrentSpans {
+
+    static CurrentSpans capture(ServerSpanThreadBinder serverSpanThreadBinder,
+        @Nullable ClientSpanThreadBinder clientSpanThreadBinder,
+        @Nullable LocalSpanThreadBinder localSpanThreadBinder) {
+        return new AutoValue_CurrentSpans(
+            serverSpanThreadBinder,
+            serverSpanThreadBinder.getCurrentServerSpan(),
+            clientSpanThreadBinder,
+            clientSpanThreadBinder != null ? clientSpanThreadBinder.getCurrentClientSpan() : null,
+            localSpanThreadBinder,
+            localSpanThreadBinder != null ? localSpanThreadBinder.getCurrentLocalSpan() : null
+        );
+    }
+
+    static CurrentSpans capture(Brave brave) {
+        return capture(brave.serverSpanThreadBinder(), brave.clientSpanThreadBinder(),
+            brave.localSpanThreadBinder());
+    }
+
+    abstract ServerSpanThreadBinder serverSpanThreadBinder();
+
+    @Nullable
+    abstract ServerSpan serverSpan();
+
+    @Nullable
+    abstract ClientSpanThreadBinder clientSpanThreadBinder();
+
+    @Nullable
+    abstract Span clientSpan();
+
+    @Nullable
+    abstract LocalSpanThreadBinder localSpanThreadBinder();
+
+    @Nullable
+    abstract Span localSpan();
+
+    /**
+     * Binds these spans to the current thread.
+     *
+     * @return the spans that were current before, to {@link #restore()} when the task completes.
+     */
+    CurrentSpans bind() {
+        CurrentSpans previous =
+            capture(serverSpanThreadBinder(), clientSpanThreadBinder(), localSpanThreadBinder());
+        restore();
+        return previous;
+    }
+
+    /** Binds these spans to the current thread, replacing what is current. */
+    void restore() {
+        serverSpanThreadBinder().setCurrentSpan(serverSpan());
+        if (clientSpanThreadBinder() != null) clientSpanThreadBinder().setCurrentSpan(clientSpan());
+        if (localSpanThreadBinder() != null) localSpanThreadBinder().setCurrentSpan(localSpan());
+    }
+
+    CurrentSpans() {
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.kristofa.brave;
+
+
+/**
+ * Empty implementation ignoring all events.
+ */
+public class EmptyExecutorMetricsHandler implements ExecutorMetricsHandler {
+
+    @Override
+    public void recordQueueWait(long nanos) {
+
+    }
+
+    @Override
+    public void recordRunTime(long nanos) {
+
+    }
+
+    @Override
+    public void updateActiveTasks(int tasks) {
+
+    }
+
+    @Override
+    public void updateQueueDepth(int tasks) {
+
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.Nullable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Measures how long tasks of a {@link BraveExecutorService} wait in the queue and run, and optionally traces each task
+ * as a local span from submission until completion.
+ */
+final class ExecutorInstrumentation {
+
+    /** Component of local spans recorded for tasks. */
+    static final String COMPONENT = "executor";
+
+    private final ExecutorService executor;
+    private final LocalTracer localTracer;
+    @Nullable
+    private final String spanName;
+    private final ExecutorMetricsHandler metricsHandler;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+
+    ExecutorInstrumentation(ExecutorService executor, LocalTracer localTracer, @Nullable String spanName,
+        ExecutorMetricsHandler metricsHandler) {
+        this.executor = executor;
+        this.localTracer = localTracer;
+        this.spanName = spanName;
+        this.metricsHandler = checkNotNull(metricsHandler, "Null metricsHandler");
+    }
+
+    <T> Task<T> task(Callable<T> callable, CurrentSpans currentSpans) {
+        return new Task<T>(null, callable, currentSpans, localTracer.clock().nanoTime());
+    }
+
+    Task<Object> task(Runnable runnable, CurrentSpans currentSpans) {
+        return new Task<Object>(runnable, null, currentSpans, localTracer.clock().nanoTime());
+    }
+
+    /** A task that runs in the context it was submitted in, and reports its queue wait and run time. */
+    final class Task<T> implements Runnable, Callable<T> {
+        private final Runnable runnable;
+        private final Callable<T> callable;
+        private final CurrentSpans currentSpans;
+        private final long submitTick;
+
+        Task(Runnable runnable, Callable<T> callable, CurrentSpans currentSpans, long submitTick) {
+            this.runnable = runnable;
+            this.callable = callable;
+            this.currentSpans = currentSpans;
+            this.submitTick = submitTick;
+        }
+
+        @Override
+        public void run() {
+            try {
+                call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new AssertionError(e); // runnables don't throw checked exceptions
+            }
+        }
+
+        @Override
+        public T call() throws Exception {
+            CurrentSpans previous = currentSpans.bind();
+            long startTick = localTracer.clock().nanoTime();
+            boolean traced = spanName != null
+                && localTracer.startNewSpanAtTick(COMPONENT, spanName, submitTick) != null;
+            if (traced) localTracer.submitAnnotation(BraveExecutorService.TASK_START_ANNOTATION);
+            taskStarted(startTick - submitTick);
+            try {
+                if (callable != null) return callable.call();
+                runnable.run();
+                return null;
+            } finally {
+                taskCompleted(localTracer.clock().nanoTime() - startTick);
+                if (traced) localTracer.finishSpan();
+                previous.restore();
+            }
+        }
+    }
+
+    void taskStarted(long queueWaitNanos) {
+        metricsHandler.recordQueueWait(queueWaitNanos);
+        metricsHandler.updateActiveTasks(activeTasks.incrementAndGet());
+        int queueDepth = queueDepth(executor);
+        if (queueDepth >= 0) metricsHandler.updateQueueDepth(queueDepth);
+    }
+
+    void taskCompleted(long runNanos) {
+        metricsHandler.recordRunTime(runNanos);
+        metricsHandler.updateActiveTasks(activeTasks.decrementAndGet());
+    }
+
+    /** Returns the number of tasks queued in the executor, or -1 if that's unknown. */
+    static int queueDepth(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        } else if (executor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+            return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.kristofa.brave;
+
+/**
+ * Monitor a {@linkplain BraveExecutorService} by implementing reactions to these events, e.g. updating suitable
+ * metrics. Long queue waits together with a deep queue point to a saturated pool.
+ *
+ * <p/>Methods are called from the threads that run tasks, so implementations must be thread-safe.
+ *
+ * @see BraveExecutorService#BraveExecutorService(java.util.concurrent.ExecutorService, Brave, String,
+ * ExecutorMetricsHandler)
+ */
+public interface ExecutorMetricsHandler {
+
+    /**
+     * Called when a task starts running.
+     *
+     * @param nanos time between submitting the task and it starting to run.
+     */
+    void recordQueueWait(long nanos);
+
+    /**
+     * Called when a task completes, normally or with an exception.
+     *
+     * @param nanos time the task was running.
+     */
+    void recordRunTime(long nanos);
+
+    /**
+     * Called when a task starts or completes.
+     *
+     * @param tasks the number of tasks submitted through the executor which are running.
+     */
+    void updateActiveTasks(int tasks);
+
+    /**
+     * Called when a task starts, only if the wrapped executor is a {@link java.util.concurrent.ThreadPoolExecutor} or a
+     * {@link java.util.concurrent.ForkJoinPool}.
+     *
+     * @param tasks the number of tasks waiting in the queue of the wrapped executor.
+     */
+    void updateQueueDepth(int tasks);
+}
@@ -0,0 +1,67 @@
+package com.github.kristofa.brave;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Generates trace and span ids.
+ *
+ * <p>Ids are generated on every new trace and every new client or local span, so implementations
+ * are called on the hot path of traced requests and should avoid shared mutable state.
+ */
+// abstract for factory-method support on Java language level 7
+public abstract class IdGenerator {
+
+  /** Returns a new, random 64-bit trace or span id. */
+  public abstract long nextId();
+
+  /**
+   * Returns the default generator, which uses a random number generator local to the calling
+   * thread. Unlike a shared {@link Random}, threads never contend on a common seed.
+   */
+  public static IdGenerator create() {
+    return ThreadLocalRandomIdGenerator.INSTANCE;
+  }
+
+  /**
+   * Returns a generator that delegates to the given random. Note that {@link Random} is
+   * thread-safe, but all callers will contend on its seed.
+   */
+  public static IdGenerator create(Random random) {
+    return new RandomIdGenerator(random);
+  }
+
+  static final class ThreadLocalRandomIdGenerator extends IdGenerator {
+    static final IdGenerator INSTANCE = new ThreadLocalRandomIdGenerator();
+
+    @Override
+    public long nextId() {
+      return ThreadLocalRandom.current().nextLong();
+    }
+
+    @Override
+    public String toString() {
+      return "ThreadLocalRandomIdGenerator";
+    }
+  }
+
+  static final class RandomIdGenerator extends IdGenerator {
+    private final Random random;
+
+    RandomIdGenerator(Random random) {
+      this.random = checkNotNull(random, "Null random");
+    }
+
+    @Override
+    public long nextId() {
+      return random.nextLong();
+    }
+
+    @Override
+    public String toString() {
+      return "RandomIdGenerator(" + random + ")";
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.LatencyHistogram;
+import com.twitter.zipkin.gen.Span;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps traces whose local root took longer than a running quantile of the durations of local
+ * roots with the same span name. Unlike {@link TailSampler#durationAtLeast}, this adapts to each
+ * endpoint: a 50 ms request is an outlier for an endpoint that usually answers in 2 ms, but not
+ * for one that takes 2 s.
+ *
+ * <pre>
+ * SpanCollector collector = TailSamplingSpanCollector.builder(httpSpanCollector)
+ *     .keep(LatencyOutlierSampler.create(0.99))
+ *     .keep(TailSampler.rate(0.01f))
+ *     .build();
+ * </pre>
+ *
+ * <p>Durations are those recorded when spans finish, and span names are those chosen by the
+ * instrumentation, such as a {@code SpanNameProvider}. Each name uses a fixed-size histogram, and
+ * up to 256 names are tracked; local roots with other names are never considered outliers. A name
+ * needs 100 durations before its outliers are kept. Its threshold is refreshed every 100 durations,
+ * and older durations weigh less over time, so the threshold follows changes in latency.
+ */
+public final class LatencyOutlierSampler extends TailSampler {
+
+  static final int DEFAULT_MAX_NAMES = 256;
+  static final int MIN_DURATIONS = 100;
+  static final int REFRESH_INTERVAL = 100;
+  static final int DECAY_INTERVAL = 10000;
+
+  /**
+   * Returns a sampler that keeps traces slower than the given quantile for their span name.
+   *
+   * @param quantile between 0 and 1, for example 0.99 to keep the slowest 1% of traces.
+   */
+  public static LatencyOutlierSampler create(double quantile) {
+    return new LatencyOutlierSampler(quantile, DEFAULT_MAX_NAMES);
+  }
+
+  static final class Durations {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final AtomicLong count = new AtomicLong();
+    volatile long threshold = -1;
+  }
+
+  private final double quantile;
+  private final int maxNames;
+  private final ConcurrentMap<String, Durations> durations =
+      new ConcurrentHashMap<String, Durations>();
+  private final AtomicInteger names = new AtomicInteger();
+
+  LatencyOutlierSampler(double quantile, int maxNames) {
+    if (quantile <= 0 || quantile >= 1) {
+      throw new IllegalArgumentException("quantile should be between 0 and 1: was " + quantile);
+    }
+    this.quantile = quantile;
+    this.maxNames = maxNames;
+  }
+
+  @Override
+  public boolean isSampled(Span localRoot, List<Span> children) {
+    String name = localRoot.getName();
+    if (name == null || !localRoot.isSetDuration()) return false;
+    Durations forName = durationsFor(name);
+    if (forName == null) return false;
+
+    long duration = localRoot.getDuration();
+    long threshold = forName.threshold; // decide on the threshold before this duration is counted
+    forName.histogram.record(duration);
+    long count = forName.count.incrementAndGet();
+    if (count % REFRESH_INTERVAL == 0 && count >= MIN_DURATIONS) {
+      if (count % DECAY_INTERVAL == 0) forName.histogram.decay();
+      forName.threshold = forName.histogram.quantile(quantile);
+    }
+    return threshold >= 0 && duration > threshold;
+  }
+
+  /** Returns the current threshold for the span name in microseconds, or -1 if there is none yet. */
+  public long threshold(String spanName) {
+    Durations forName = durations.get(spanName);
+    return forName != null ? forName.threshold : -1;
+  }
+
+  Durations durationsFor(String name) {
+    Durations forName = durations.get(name);
+    if (forName != null || names.get() >= maxNames) return forName;
+    Durations existing = durations.putIfAbsent(name, forName = new Durations());
+    if (existing != null) return existing;
+    names.incrementAndGet();
+    return forName;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyOutlierSampler(" + quantile + ")";
+  }
+}
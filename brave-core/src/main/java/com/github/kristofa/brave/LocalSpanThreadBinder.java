@@ -0,0 +1,49 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.Nullable;
+import com.twitter.zipkin.gen.Span;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Allows binding the current local span to another thread.
+ * <p/>
+ * To be used when work started inside a local span continues in another thread, for example a task
+ * submitted to an executor. After binding, local and client spans started in that thread are
+ * children of the bound local span.
+ *
+ * @see LocalTracer
+ */
+public final class LocalSpanThreadBinder {
+
+    private final LocalSpanState state;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param state local span state, should not be <code>null</code>
+     */
+    public LocalSpanThreadBinder(LocalSpanState state) {
+        this.state = checkNotNull(state, "state");
+    }
+
+    /**
+     * This should be called in the thread that started the local span, before handing off work.
+     *
+     * @see #setCurrentSpan(Span)
+     * @return Returned Span can be bound to a different thread.
+     */
+    @Nullable
+    public Span getCurrentLocalSpan() {
+        return state.getCurrentLocalSpan();
+    }
+
+    /**
+     * Binds given span to current thread.
+     *
+     * @param span Span to bind to current execution thread, or <code>null</code> to clear.
+     */
+    public void setCurrentSpan(@Nullable Span span) {
+        state.setCurrentLocalSpan(span);
+    }
+}
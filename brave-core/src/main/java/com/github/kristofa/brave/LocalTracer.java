@@ -1,13 +1,13 @@
 package com.github.kristofa.brave;
 
 import com.github.kristofa.brave.SpanAndEndpoint.LocalSpanAndEndpoint;
+import com.github.kristofa.brave.internal.Nullable;
+import com.github.kristofa.brave.internal.SpanRecorder;
 import com.google.auto.value.AutoValue;
-import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Endpoint;
 import com.twitter.zipkin.gen.Span;
 import com.twitter.zipkin.gen.zipkinCoreConstants;
 
-import java.util.Random;
-
 import static com.twitter.zipkin.gen.zipkinCoreConstants.LOCAL_COMPONENT;
 
 /**
@@ -30,13 +30,17 @@ import static com.twitter.zipkin.gen.zipkinCoreConstants.LOCAL_COMPONENT;
  * }
  * </pre>
  *
+ * <p/>Local spans nest: a span started while another local span is current becomes its child, and
+ * finishing it makes the enclosing span current again. Spans must be finished in the reverse
+ * order they were started, as in the try/finally blocks above.
+ *
  * @see zipkinCoreConstants#LOCAL_COMPONENT
  */
 @AutoValue
 public abstract class LocalTracer extends AnnotationSubmitter {
 
     static Builder builder() {
-        return new AutoValue_LocalTracer.Builder();
+        return new AutoValue_LocalTracer.Builder().clock(Clock.create());
     }
 
     // visible for testing
@@ -47,7 +51,7 @@ public abstract class LocalTracer extends AnnotationSubmitter {
     @Override
     abstract LocalSpanAndEndpoint spanAndEndpoint();
 
-    abstract Random randomGenerator();
+    abstract IdGenerator idGenerator();
 
     abstract SpanCollector spanCollector();
 
@@ -58,12 +62,14 @@ public abstract class LocalTracer extends AnnotationSubmitter {
 
         abstract Builder spanAndEndpoint(LocalSpanAndEndpoint spanAndEndpoint);
 
-        abstract Builder randomGenerator(Random randomGenerator);
+        abstract Builder idGenerator(IdGenerator idGenerator);
 
         abstract Builder spanCollector(SpanCollector spanCollector);
 
         abstract Builder traceSampler(Sampler sampler);
 
+        abstract Builder clock(Clock clock);
+
         abstract LocalTracer build();
     }
 
@@ -76,20 +82,39 @@ public abstract class LocalTracer extends AnnotationSubmitter {
      * @see zipkinCoreConstants#LOCAL_COMPONENT
      */
     public SpanId startNewSpan(String component, String operation) {
-        SpanId spanId = startNewSpan(component, operation, currentTimeMicroseconds());
+        return startNewSpanAtTick(component, operation, clock().nanoTime());
+    }
+
+    /**
+     * Like {@link #startNewSpan(String, String)}, except the span started at an earlier {@link Clock#nanoTime() tick}.
+     */
+    SpanId startNewSpanAtTick(String component, String operation, long startTick) {
+        SpanId spanId = startNewSpan(component, operation, startTimestamp(startTick));
         if (spanId == null) return null;
-        spanAndEndpoint().span().startTick = System.nanoTime(); // embezzle start tick into an internal field.
+        spanAndEndpoint().span().startTick = startTick; // embezzle start tick into an internal field.
         return spanId;
     }
 
-    private SpanId getNewSpanId() {
-        Span currentServerSpan = spanAndEndpoint().state().getCurrentServerSpan().getSpan();
-        long newSpanId = randomGenerator().nextLong();
-        if (currentServerSpan == null) {
+    @Override
+    Span localRootSpan() {
+        ServerSpan serverSpan = spanAndEndpoint().state().getCurrentServerSpan();
+        Span root = serverSpan != null ? serverSpan.getSpan() : null;
+        return root != null ? root : spanAndEndpoint().state().getCurrentLocalSpan();
+    }
+
+    private SpanId getNewSpanId(Span parentSpan) {
+        if (parentSpan == null) {
+            ServerSpan serverSpan = spanAndEndpoint().state().getCurrentServerSpan();
+            if (serverSpan != null) {
+                parentSpan = serverSpan.getSpan();
+            }
+        }
+        long newSpanId = idGenerator().nextId();
+        if (parentSpan == null) {
             return SpanId.create(newSpanId, newSpanId, null);
         }
 
-        return SpanId.create(currentServerSpan.getTrace_id(), newSpanId, currentServerSpan.getId());
+        return SpanId.create(parentSpan.getTrace_id(), newSpanId, parentSpan.getId());
     }
 
     /**
@@ -103,16 +128,18 @@ public abstract class LocalTracer extends AnnotationSubmitter {
      */
     public SpanId startNewSpan(String component, String operation, long timestamp) {
 
-        Boolean sample = spanAndEndpoint().state().sample();
+        // A current local span was sampled, so its children are as well.
+        Span parentSpan = spanAndEndpoint().state().getCurrentLocalSpan();
+        Boolean sample = parentSpan != null ? Boolean.TRUE : spanAndEndpoint().state().sample();
         if (Boolean.FALSE.equals(sample)) {
             spanAndEndpoint().state().setCurrentLocalSpan(null);
             return null;
         }
 
-        SpanId newSpanId = getNewSpanId();
+        SpanId newSpanId = getNewSpanId(parentSpan);
         if (sample == null) {
             // No sample indication is present.
-            if (!traceSampler().isSampled(newSpanId.getTraceId())) {
+            if (!traceSampler().isSampled(newSpanId.getTraceId(), operation)) {
                 spanAndEndpoint().state().setCurrentLocalSpan(null);
                 return null;
             }
@@ -126,44 +153,87 @@ public abstract class LocalTracer extends AnnotationSubmitter {
         }
         newSpan.setName(operation);
         newSpan.setTimestamp(timestamp);
-        newSpan.addToBinary_annotations(
-            new BinaryAnnotation(LOCAL_COMPONENT, component, spanAndEndpoint().endpoint()));
+        SpanRecorder.of(newSpan).tag(LOCAL_COMPONENT, component, spanAndEndpoint().endpoint());
+        newSpan.localParent = parentSpan;
         spanAndEndpoint().state().setCurrentLocalSpan(newSpan);
         return newSpanId;
     }
 
+    /**
+     * Starts a new local span as a child of the given context, instead of the state bound to the current thread.
+     *
+     * @param parent Context of the parent span, such as {@link SpanHandle#context()}. When it has no span id, a new
+     *               trace is started.
+     * @param component {@link zipkinCoreConstants#LOCAL_COMPONENT component} responsible for the operation
+     * @param operation name of the operation that's begun
+     * @return the new span, or <code>null</code> if one wasn't started due to sampling policy.
+     * @see SpanHandle
+     */
+    @Nullable
+    public SpanHandle startNewSpan(TraceData parent, String component, String operation) {
+        long startTick = clock().nanoTime();
+        SpanId newSpanId = SpanHandle.nextSpanId(parent, operation, idGenerator(), traceSampler());
+        if (newSpanId == null) return null;
+
+        Span newSpan = SpanHandle.newSpan(newSpanId, operation);
+        newSpan.setTimestamp(clock().currentTimeMicroseconds());
+        newSpan.startTick = startTick;
+        Endpoint endpoint = spanAndEndpoint().endpoint(); // as for spans bound to the thread
+        SpanRecorder.of(newSpan).tag(LOCAL_COMPONENT, component, endpoint);
+        return SpanHandle.create(newSpan, endpoint, clock());
+    }
+
     /**
      * Completes the span, assigning the most precise duration possible.
      */
     public void finishSpan() {
-        long endTick = System.nanoTime();
-
         Span span = spanAndEndpoint().span();
         if (span == null) return;
 
+        finishSpan(duration(span));
+    }
+
+    /**
+     * Like {@link #finishSpan()}, except for a span started with {@link #startNewSpan(TraceData, String, String)}.
+     *
+     * @param span span to finish, or <code>null</code> if it wasn't started due to sampling policy.
+     */
+    public void finishSpan(@Nullable SpanHandle span) {
+        if (span == null) return;
+
+        Span finished = span.spanAndEndpoint().span();
+        collect(finished, duration(finished));
+    }
+
+    private long duration(Span span) {
+        long endTick = clock().nanoTime();
         Long startTick = span.startTick;
-        final long duration;
         if (startTick != null) {
-            duration = (endTick - startTick) / 1000;
-        } else {
-            duration = currentTimeMicroseconds() - span.getTimestamp();
+            return (endTick - startTick) / 1000;
         }
-        finishSpan(duration);
+        return currentTimeMicroseconds() - span.getTimestamp();
     }
 
     /**
-     * Completes the span, which took {@code duration} microseconds.
+     * Completes the span, which took {@code duration} microseconds. The enclosing local span, if
+     * any, becomes current again.
      */
     public void finishSpan(long duration) {
         Span span = spanAndEndpoint().span();
         if (span == null) return;
 
-        synchronized (span) {
-            span.setDuration(duration);
-            spanCollector().collect(span);
-        }
+        Span parentSpan = span.localParent;
+        span.localParent = null; // don't retain the parent while the span is collected
+        collect(span, duration);
+
+        spanAndEndpoint().state().setCurrentLocalSpan(parentSpan);
+    }
 
-        spanAndEndpoint().state().setCurrentLocalSpan(null);
+    private void collect(Span span, long duration) {
+        span.setDuration(duration);
+        SpanRecorder recorder = span.recorder;
+        if (recorder != null) recorder.flushTo(span); // publishes annotations recorded by any thread
+        spanCollector().collect(span);
     }
 
     LocalTracer() {
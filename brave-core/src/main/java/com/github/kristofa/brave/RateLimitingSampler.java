@@ -0,0 +1,55 @@
+package com.github.kristofa.brave;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples at most a fixed number of new traces per second, regardless of traffic. At low traffic, every trace is
+ * sampled.
+ *
+ * <p>The budget is a per-second counter, reset by the first caller after each second elapses. Checking the budget
+ * doesn't lock, and once it is used up, callers only read the counter until the next second. This keeps the cost
+ * flat when many threads start traces at once.
+ */
+public final class RateLimitingSampler extends Sampler {
+
+  static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Returns a sampler that samples up to the given number of traces per second.
+   *
+   * @param tracesPerSecond maximum new traces per second. Zero means no traces are sampled.
+   */
+  public static Sampler create(int tracesPerSecond) {
+    return new RateLimitingSampler(tracesPerSecond, Clock.create());
+  }
+
+  private final int tracesPerSecond;
+  private final Clock clock;
+  private final AtomicInteger usage = new AtomicInteger();
+  private final AtomicLong nextReset;
+
+  RateLimitingSampler(int tracesPerSecond, Clock clock) {
+    if (tracesPerSecond < 0) throw new IllegalArgumentException("tracesPerSecond < 0");
+    this.tracesPerSecond = tracesPerSecond;
+    this.clock = clock;
+    this.nextReset = new AtomicLong(clock.nanoTime() + NANOS_PER_SECOND);
+  }
+
+  @Override
+  public boolean isSampled(long traceId) {
+    long now = clock.nanoTime();
+    long reset = nextReset.get();
+    if (now - reset >= 0 && nextReset.compareAndSet(reset, now + NANOS_PER_SECOND)) {
+      usage.set(0);
+    }
+    if (usage.get() >= tracesPerSecond) return false; // read-only once the budget is used
+    return usage.incrementAndGet() <= tracesPerSecond;
+  }
+
+  @Override
+  public String toString() {
+    return "RateLimitingSampler(" + tracesPerSecond + ")";
+  }
+}
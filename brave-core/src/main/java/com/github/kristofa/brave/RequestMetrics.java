@@ -0,0 +1,182 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.LatencyHistogram;
+import com.github.kristofa.brave.internal.Nullable;
+import com.twitter.zipkin.gen.Span;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Request rate, errors and durations per span name, for all server and client requests, whether
+ * sampled or not. Configure it with {@link Brave.Builder#requestMetrics(RequestMetrics)}, and read
+ * it with {@link #serverRequests()} and {@link #clientRequests()}, for example from a metrics
+ * reporter.
+ *
+ * <p>Requests are counted by the interceptors of {@link Brave} when they start. A request is an
+ * error when its response annotations include {@code http.responsecode}, which http adapters only
+ * add for responses outside 2xx, or {@code error}. Responses may be handled on another thread than
+ * the request, as long as the span state is carried there, for example with {@link
+ * ServerSpanThreadBinder}. For sampled requests, the span is read when the response is handled,
+ * and the duration is the one of the span, so time is read once. Unsampled requests have no span:
+ * the interceptors keep their start time in a holder reused per thread, so their errors and
+ * durations are recorded when the response is handled on the thread that started the request.
+ *
+ * <p>Counting a request costs a few atomic increments. Each span name uses a fixed-size histogram.
+ * Up to 256 span names are counted separately, further names are counted together as {@link
+ * #OTHER}.
+ */
+public final class RequestMetrics {
+
+  static final int DEFAULT_MAX_NAMES = 256;
+
+  /** Span name under which requests are counted once the maximum number of names is reached. */
+  public static final String OTHER = "other";
+
+  public static RequestMetrics create() {
+    return new RequestMetrics(DEFAULT_MAX_NAMES, Clock.create());
+  }
+
+  /** Counts of requests with the same span name, updated as requests start and complete. */
+  public static final class Stats {
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong errors = new AtomicLong();
+    final LatencyHistogram durations = new LatencyHistogram();
+
+    Stats() {
+    }
+
+    /** Returns the number of started requests. */
+    public long requests() {
+      return requests.get();
+    }
+
+    /** Returns the number of completed requests that failed. */
+    public long errors() {
+      return errors.get();
+    }
+
+    /**
+     * Returns the duration in microseconds at or below which the given fraction of requests
+     * completed, or -1 if none did. The result is within 12.5% of the exact quantile.
+     *
+     * @param quantile between 0 and 1, for example 0.99 for the 99th percentile.
+     */
+    public long durationQuantile(double quantile) {
+      return durations.quantile(quantile);
+    }
+
+    void finished(long durationMicros, boolean error) {
+      if (durationMicros >= 0) durations.record(durationMicros);
+      if (error) errors.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+      return "Stats{requests=" + requests + ", errors=" + errors + "}";
+    }
+  }
+
+  final ConcurrentMap<String, Stats> server = new ConcurrentHashMap<String, Stats>();
+  final ConcurrentMap<String, Stats> client = new ConcurrentHashMap<String, Stats>();
+  final AtomicInteger serverNames = new AtomicInteger();
+  final AtomicInteger clientNames = new AtomicInteger();
+  final ThreadLocal<Unsampled> serverUnsampled = new UnsampledThreadLocal();
+  final ThreadLocal<Unsampled> clientUnsampled = new UnsampledThreadLocal();
+  final int maxNames;
+  final Clock clock;
+
+  RequestMetrics(int maxNames, Clock clock) {
+    this.maxNames = maxNames;
+    this.clock = checkNotNull(clock, "Null clock");
+  }
+
+  /** Returns a live view of server request counts, keyed by span name. */
+  public Map<String, Stats> serverRequests() {
+    return Collections.unmodifiableMap(server);
+  }
+
+  /** Returns a live view of client request counts, keyed by span name. */
+  public Map<String, Stats> clientRequests() {
+    return Collections.unmodifiableMap(client);
+  }
+
+  /** @param span span of the request, or null if unsampled. */
+  void serverRequestStarted(String spanName, @Nullable Span span) {
+    started(serverUnsampled.get(), stats(server, serverNames, spanName), span);
+  }
+
+  /** @param span span of the request, read before the tracer clears it, or null if unsampled. */
+  void serverRequestFinished(@Nullable Span span, boolean error) {
+    finished(serverUnsampled.get(), server, serverNames, span, error);
+  }
+
+  /** @param span span of the request, or null if unsampled. */
+  void clientRequestStarted(String spanName, @Nullable Span span) {
+    started(clientUnsampled.get(), stats(client, clientNames, spanName), span);
+  }
+
+  /** @param span span of the request, read before the tracer clears it, or null if unsampled. */
+  void clientRequestFinished(@Nullable Span span, boolean error) {
+    finished(clientUnsampled.get(), client, clientNames, span, error);
+  }
+
+  void started(Unsampled unsampled, Stats stats, @Nullable Span span) {
+    stats.requests.incrementAndGet();
+    if (span != null) {
+      unsampled.stats = null; // the span carries the request to its response
+    } else {
+      unsampled.stats = stats;
+      unsampled.startTick = clock.nanoTime();
+    }
+  }
+
+  void finished(Unsampled unsampled, ConcurrentMap<String, Stats> statsByName, AtomicInteger names,
+      @Nullable Span span, boolean error) {
+    if (span != null) {
+      long duration = span.isSetDuration() ? span.getDuration() : -1; // -1 if not finished
+      stats(statsByName, names, span.getName()).finished(duration, error);
+    } else if (unsampled.stats != null) {
+      unsampled.stats.finished((clock.nanoTime() - unsampled.startTick) / 1000, error);
+      unsampled.stats = null;
+    } // else the request wasn't started on this thread
+  }
+
+  /** Start of the last unsampled request of a thread, reused across requests. */
+  static final class Unsampled {
+    Stats stats;
+    long startTick;
+  }
+
+  static final class UnsampledThreadLocal extends ThreadLocal<Unsampled> {
+    @Override
+    protected Unsampled initialValue() {
+      return new Unsampled();
+    }
+  }
+
+  Stats stats(ConcurrentMap<String, Stats> statsByName, AtomicInteger names, String spanName) {
+    if (spanName == null) spanName = OTHER;
+    Stats stats = statsByName.get(spanName);
+    if (stats != null) return stats;
+    if (names.get() >= maxNames) spanName = OTHER;
+    Stats existing = statsByName.putIfAbsent(spanName, stats = new Stats());
+    if (existing != null) return existing;
+    names.incrementAndGet();
+    return stats;
+  }
+
+  /** Returns true if any of the annotations marks the request as failed. */
+  static boolean isError(Iterable<KeyValueAnnotation> annotations) {
+    for (KeyValueAnnotation annotation : annotations) {
+      String key = annotation.getKey();
+      if ("http.responsecode".equals(key) || "error".equals(key)) return true;
+    }
+    return false;
+  }
+}
@@ -14,6 +14,18 @@ public abstract class Sampler {
   /** Returns true if the trace ID should be recorded. */
   public abstract boolean isSampled(long traceId);
 
+  /**
+   * Like {@link #isSampled(long)}, except the decision can also depend on the name of the span
+   * that starts the trace, such as the name of the server request. Tracers call this method.
+   *
+   * <p>The default implementation ignores the span name.
+   *
+   * @see SpanNameSampler
+   */
+  public boolean isSampled(long traceId, String spanName) {
+    return isSampled(traceId);
+  }
+
   /**
    * Returns a sampler, given a rate expressed as a percentage.
    *
@@ -0,0 +1,189 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.EndpointCache;
+import com.github.kristofa.brave.internal.Nullable;
+import com.github.kristofa.brave.internal.Util;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+
+/**
+ * {@link ServerClientAndLocalSpanState} implementation that binds an immutable {@link Context} to the current thread.
+ *
+ * <p/>Each change to the trace state binds a new context. As contexts are never modified, a task can
+ * {@link #currentContext() capture} the caller's context as a single reference, and {@link #bind(Context) bind} it
+ * in another thread without copying. {@link #wrap(Runnable)} does this for a task.
+ *
+ * <p/>When a thread's context becomes empty, for example after the server span is cleared or a bound context is
+ * restored, its ThreadLocal entry is removed. A thread that runs many short-lived requests or tasks keeps nothing
+ * between them.
+ */
+public final class ScopedServerClientAndLocalSpanState implements ServerClientAndLocalSpanState {
+
+    /**
+     * Immutable trace state of a request: its server span, current client and local spans, and the service name of
+     * the current client span.
+     */
+    public static final class Context {
+
+        /** Context with no trace state. */
+        public static final Context EMPTY = new Context(ServerSpan.EMPTY, null, null, null);
+
+        final ServerSpan serverSpan;
+        final Span clientSpan;
+        final String clientServiceName;
+        final Span localSpan;
+
+        Context(ServerSpan serverSpan, Span clientSpan, String clientServiceName, Span localSpan) {
+            this.serverSpan = serverSpan;
+            this.clientSpan = clientSpan;
+            this.clientServiceName = clientServiceName;
+            this.localSpan = localSpan;
+        }
+
+        static Context create(ServerSpan serverSpan, Span clientSpan, String clientServiceName, Span localSpan) {
+            if (serverSpan == ServerSpan.EMPTY && clientSpan == null && clientServiceName == null && localSpan == null) {
+                return EMPTY;
+            }
+            return new Context(serverSpan, clientSpan, clientServiceName, localSpan);
+        }
+    }
+
+    private final static ThreadLocal<Context> currentContext = new ThreadLocal<Context>();
+
+    private final Endpoint endpoint;
+    private final EndpointCache clientEndpoints = new EndpointCache();
+
+    /**
+     * Constructor
+     *
+     * @param ip Int representation of ipv4 address.
+     * @param port port on which current process is listening.
+     * @param serviceName Name of the local service being traced. Should be lowercase and not <code>null</code> or empty.
+     */
+    public ScopedServerClientAndLocalSpanState(int ip, int port, String serviceName) {
+        Util.checkNotBlank(serviceName, "Service name must be specified.");
+        endpoint = new Endpoint(ip, (short) port, serviceName);
+    }
+
+    /**
+     * Returns the context bound to the current thread. This doesn't allocate.
+     */
+    public Context currentContext() {
+        Context context = currentContext.get();
+        return context != null ? context : Context.EMPTY;
+    }
+
+    /**
+     * Binds the given context to the current thread.
+     *
+     * @param context context to bind, or <code>null</code> to clear trace state.
+     * @return the context that was bound before, to restore when the scope ends.
+     */
+    public Context bind(@Nullable Context context) {
+        Context previous = currentContext();
+        if (context == null || context == Context.EMPTY) {
+            currentContext.remove();
+        } else {
+            currentContext.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns a task that runs the given one in the current context, restoring the context of the thread that runs
+     * it when it completes.
+     */
+    public Runnable wrap(final Runnable runnable) {
+        final Context context = currentContext();
+        return new Runnable() {
+            @Override
+            public void run() {
+                Context previous = bind(context);
+                try {
+                    runnable.run();
+                } finally {
+                    bind(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServerSpan getCurrentServerSpan() {
+        return currentContext().serverSpan;
+    }
+
+    @Override
+    public Endpoint getServerEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCurrentServerSpan(final ServerSpan span) {
+        Context c = currentContext();
+        ServerSpan serverSpan = span != null ? span : ServerSpan.EMPTY;
+        if (c.serverSpan == serverSpan) return;
+        bind(Context.create(serverSpan, c.clientSpan, c.clientServiceName, c.localSpan));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Endpoint getClientEndpoint() {
+        final String serviceName = currentContext().clientServiceName;
+        if (serviceName == null) {
+            return endpoint;
+        } else {
+            return clientEndpoints.get(endpoint.ipv4, endpoint.port, serviceName);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Span getCurrentClientSpan() {
+        return currentContext().clientSpan;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCurrentClientSpan(final Span span) {
+        Context c = currentContext();
+        if (c.clientSpan == span) return;
+        bind(Context.create(c.serverSpan, span, c.clientServiceName, c.localSpan));
+    }
+
+    @Override
+    public void setCurrentClientServiceName(final String serviceName) {
+        Context c = currentContext();
+        if (c.clientServiceName == serviceName) return;
+        bind(Context.create(c.serverSpan, c.clientSpan, serviceName, c.localSpan));
+    }
+
+    @Override
+    public Boolean sample() {
+        return currentContext().serverSpan.getSample();
+    }
+
+    @Override
+    public Span getCurrentLocalSpan() {
+        return currentContext().localSpan;
+    }
+
+    @Override
+    public void setCurrentLocalSpan(Span span) {
+        Context c = currentContext();
+        if (c.localSpan == span) return;
+        bind(Context.create(c.serverSpan, c.clientSpan, c.clientServiceName, span));
+    }
+}
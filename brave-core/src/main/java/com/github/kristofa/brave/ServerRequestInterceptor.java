@@ -1,5 +1,6 @@
 package com.github.kristofa.brave;
 
+import com.github.kristofa.brave.internal.Nullable;
 import java.util.logging.Logger;
 
 import static com.github.kristofa.brave.internal.Util.checkNotNull;
@@ -18,9 +19,18 @@ public class ServerRequestInterceptor {
     private final static Logger LOGGER = Logger.getLogger(ServerRequestInterceptor.class.getName());
 
     private final ServerTracer serverTracer;
+    private final RequestMetrics metrics;
 
     public ServerRequestInterceptor(ServerTracer serverTracer) {
+        this(serverTracer, null);
+    }
+
+    /**
+     * @param metrics Counts all requests, sampled or not, or <code>null</code> to only trace them.
+     */
+    public ServerRequestInterceptor(ServerTracer serverTracer, @Nullable RequestMetrics metrics) {
         this.serverTracer = checkNotNull(serverTracer, "Null serverTracer");
+        this.metrics = metrics;
     }
 
     /**
@@ -33,18 +43,23 @@ public class ServerRequestInterceptor {
         final TraceData traceData = adapter.getTraceData();
 
         Boolean sample = traceData.getSample();
+        String spanName = null;
         if (sample != null && Boolean.FALSE.equals(sample)) {
             serverTracer.setStateNoTracing();
             LOGGER.fine("Received indication that we should NOT trace.");
         } else {
+            spanName = adapter.getSpanName();
             if (traceData.getSpanId() != null) {
                 LOGGER.fine("Received span information as part of request.");
                 SpanId spanId = traceData.getSpanId();
                 serverTracer.setStateCurrentTrace(spanId.getTraceId(), spanId.getSpanId(),
-                        spanId.getParentSpanId(), adapter.getSpanName());
+                        spanId.getParentSpanId(), spanName);
+            } else if (Boolean.TRUE.equals(sample) && traceData.isLocalDecision()) {
+                LOGGER.fine("Decided locally that we should trace, without span state.");
+                serverTracer.setStateSampled(spanName);
             } else {
                 LOGGER.fine("Received no span state.");
-                serverTracer.setStateUnknown(adapter.getSpanName());
+                serverTracer.setStateUnknown(spanName);
             }
             serverTracer.setServerReceived();
             for(KeyValueAnnotation annotation : adapter.requestAnnotations())
@@ -52,5 +67,9 @@ public class ServerRequestInterceptor {
                 serverTracer.submitBinaryAnnotation(annotation.getKey(), annotation.getValue());
             }
         }
+        if (metrics != null) {
+            if (spanName == null) spanName = adapter.getSpanName();
+            metrics.serverRequestStarted(spanName, serverTracer.spanAndEndpoint().span());
+        }
     }
 }
@@ -1,5 +1,8 @@
 package com.github.kristofa.brave;
 
+import com.github.kristofa.brave.internal.Nullable;
+import com.twitter.zipkin.gen.Span;
+import java.util.Collection;
 import java.util.logging.Logger;
 
 import static com.github.kristofa.brave.internal.Util.checkNotNull;
@@ -16,23 +19,37 @@ public class ServerResponseInterceptor {
     private final static Logger LOGGER = Logger.getLogger(ServerResponseInterceptor.class.getName());
 
     private final ServerTracer serverTracer;
+    private final RequestMetrics metrics;
 
     public ServerResponseInterceptor(ServerTracer serverTracer) {
+        this(serverTracer, null);
+    }
+
+    /**
+     * @param metrics Counts all requests, sampled or not, or <code>null</code> to only trace them.
+     */
+    public ServerResponseInterceptor(ServerTracer serverTracer, @Nullable RequestMetrics metrics) {
         this.serverTracer = checkNotNull(serverTracer, "Null serverTracer");
+        this.metrics = metrics;
     }
 
     public void handle(ServerResponseAdapter adapter) {
         // We can submit this in any case. When server state is not set or
         // we should not trace this request nothing will happen.
         LOGGER.fine("Sending server send.");
+        boolean error = false;
+        Span span = metrics != null ? serverTracer.spanAndEndpoint().span() : null;
         try {
-            for(KeyValueAnnotation annotation : adapter.responseAnnotations())
+            Collection<KeyValueAnnotation> annotations = adapter.responseAnnotations();
+            for(KeyValueAnnotation annotation : annotations)
             {
                 serverTracer.submitBinaryAnnotation(annotation.getKey(), annotation.getValue());
             }
+            if (metrics != null) error = RequestMetrics.isError(annotations);
             serverTracer.setServerSend();
         } finally {
             serverTracer.clearCurrentSpan();
+            if (metrics != null) metrics.serverRequestFinished(span, error);
         }
     }
 }
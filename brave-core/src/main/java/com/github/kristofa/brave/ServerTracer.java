@@ -30,12 +30,12 @@ import static com.github.kristofa.brave.internal.Util.checkNotBlank;
 public abstract class ServerTracer extends AnnotationSubmitter {
 
     public static Builder builder() {
-        return new AutoValue_ServerTracer.Builder();
+        return new AutoValue_ServerTracer.Builder().clock(Clock.create());
     }
 
     @Override
     abstract ServerSpanAndEndpoint spanAndEndpoint();
-    abstract Random randomGenerator();
+    abstract IdGenerator idGenerator();
     abstract SpanCollector spanCollector();
     abstract Sampler traceSampler();
 
@@ -51,12 +51,26 @@ public abstract class ServerTracer extends AnnotationSubmitter {
         /**
          * Used to generate new trace/span ids.
          */
-        public abstract Builder randomGenerator(Random randomGenerator);
+        public abstract Builder idGenerator(IdGenerator idGenerator);
+
+        /**
+         * @deprecated use {@link #idGenerator(IdGenerator)}, as all callers of a shared {@link Random}
+         * contend on its seed.
+         */
+        @Deprecated
+        public Builder randomGenerator(Random randomGenerator) {
+            return idGenerator(IdGenerator.create(randomGenerator));
+        }
 
         public abstract Builder spanCollector(SpanCollector spanCollector);
 
         public abstract Builder traceSampler(Sampler sampler);
 
+        /**
+         * Used for span timestamps and durations. Defaults to {@link Clock#create()}.
+         */
+        public abstract Builder clock(Clock clock);
+
         public abstract ServerTracer build();
     }
 
@@ -103,8 +117,8 @@ public abstract class ServerTracer extends AnnotationSubmitter {
      */
     public void setStateUnknown(String spanName) {
         checkNotBlank(spanName, "Null or blank span name");
-        long newTraceId = randomGenerator().nextLong();
-        if (!traceSampler().isSampled(newTraceId)) {
+        long newTraceId = idGenerator().nextId();
+        if (!traceSampler().isSampled(newTraceId, spanName)) {
             spanAndEndpoint().state().setCurrentServerSpan(ServerSpan.NOT_SAMPLED);
             return;
         }
@@ -112,6 +126,17 @@ public abstract class ServerTracer extends AnnotationSubmitter {
             ServerSpan.create(newTraceId, newTraceId, null, spanName));
     }
 
+    /**
+     * Like {@link #setStateUnknown(String)}, except the request was already decided to be sampled, for example by the
+     * rules of an http sampler. So this starts a new trace without consulting the {@link Sampler} of the tracer.
+     */
+    void setStateSampled(String spanName) {
+        checkNotBlank(spanName, "Null or blank span name");
+        long newTraceId = idGenerator().nextId();
+        spanAndEndpoint().state().setCurrentServerSpan(
+            ServerSpan.create(newTraceId, newTraceId, null, spanName));
+    }
+
     /**
      * Sets server received event for current request. This should be done after setting state using one of 3 methods
      * {@link ServerTracer#setStateCurrentTrace(long, long, Long, String)} , {@link ServerTracer#setStateNoTracing()} or
@@ -144,6 +169,50 @@ public abstract class ServerTracer extends AnnotationSubmitter {
         }
     }
 
+    /**
+     * Starts a server span for the given incoming trace data, without binding it to the current thread. This is the
+     * explicit variant of setting state with {@link #setStateCurrentTrace(long, long, Long, String)},
+     * {@link #setStateNoTracing()} or {@link #setStateUnknown(String)}.
+     *
+     * @param traceData Trace data of the incoming request.
+     * @param spanName Name of the span, should not be empty or <code>null</code>.
+     * @return the new span, or <code>null</code> if the request shouldn't be traced.
+     * @see SpanHandle
+     */
+    @Nullable
+    public SpanHandle startSpan(TraceData traceData, String spanName) {
+        checkNotBlank(spanName, "Null or blank span name");
+        Boolean sample = traceData.getSample();
+        if (Boolean.FALSE.equals(sample)) return null;
+
+        SpanId spanId = traceData.getSpanId();
+        if (spanId == null) {
+            long newTraceId = idGenerator().nextId();
+            boolean sampled = Boolean.TRUE.equals(sample) && traceData.isLocalDecision();
+            if (!sampled && !traceSampler().isSampled(newTraceId, spanName)) return null;
+            spanId = SpanId.create(newTraceId, newTraceId, null);
+        }
+        return SpanHandle.create(SpanHandle.newSpan(spanId, spanName), spanAndEndpoint().endpoint(), clock());
+    }
+
+    /**
+     * Like {@link #setServerReceived()}, except for a span started with {@link #startSpan(TraceData, String)}.
+     *
+     * @param span span to annotate, or <code>null</code> if the request isn't traced.
+     */
+    public void setServerReceived(@Nullable SpanHandle span) {
+        if (span != null) span.submitStartAnnotation(zipkinCoreConstants.SERVER_RECV);
+    }
+
+    /**
+     * Like {@link #setServerSend()}, except for a span started with {@link #startSpan(TraceData, String)}.
+     *
+     * @param span span to finish, or <code>null</code> if the request isn't traced.
+     */
+    public void setServerSend(@Nullable SpanHandle span) {
+        if (span != null) span.submitEndAnnotation(zipkinCoreConstants.SERVER_SEND, spanCollector());
+    }
+
     ServerTracer() {
     }
 }
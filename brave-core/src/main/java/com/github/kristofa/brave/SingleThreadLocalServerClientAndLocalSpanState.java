@@ -0,0 +1,120 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.EndpointCache;
+import com.github.kristofa.brave.internal.Util;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+
+/**
+ * {@link ServerClientAndLocalSpanState} implementation that keeps all trace state of the current
+ * thread in one object, behind a single ThreadLocal variable.
+ *
+ * <p/>{@link ThreadLocalServerClientAndLocalSpanState} keeps the server span, client span, client
+ * service name and local span in separate ThreadLocal variables, so a traced client request
+ * inside a server request looks up several of them, several times. Here, each call costs one
+ * lookup, and clearing state resets fields of the per-thread object instead of removing and
+ * re-creating ThreadLocal entries.
+ */
+public final class SingleThreadLocalServerClientAndLocalSpanState
+    implements ServerClientAndLocalSpanState {
+
+    static final class Context {
+        ServerSpan serverSpan = ServerSpan.EMPTY;
+        Span clientSpan;
+        String clientServiceName;
+        Span localSpan;
+    }
+
+    private final static ThreadLocal<Context> currentContext = new ThreadLocal<Context>() {
+
+        @Override
+        protected Context initialValue() {
+            return new Context();
+        }
+    };
+
+    private final Endpoint endpoint;
+    private final EndpointCache clientEndpoints = new EndpointCache();
+
+    /**
+     * Constructor
+     *
+     * @param ip Int representation of ipv4 address.
+     * @param port port on which current process is listening.
+     * @param serviceName Name of the local service being traced. Should be lowercase and not <code>null</code> or empty.
+     */
+    public SingleThreadLocalServerClientAndLocalSpanState(int ip, int port, String serviceName) {
+        Util.checkNotBlank(serviceName, "Service name must be specified.");
+        endpoint = new Endpoint(ip, (short) port, serviceName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServerSpan getCurrentServerSpan() {
+        return currentContext.get().serverSpan;
+    }
+
+    @Override
+    public Endpoint getServerEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCurrentServerSpan(final ServerSpan span) {
+        currentContext.get().serverSpan = span != null ? span : ServerSpan.EMPTY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Endpoint getClientEndpoint() {
+        final String serviceName = currentContext.get().clientServiceName;
+        if (serviceName == null) {
+            return endpoint;
+        } else {
+            return clientEndpoints.get(endpoint.ipv4, endpoint.port, serviceName);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Span getCurrentClientSpan() {
+        return currentContext.get().clientSpan;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCurrentClientSpan(final Span span) {
+        currentContext.get().clientSpan = span;
+    }
+
+    @Override
+    public void setCurrentClientServiceName(final String serviceName) {
+        currentContext.get().clientServiceName = serviceName;
+    }
+
+    @Override
+    public Boolean sample() {
+        return currentContext.get().serverSpan.getSample();
+    }
+
+    @Override
+    public Span getCurrentLocalSpan() {
+        return currentContext.get().localSpan;
+    }
+
+    @Override
+    public void setCurrentLocalSpan(Span span) {
+        currentContext.get().localSpan = span;
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.SpanAndEndpoint.StaticSpanAndEndpoint;
+import com.github.kristofa.brave.internal.Nullable;
+import com.google.auto.value.AutoValue;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+
+/**
+ * A span started from an explicit parent context, instead of the state bound to the current thread.
+ *
+ * <p/>Async code can pass a handle, or the {@link #context() context} for its children, from callback to callback
+ * without binding it to threads. Annotations submitted to the handle are added to its span, whichever thread submits
+ * them. Tracers finish the span, for example with {@link ClientTracer#setClientReceived(SpanHandle)}.
+ *
+ * <pre>
+ * SpanHandle span = clientTracer.startNewSpan(parentContext, "get");
+ * clientTracer.setClientSent(span);
+ * // later, in the response callback on any thread
+ * clientTracer.setClientReceived(span);
+ * </pre>
+ *
+ * @see ServerTracer#startSpan(TraceData, String)
+ * @see ClientTracer#startNewSpan(TraceData, String)
+ * @see LocalTracer#startNewSpan(TraceData, String, String)
+ */
+@AutoValue
+public abstract class SpanHandle extends AnnotationSubmitter {
+
+    static SpanHandle create(Span span, Endpoint endpoint, Clock clock) {
+        return new AutoValue_SpanHandle(clock, StaticSpanAndEndpoint.create(span, endpoint));
+    }
+
+    @Override
+    abstract StaticSpanAndEndpoint spanAndEndpoint();
+
+    /**
+     * Identifies this span.
+     */
+    public SpanId spanId() {
+        Span span = spanAndEndpoint().span();
+        return SpanId.create(span.getTrace_id(), span.getId(), span.isSetParent_id() ? span.getParent_id() : null);
+    }
+
+    /**
+     * Returns the context to start children of this span with. Children are sampled, as this span is.
+     */
+    public TraceData context() {
+        return TraceData.builder().spanId(spanId()).sample(true).build();
+    }
+
+    /**
+     * Returns the id of a new child of the given context, or null if the sampling decision of the context, or the
+     * sampler when the context has none, says not to trace it.
+     */
+    @Nullable
+    static SpanId nextSpanId(TraceData parent, String name, IdGenerator idGenerator, Sampler sampler) {
+        Boolean sample = parent.getSample();
+        if (Boolean.FALSE.equals(sample)) return null;
+
+        SpanId parentId = parent.getSpanId();
+        long newSpanId = idGenerator.nextId();
+        SpanId spanId = parentId == null
+            ? SpanId.create(newSpanId, newSpanId, null)
+            : SpanId.create(parentId.getTraceId(), newSpanId, parentId.getSpanId());
+        if (sample == null && !sampler.isSampled(spanId.getTraceId(), name)) return null;
+        return spanId;
+    }
+
+    static Span newSpan(SpanId spanId, String name) {
+        Span span = new Span();
+        span.setId(spanId.getSpanId());
+        span.setTrace_id(spanId.getTraceId());
+        if (spanId.getParentSpanId() != null) {
+            span.setParent_id(spanId.getParentSpanId());
+        }
+        span.setName(name);
+        return span;
+    }
+
+    SpanHandle() {
+    }
+}
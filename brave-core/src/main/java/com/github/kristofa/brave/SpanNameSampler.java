@@ -0,0 +1,112 @@
+package com.github.kristofa.brave;
+
+import com.github.kristofa.brave.internal.PrefixTrie;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.github.kristofa.brave.internal.Util.checkNotBlank;
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Samples traces at a rate chosen by the name of the span that starts them. For example, health
+ * checks can be dropped while every checkout is traced:
+ *
+ * <pre>
+ * Sampler sampler = SpanNameSampler.builder()
+ *     .addRule("health", 0.0f)
+ *     .addRule("checkout", 1.0f)
+ *     .addRule("search*", 0.01f)
+ *     .build(Sampler.create(0.1f));
+ * </pre>
+ *
+ * <p>A rule ending with {@code *} matches every span name starting with the text before it. When
+ * several rules match, an exact name wins over prefixes, and a longer prefix wins over a shorter
+ * one. Spans without a matching rule, or traces started without a name, use the fallback sampler.
+ *
+ * <p>Rules are compiled once: exact names into a hash lookup, and prefixes into a trie. Either way,
+ * finding the rule of a span costs the same however many rules there are.
+ */
+public final class SpanNameSampler extends Sampler {
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    private final Map<String, Sampler> exactRules = new HashMap<String, Sampler>();
+    private final Map<String, Sampler> prefixRules = new LinkedHashMap<String, Sampler>();
+
+    Builder() {
+    }
+
+    /**
+     * Samples spans matching the given name at a fixed rate.
+     *
+     * @param spanName span name, or a prefix followed by {@code *}
+     * @param rate rate expressed as a percentage, see {@link Sampler#create(float)}
+     */
+    public Builder addRule(String spanName, float rate) {
+      return addRule(spanName, Sampler.create(rate));
+    }
+
+    /**
+     * Samples spans matching the given name with the given sampler, for example a {@link
+     * RateLimitingSampler}.
+     *
+     * @param spanName span name, or a prefix followed by {@code *}
+     */
+    public Builder addRule(String spanName, Sampler sampler) {
+      checkNotBlank(spanName, "Null or blank spanName");
+      checkNotNull(sampler, "Null sampler");
+      if (spanName.endsWith("*")) {
+        prefixRules.put(spanName.substring(0, spanName.length() - 1), sampler);
+      } else {
+        exactRules.put(spanName, sampler);
+      }
+      return this;
+    }
+
+    /**
+     * @param fallback samples traces that match no rule.
+     */
+    public SpanNameSampler build(Sampler fallback) {
+      return new SpanNameSampler(this, checkNotNull(fallback, "Null fallback"));
+    }
+  }
+
+  private final Map<String, Sampler> exactRules;
+  private final PrefixTrie<Sampler> prefixRules;
+  private final Sampler fallback;
+
+  SpanNameSampler(Builder builder, Sampler fallback) {
+    this.exactRules = new HashMap<String, Sampler>(builder.exactRules);
+    this.prefixRules = new PrefixTrie<Sampler>();
+    for (Map.Entry<String, Sampler> rule : builder.prefixRules.entrySet()) {
+      prefixRules.put(rule.getKey(), rule.getValue());
+    }
+    this.fallback = fallback;
+  }
+
+  @Override
+  public boolean isSampled(long traceId) {
+    return fallback.isSampled(traceId);
+  }
+
+  @Override
+  public boolean isSampled(long traceId, String spanName) {
+    return samplerFor(spanName).isSampled(traceId, spanName);
+  }
+
+  Sampler samplerFor(String spanName) {
+    if (spanName == null) return fallback;
+    Sampler sampler = exactRules.get(spanName);
+    if (sampler == null && !prefixRules.isEmpty()) sampler = prefixRules.longestPrefixMatch(spanName);
+    return sampler != null ? sampler : fallback;
+  }
+
+  @Override
+  public String toString() {
+    return "SpanNameSampler(" + exactRules.keySet() + ", " + fallback + ")";
+  }
+}
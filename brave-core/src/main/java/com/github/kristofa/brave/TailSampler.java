@@ -0,0 +1,146 @@
+package com.github.kristofa.brave;
+
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Span;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.kristofa.brave.internal.Util.checkNotBlank;
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Decides whether to keep the spans a process recorded for a trace, once its local root span
+ * finished. Unlike {@link Sampler}, the decision can depend on what happened, such as the duration
+ * of the request or whether it failed.
+ *
+ * @see TailSamplingSpanCollector
+ */
+// abstract for factory-method support on Java language level 7
+public abstract class TailSampler {
+
+  /**
+   * Returns true if the spans of the trace should be kept.
+   *
+   * @param localRoot the finished local root span, such as the server span of a request.
+   * @param children finished spans recorded in the scope of the local root, possibly truncated.
+   */
+  public abstract boolean isSampled(Span localRoot, List<Span> children);
+
+  /** Keeps traces whose local root took at least the given duration. */
+  public static TailSampler durationAtLeast(long duration, TimeUnit unit) {
+    return new DurationAtLeast(unit.toMicros(duration));
+  }
+
+  /**
+   * Keeps traces where any span has a binary annotation with the given key. For example, {@code
+   * http.responsecode} is only added on failed http requests, and {@code error} by instrumentation
+   * that records errors.
+   */
+  public static TailSampler hasBinaryAnnotation(String key) {
+    return new HasBinaryAnnotation(checkNotBlank(key, "Null or blank key"));
+  }
+
+  /**
+   * Keeps a percentage of traces regardless of what happened, deciding on the trace ID like
+   * {@link Sampler#create(float)}.
+   */
+  public static TailSampler rate(float rate) {
+    return new Rate(Sampler.create(rate));
+  }
+
+  /**
+   * Keeps traces that any of the given samplers keeps. All samplers see every trace, as some, like
+   * {@link LatencyOutlierSampler}, learn from the traces they see.
+   */
+  public static TailSampler anyOf(TailSampler... samplers) {
+    for (TailSampler sampler : checkNotNull(samplers, "Null samplers")) {
+      checkNotNull(sampler, "Null sampler");
+    }
+    return new AnyOf(samplers.clone());
+  }
+
+  static final class DurationAtLeast extends TailSampler {
+    final long durationMicros;
+
+    DurationAtLeast(long durationMicros) {
+      this.durationMicros = durationMicros;
+    }
+
+    @Override
+    public boolean isSampled(Span localRoot, List<Span> children) {
+      return localRoot.isSetDuration() && localRoot.getDuration() >= durationMicros;
+    }
+
+    @Override
+    public String toString() {
+      return "DurationAtLeast(" + durationMicros + "us)";
+    }
+  }
+
+  static final class HasBinaryAnnotation extends TailSampler {
+    final String key;
+
+    HasBinaryAnnotation(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public boolean isSampled(Span localRoot, List<Span> children) {
+      if (hasKey(localRoot)) return true;
+      for (int i = 0, length = children.size(); i < length; i++) {
+        if (hasKey(children.get(i))) return true;
+      }
+      return false;
+    }
+
+    boolean hasKey(Span span) {
+      List<BinaryAnnotation> annotations = span.getBinary_annotations();
+      if (annotations == null) return false;
+      for (int i = 0, length = annotations.size(); i < length; i++) {
+        if (key.equals(annotations.get(i).getKey())) return true;
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return "HasBinaryAnnotation(" + key + ")";
+    }
+  }
+
+  static final class Rate extends TailSampler {
+    final Sampler sampler;
+
+    Rate(Sampler sampler) {
+      this.sampler = sampler;
+    }
+
+    @Override
+    public boolean isSampled(Span localRoot, List<Span> children) {
+      return sampler.isSampled(localRoot.getTrace_id());
+    }
+  }
+
+  static final class AnyOf extends TailSampler {
+    final TailSampler[] samplers;
+
+    AnyOf(TailSampler[] samplers) {
+      this.samplers = samplers;
+    }
+
+    @Override
+    public boolean isSampled(Span localRoot, List<Span> children) {
+      boolean sampled = false;
+      for (TailSampler sampler : samplers) {
+        sampled |= sampler.isSampled(localRoot, children);
+      }
+      return sampled;
+    }
+
+    @Override
+    public String toString() {
+      return "AnyOf" + Arrays.toString(samplers);
+    }
+  }
+}
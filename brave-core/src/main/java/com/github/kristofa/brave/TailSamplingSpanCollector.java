@@ -0,0 +1,283 @@
+package com.github.kristofa.brave;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.Span;
+import com.twitter.zipkin.gen.zipkinCoreConstants;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * {@link SpanCollector} that buffers the spans of each trace until its local root span finishes, then passes them to
+ * another collector only if a {@link TailSampler} keeps the trace.
+ * <p/>
+ * This lets you keep slow or failed requests, which a {@link Sampler} can't know about when the request starts. For
+ * this to work, spans must be recorded for all requests, so configure {@link Brave.Builder#traceSampler(Sampler)} to
+ * sample every trace, and add {@link TailSampler#rate(float)} to keep a percentage of the remaining ones:
+ *
+ * <pre>
+ * SpanCollector collector = TailSamplingSpanCollector.builder(httpSpanCollector)
+ *     .keep(TailSampler.durationAtLeast(500, TimeUnit.MILLISECONDS))
+ *     .keep(TailSampler.hasBinaryAnnotation("http.responsecode"))
+ *     .keep(TailSampler.rate(0.01f))
+ *     .build();
+ * </pre>
+ * <p/>
+ * Sampling every trace at the head has a cost beyond this process: the sampled flag, {@code X-B3-Sampled: 1}, is
+ * propagated to every downstream service, which then records and reports every trace, although this process keeps
+ * only a few of them. Only tail sample where downstream services and their collectors can take the full load, or
+ * where there are none.
+ * <p/>
+ * The local root of a trace is the first span of this process in it: a server span, or a span without parent. Its
+ * children usually finish before it. Memory is bounded: each trace has one of {@code maxTraces} slots, chosen by its
+ * id, and a new trace discards the pending one in its slot. At most {@code maxSpansPerTrace} children are buffered per
+ * trace. Children that finish after their local root follow the decision made for it, as long as no other trace took
+ * its slot. Spans discarded to stay within these bounds are counted as dropped by
+ * {@link Builder#metrics(SpanCollectorMetricsHandler)}. Threads collecting spans of different traces don't share a
+ * lock.
+ */
+public final class TailSamplingSpanCollector implements SpanCollector {
+
+    static final int DEFAULT_MAX_TRACES = 1000;
+    static final int DEFAULT_MAX_SPANS_PER_TRACE = 100;
+
+    public static Builder builder(SpanCollector delegate) {
+        return new Builder(delegate);
+    }
+
+    public static final class Builder {
+
+        private final SpanCollector delegate;
+        private final List<TailSampler> samplers = new ArrayList<>();
+        private SpanCollectorMetricsHandler metrics = new EmptySpanCollectorMetricsHandler();
+        private int maxTraces = DEFAULT_MAX_TRACES;
+        private int maxSpansPerTrace = DEFAULT_MAX_SPANS_PER_TRACE;
+
+        Builder(SpanCollector delegate) {
+            this.delegate = checkNotNull(delegate, "Null delegate");
+        }
+
+        /**
+         * Keeps traces the given sampler keeps. A trace is kept if any of the samplers keeps it.
+         */
+        public Builder keep(TailSampler sampler) {
+            samplers.add(checkNotNull(sampler, "Null sampler"));
+            return this;
+        }
+
+        /**
+         * Number of traces tracked at once, waiting for their local root span or remembering the decision made for it.
+         * A trace takes the slot its id maps to, discarding the trace in it. Defaults to 1000.
+         */
+        public Builder maxTraces(int maxTraces) {
+            if (maxTraces <= 0) throw new IllegalArgumentException("maxTraces <= 0");
+            this.maxTraces = maxTraces;
+            return this;
+        }
+
+        /**
+         * Maximum number of spans buffered per trace, besides the local root. Further spans are discarded. Defaults to
+         * 100.
+         */
+        public Builder maxSpansPerTrace(int maxSpansPerTrace) {
+            if (maxSpansPerTrace < 0) throw new IllegalArgumentException("maxSpansPerTrace < 0");
+            this.maxSpansPerTrace = maxSpansPerTrace;
+            return this;
+        }
+
+        /**
+         * Gets notified of spans discarded because too many traces or spans are buffered. Defaults to ignore these
+         * events.
+         */
+        public Builder metrics(SpanCollectorMetricsHandler metrics) {
+            this.metrics = checkNotNull(metrics, "Null metrics");
+            return this;
+        }
+
+        public TailSamplingSpanCollector build() {
+            if (samplers.isEmpty()) throw new IllegalStateException("No tail sampler: add one with keep()");
+            TailSampler sampler = samplers.size() == 1
+                ? samplers.get(0)
+                : TailSampler.anyOf(samplers.toArray(new TailSampler[samplers.size()]));
+            return new TailSamplingSpanCollector(delegate, sampler, metrics, maxTraces, maxSpansPerTrace);
+        }
+    }
+
+    private final SpanCollector delegate;
+    private final TailSampler sampler;
+    private final SpanCollectorMetricsHandler metrics;
+    private final int maxSpansPerTrace;
+    /** One slot per trace, chosen by its id. A trace replaces the one in its slot. */
+    private final AtomicReferenceArray<Trace> traces;
+
+    TailSamplingSpanCollector(SpanCollector delegate, TailSampler sampler, SpanCollectorMetricsHandler metrics,
+                              int maxTraces, int maxSpansPerTrace) {
+        this.delegate = delegate;
+        this.sampler = sampler;
+        this.metrics = metrics;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.traces = new AtomicReferenceArray<Trace>(maxTraces);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void collect(final Span span) {
+        checkNotNull(span, "Null span");
+        if (isLocalRoot(span)) {
+            collectLocalRoot(span);
+        } else {
+            collectChild(span);
+        }
+    }
+
+    private void collectLocalRoot(Span root) {
+        long traceId = root.getTrace_id();
+        int index = index(traceId);
+        int dropped = 0;
+        Trace trace;
+        List<Span> children = null;
+        while (true) {
+            Trace current = traces.get(index);
+            if (current != null && current.traceId == traceId) {
+                synchronized (current) {
+                    if (current.evicted) continue;
+                    if (current.state == State.PENDING) {
+                        children = current.children;
+                        current.children = new ArrayList<>();
+                        current.state = State.DECIDING;
+                        trace = current;
+                        break;
+                    }
+                }
+            }
+            // Children finishing until the decision is made are buffered in this trace, not in a new pending one
+            // that no root would ever flush.
+            Trace added = new Trace(traceId, State.DECIDING);
+            if (traces.compareAndSet(index, current, added)) {
+                dropped += evict(current);
+                trace = added;
+                break;
+            }
+        }
+        if (dropped > 0) metrics.incrementDroppedSpans(dropped);
+
+        if (children == null) children = Collections.emptyList();
+        boolean keep = sampler.isSampled(root, children);
+        List<Span> late;
+        synchronized (trace) {
+            trace.state = keep ? State.KEPT : State.DISCARDED;
+            late = trace.children;
+            trace.children = null;
+        }
+        if (keep) {
+            for (int i = 0, length = children.size(); i < length; i++) {
+                delegate.collect(children.get(i));
+            }
+            for (int i = 0, length = late.size(); i < length; i++) {
+                delegate.collect(late.get(i));
+            }
+            delegate.collect(root);
+        }
+    }
+
+    private void collectChild(Span span) {
+        long traceId = span.getTrace_id();
+        int index = index(traceId);
+        int dropped = 0;
+        boolean keep = false;
+        while (true) {
+            Trace current = traces.get(index);
+            if (current == null || current.traceId != traceId) {
+                Trace added = new Trace(traceId, State.PENDING);
+                if (traces.compareAndSet(index, current, added)) dropped += evict(current);
+                continue;
+            }
+            synchronized (current) {
+                if (current.evicted) continue;
+                if (current.state == State.KEPT) {
+                    keep = true;
+                } else if (current.state != State.DISCARDED) {
+                    if (current.children.size() < maxSpansPerTrace) {
+                        current.children.add(span);
+                    } else {
+                        dropped++;
+                    }
+                }
+            }
+            break;
+        }
+        if (dropped > 0) metrics.incrementDroppedSpans(dropped);
+        if (keep) delegate.collect(span);
+    }
+
+    /** Marks a trace replaced in its slot, and returns the number of its buffered spans that are lost. */
+    private static int evict(Trace trace) {
+        if (trace == null) return 0;
+        synchronized (trace) {
+            trace.evicted = true;
+            // A deciding trace keeps its children: the thread of its local root flushes them.
+            return trace.state == State.PENDING ? trace.children.size() : 0;
+        }
+    }
+
+    int index(long traceId) {
+        // murmur3's 64-bit finalizer, as trace ids of tests and some tracers are sequential
+        long h = traceId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) ((h >>> 1) % traces.length());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public void addDefaultAnnotation(final String key, final String value) {
+        delegate.addDefaultAnnotation(key, value);
+    }
+
+    /** Returns true if the span is a server span, or has no parent. */
+    static boolean isLocalRoot(Span span) {
+        if (!span.isSetParent_id()) return true;
+        List<Annotation> annotations = span.getAnnotations();
+        if (annotations == null) return false;
+        for (int i = 0, length = annotations.size(); i < length; i++) {
+            if (zipkinCoreConstants.SERVER_RECV.equals(annotations.get(i).getValue())) return true;
+        }
+        return false;
+    }
+
+    enum State {
+        /** Waiting for the local root span. */
+        PENDING,
+        /** The sampler is deciding whether to keep the trace. */
+        DECIDING,
+        KEPT,
+        DISCARDED
+    }
+
+    /** Spans buffered for a trace, or the decision made for it. Fields are guarded by the instance. */
+    static final class Trace {
+        final long traceId;
+        State state;
+        /** Children buffered until a decision is made, null after. */
+        List<Span> children = new ArrayList<>();
+        /** True once another trace took the slot of this one. */
+        boolean evicted;
+
+        Trace(long traceId, State state) {
+            this.traceId = traceId;
+            this.state = state;
+        }
+    }
+}
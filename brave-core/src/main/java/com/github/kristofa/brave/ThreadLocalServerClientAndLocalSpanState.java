@@ -1,5 +1,6 @@
 package com.github.kristofa.brave;
 
+import com.github.kristofa.brave.internal.EndpointCache;
 import com.github.kristofa.brave.internal.Util;
 import com.twitter.zipkin.gen.Endpoint;
 import com.twitter.zipkin.gen.Span;
@@ -27,6 +28,7 @@ public final class ThreadLocalServerClientAndLocalSpanState implements ServerCli
     private final static ThreadLocal<Span> currentLocalSpan = new ThreadLocal<>();
 
     private final Endpoint endpoint;
+    private final EndpointCache clientEndpoints = new EndpointCache();
 
     /**
      * Constructor
@@ -90,7 +92,7 @@ public final class ThreadLocalServerClientAndLocalSpanState implements ServerCli
         if (serviceName == null) {
             return endpoint;
         } else {
-            return new Endpoint(endpoint).setService_name(serviceName);
+            return clientEndpoints.get(endpoint.ipv4, endpoint.port, serviceName);
         }
     }
 
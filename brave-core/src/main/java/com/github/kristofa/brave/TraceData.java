@@ -10,7 +10,7 @@ import com.google.auto.value.AutoValue;
 public abstract class TraceData {
 
     public static Builder builder(){
-        return new AutoValue_TraceData.Builder();
+        return new AutoValue_TraceData.Builder().localDecision(false);
     }
 
     /**
@@ -29,6 +29,13 @@ public abstract class TraceData {
     @Nullable
     public abstract Boolean getSample();
 
+    /**
+     * True if {@link #getSample()} wasn't received with the request but decided locally, for example by http sampling
+     * rules. If sampled without a span id, the tracer then starts a new trace with its own ids, without consulting its
+     * {@link Sampler}. Defaults to false.
+     */
+    public abstract boolean isLocalDecision();
+
     @AutoValue.Builder
     public interface Builder {
 
@@ -36,6 +43,8 @@ public abstract class TraceData {
 
         Builder sample(@Nullable Boolean sample);
 
+        Builder localDecision(boolean localDecision);
+
         TraceData build();
     }
 }
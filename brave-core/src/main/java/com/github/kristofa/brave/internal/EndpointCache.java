@@ -0,0 +1,64 @@
+package com.github.kristofa.brave.internal;
+
+import com.twitter.zipkin.gen.Endpoint;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, concurrent cache of endpoints keyed by address and service name, so that spans don't
+ * allocate an identical {@link Endpoint} for each annotation.
+ *
+ * <p/>The cache is direct-mapped: each endpoint has one slot, chosen by a hash of its address and
+ * service name. Looking up an endpoint doesn't allocate or lock, and a miss replaces the slot with
+ * a single store. So remote addresses, which often share the service name "unknown" but differ by
+ * peer, are cached per peer, without request threads contending on a shared entry.
+ *
+ * <p/>Cached endpoints are shared across spans and threads, so they must not be modified.
+ */
+public final class EndpointCache {
+
+  static final int DEFAULT_SIZE = 256;
+
+  final AtomicReferenceArray<Endpoint> slots;
+  final int mask;
+
+  public EndpointCache() {
+    this(DEFAULT_SIZE);
+  }
+
+  /** @param size number of slots, a power of two. */
+  EndpointCache(int size) {
+    if (size <= 0 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("size should be a power of two: was " + size);
+    }
+    this.slots = new AtomicReferenceArray<Endpoint>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * Returns an endpoint with the given address and service name, reusing the cached one if it
+   * matches, or else caching a new one in its place.
+   */
+  public Endpoint get(int ipv4, short port, String serviceName) {
+    int index = index(ipv4, port, serviceName);
+    Endpoint cached = slots.get(index);
+    if (cached != null && cached.ipv4 == ipv4 && cached.port == port
+        && serviceName.equals(cached.service_name)) {
+      return cached;
+    }
+    Endpoint endpoint = new Endpoint(ipv4, port, serviceName);
+    slots.lazySet(index, endpoint); // last writer wins, which is fine for a cache
+    return endpoint;
+  }
+
+  int index(int ipv4, short port, String serviceName) {
+    int h = (ipv4 * 31 + port) * 31 + serviceName.hashCode();
+    // murmur3's finalizer, so that addresses differing in any octet spread across slots
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h & mask;
+  }
+}
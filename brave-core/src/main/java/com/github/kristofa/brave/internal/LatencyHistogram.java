@@ -0,0 +1,86 @@
+package com.github.kristofa.brave.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in microseconds, with a fixed number of buckets whose width
+ * grows with the duration. Any duration is counted in a bucket at most 12.5% wider than its
+ * lower bound, so quantiles are estimated within that error, using 4KiB however many values are
+ * recorded.
+ *
+ * <p/>Recording a value costs one atomic increment. Reading a quantile scans the buckets, so
+ * callers on a hot path should cache it.
+ */
+public final class LatencyHistogram {
+
+  static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /** Counts the duration. Negative durations are counted as zero. */
+  public void record(long durationMicros) {
+    counts.incrementAndGet(bucket(durationMicros));
+  }
+
+  /** Returns the number of durations counted. */
+  public long count() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the duration at or below which the given fraction of the counted durations are, or -1
+   * if none were counted. The result is the upper bound of the bucket containing the quantile.
+   *
+   * @param quantile between 0 and 1, for example 0.99 for the 99th percentile.
+   */
+  public long quantile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("quantile should be between 0 and 1: was " + quantile);
+    }
+    long[] snapshot = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += snapshot[i] = counts.get(i);
+    }
+    if (count == 0) return -1;
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) return upperBound(i);
+    }
+    return upperBound(BUCKETS - 1);
+  }
+
+  /**
+   * Halves all counts, so that later durations weigh more than earlier ones in quantiles. Values
+   * recorded concurrently are counted, but might be halved as well.
+   */
+  public void decay() {
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = counts.get(i);
+      if (count > 0) counts.addAndGet(i, -(count >>> 1));
+    }
+  }
+
+  static int bucket(long value) {
+    if (value < SUB_BUCKETS) return value < 0 ? 0 : (int) value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) return bucket;
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,77 @@
+package com.github.kristofa.brave.internal;
+
+import java.util.Arrays;
+
+/**
+ * Maps string prefixes to values, so that a key finds the value of its longest matching prefix
+ * in time proportional to the length of the key, regardless of how many prefixes there are.
+ *
+ * <p/>This is meant to be filled once, then read by any number of threads. Publish it safely, for
+ * example via a final field, after the last call to {@link #put(String, Object)}.
+ */
+public final class PrefixTrie<V> {
+
+  static final class Node<V> {
+    char[] labels = new char[0];
+    Node<V>[] children = newArray(0);
+    V value;
+
+    Node<V> child(char c) {
+      int i = Arrays.binarySearch(labels, c);
+      return i >= 0 ? children[i] : null;
+    }
+
+    Node<V> getOrAddChild(char c) {
+      int i = Arrays.binarySearch(labels, c);
+      if (i >= 0) return children[i];
+      int insertion = -i - 1;
+      char[] newLabels = new char[labels.length + 1];
+      Node<V>[] newChildren = newArray(children.length + 1);
+      System.arraycopy(labels, 0, newLabels, 0, insertion);
+      System.arraycopy(children, 0, newChildren, 0, insertion);
+      newLabels[insertion] = c;
+      newChildren[insertion] = new Node<V>();
+      System.arraycopy(labels, insertion, newLabels, insertion + 1, labels.length - insertion);
+      System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+      labels = newLabels;
+      children = newChildren;
+      return newChildren[insertion];
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> Node<V>[] newArray(int length) {
+      return new Node[length];
+    }
+  }
+
+  final Node<V> root = new Node<V>();
+
+  /** Associates the value with the prefix, replacing any value added before for it. */
+  public void put(String prefix, V value) {
+    Util.checkNotNull(prefix, "Null prefix");
+    Util.checkNotNull(value, "Null value");
+    Node<V> node = root;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.getOrAddChild(prefix.charAt(i));
+    }
+    node.value = value;
+  }
+
+  /** Returns the value of the longest prefix of the key, or null if no prefix matches. */
+  @Nullable
+  public V longestPrefixMatch(String key) {
+    Node<V> node = root;
+    V result = node.value;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.child(key.charAt(i));
+      if (node == null) break;
+      if (node.value != null) result = node.value;
+    }
+    return result;
+  }
+
+  /** Returns true if no prefix was added. */
+  public boolean isEmpty() {
+    return root.value == null && root.labels.length == 0;
+  }
+}
@@ -0,0 +1,162 @@
+package com.github.kristofa.brave.internal;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue that any number of threads can offer to without locking, and one thread at a time
+ * drains. Producers claim a slot with a compare-and-set on the tail, so they don't block each
+ * other, and a full buffer rejects elements instead of waiting.
+ *
+ * <p/>The buffer is bounded by both a number of elements and a number of bytes, so that a few large
+ * elements can't use more memory than many small ones. Producers pass the size of each element,
+ * which is reserved until the element is drained.
+ *
+ * <p/>Each slot has a sequence number telling whether it is free for the producer of a given
+ * position, or holds an element ready for the consumer. This is the bounded queue design of
+ * Dmitry Vyukov, with a single consumer. Sequences are doubled, with the low bit marking a
+ * published element, so that a buffer of any capacity, even one, tells full from free.
+ */
+public final class RingBuffer<E> {
+
+  final int capacity;
+  final long maxBytes;
+  final Object[] elements;
+  final int[] sizes;
+  final AtomicLongArray sequences;
+  final AtomicLong tail = new AtomicLong();
+  final AtomicLong bytes = new AtomicLong();
+  volatile long head; // written only by the consumer
+
+  /** Creates a buffer bounded only by the number of elements. */
+  public RingBuffer(int capacity) {
+    this(capacity, Long.MAX_VALUE);
+  }
+
+  public RingBuffer(int capacity, long maxBytes) {
+    if (capacity <= 0) throw new IllegalArgumentException("capacity <= 0");
+    if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes <= 0");
+    this.capacity = capacity;
+    this.maxBytes = maxBytes;
+    this.elements = new Object[capacity];
+    this.sizes = new int[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, free(i));
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public long maxBytes() {
+    return maxBytes;
+  }
+
+  /** Adds the element if there is room, returning false if the buffer is full. Never blocks. */
+  public boolean offer(E element) {
+    return offer(element, 0);
+  }
+
+  /**
+   * Adds the element if there is a free slot and room for its size in bytes, returning false
+   * otherwise. Never blocks.
+   */
+  public boolean offer(E element, int sizeInBytes) {
+    if (element == null) throw new NullPointerException("element == null");
+    if (sizeInBytes < 0) throw new IllegalArgumentException("sizeInBytes < 0");
+    if (sizeInBytes > 0 && !reserve(sizeInBytes)) return false;
+    long position = tail.get();
+    int index;
+    for (;;) {
+      index = index(position);
+      long difference = sequences.get(index) - free(position);
+      if (difference == 0) { // the slot is free for this position
+        if (tail.compareAndSet(position, position + 1)) break;
+        position = tail.get();
+      } else if (difference < 0) { // the slot still holds the element of the previous lap
+        if (sizeInBytes > 0) bytes.addAndGet(-sizeInBytes);
+        return false;
+      } else { // another producer claimed this position
+        position = tail.get();
+      }
+    }
+    elements[index] = element;
+    sizes[index] = sizeInBytes;
+    sequences.lazySet(index, published(position)); // publishes the element to the consumer
+    return true;
+  }
+
+  /**
+   * Moves up to {@code max} elements, oldest first, to the sink, and returns how many were moved.
+   * Only one thread may drain at a time.
+   */
+  public int drainTo(Collection<? super E> sink, int max) {
+    return drainTo(sink, max, Long.MAX_VALUE);
+  }
+
+  /**
+   * Like {@link #drainTo(Collection, int)}, but also stops before the total size of the moved
+   * elements would exceed {@code maxBytes}. The first element is moved regardless of its size, so
+   * that an element larger than {@code maxBytes} can't block the buffer.
+   */
+  public int drainTo(Collection<? super E> sink, int max, long maxBytes) {
+    long position = head;
+    int drained = 0;
+    long drainedBytes = 0;
+    while (drained < max) {
+      int index = index(position);
+      if (sequences.get(index) != published(position)) break; // empty, or not yet published
+      if (drained > 0 && drainedBytes + sizes[index] > maxBytes) break;
+      @SuppressWarnings("unchecked")
+      E element = (E) elements[index];
+      elements[index] = null;
+      drainedBytes += sizes[index];
+      sequences.lazySet(index, free(position + capacity)); // frees the slot for the next lap
+      sink.add(element);
+      position++;
+      drained++;
+    }
+    if (drained > 0) head = position;
+    if (drainedBytes > 0) bytes.addAndGet(-drainedBytes);
+    return drained;
+  }
+
+  /** Returns the number of elements claimed by producers and not yet drained. */
+  public int size() {
+    long size = tail.get() - head;
+    return size < 0 ? 0 : (int) Math.min(size, capacity);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /** Returns the total size of the elements claimed by producers and not yet drained. */
+  public long bytes() {
+    return bytes.get();
+  }
+
+  boolean reserve(int sizeInBytes) {
+    for (;;) {
+      long current = bytes.get();
+      long next = current + sizeInBytes;
+      if (next > maxBytes) return false;
+      if (bytes.compareAndSet(current, next)) return true;
+    }
+  }
+
+  static long free(long position) {
+    return position << 1;
+  }
+
+  static long published(long position) {
+    return (position << 1) | 1;
+  }
+
+  int index(long position) {
+    return (int) (position % capacity);
+  }
+}
@@ -0,0 +1,335 @@
+package com.github.kristofa.brave.internal;
+
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.AnnotationType;
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static com.github.kristofa.brave.internal.Util.checkNotBlank;
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Records the annotations of an in-flight span in flat arrays, deferring allocation of the
+ * Thrift {@link Annotation} and {@link BinaryAnnotation} objects, and their UTF-8 buffers, until
+ * the span is finished.
+ *
+ * <p/>This type is lock-free: threads that annotate the same span, for example after passing it
+ * with a span thread binder, reserve a slot with an atomic increment instead of taking the span's
+ * monitor. The first {@value #INLINE_CAPACITY} entries, typically the tags of a request, live in
+ * fields of the recorder, so that most spans allocate no arrays. Further entries live in an
+ * append-only list of chunks, each twice the size of the previous. {@link #flushTo(Span)} is the
+ * publication point: it seals the recorder and detaches it from the span, so that annotations
+ * submitted after the span finished are dropped instead of racing with its collection, and the
+ * recorder's arrays aren't retained while the span waits to be sent. The thread that flushes never
+ * waits for the others: an entry whose writer hasn't published it yet is dropped, and counted in
+ * {@link #droppedAnnotations()}.
+ */
+public final class SpanRecorder {
+
+  static final int INLINE_CAPACITY = 2;
+  static final int FIRST_CHUNK_CAPACITY = 4;
+  static final int SEALED = Integer.MIN_VALUE;
+  static final byte[] BOOL_TRUE = {1};
+  static final AtomicLong DROPPED = new AtomicLong();
+
+  static final AtomicReferenceFieldUpdater<Span, SpanRecorder> RECORDER =
+      AtomicReferenceFieldUpdater.newUpdater(Span.class, SpanRecorder.class, "recorder");
+  static final AtomicIntegerFieldUpdater<SpanRecorder> SIZE =
+      AtomicIntegerFieldUpdater.newUpdater(SpanRecorder.class, "size");
+  static final AtomicReferenceFieldUpdater<SpanRecorder, String> KEY0 =
+      AtomicReferenceFieldUpdater.newUpdater(SpanRecorder.class, String.class, "key0");
+  static final AtomicReferenceFieldUpdater<SpanRecorder, String> KEY1 =
+      AtomicReferenceFieldUpdater.newUpdater(SpanRecorder.class, String.class, "key1");
+  static final AtomicReferenceFieldUpdater<SpanRecorder, Chunk> HEAD =
+      AtomicReferenceFieldUpdater.newUpdater(SpanRecorder.class, Chunk.class, "head");
+  static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+      AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+  /** Attached to spans once flushed, so that later annotations are dropped without allocating. */
+  static final SpanRecorder FLUSHED = new SpanRecorder(SEALED);
+
+  /**
+   * Returns the count of annotations dropped because another thread was still recording them while
+   * their span finished.
+   */
+  public static long droppedAnnotations() {
+    return DROPPED.get();
+  }
+
+  /** Returns the recorder of the span, attaching a new one if absent. */
+  public static SpanRecorder of(Span span) {
+    SpanRecorder recorder = span.recorder;
+    if (recorder != null) return recorder;
+    recorder = new SpanRecorder();
+    return RECORDER.compareAndSet(span, null, recorder) ? recorder : span.recorder;
+  }
+
+  /**
+   * Adds the annotation that starts the span, such as {@code "sr"}, straight to the span. This must
+   * be called before the span is shared with other threads. The list is sized for the annotation
+   * that will {@link #finish finish} the span, so a span without other annotations never needs a
+   * recorder.
+   */
+  public static void start(Span span, long timestamp, String value, @Nullable Endpoint host) {
+    checkNotBlank(value, "Null or blank value");
+    if (span.annotations == null) span.annotations = new ArrayList<Annotation>(2);
+    Annotation a = new Annotation(timestamp, value);
+    a.setHost(host);
+    span.addToAnnotations(a);
+  }
+
+  /**
+   * Flushes the recorder of the span, if any, then adds the annotation that finishes the span, such
+   * as {@code "ss"}. Unlike {@link #annotate}, this doesn't reserve a slot, as the span is
+   * converted right away.
+   *
+   * @return the count of entries dropped as their writer hadn't published them yet.
+   */
+  public static int finish(Span span, long timestamp, String value, @Nullable Endpoint host) {
+    checkNotBlank(value, "Null or blank value");
+    SpanRecorder recorder = span.recorder;
+    int dropped = 0;
+    if (recorder != null) {
+      dropped = recorder.flushTo(span, 1);
+    } else {
+      RECORDER.compareAndSet(span, null, FLUSHED); // drop annotations submitted after finish
+      presize(span, 1, 0);
+    }
+    Annotation a = new Annotation(timestamp, value);
+    a.setHost(host);
+    span.addToAnnotations(a);
+    return dropped;
+  }
+
+  // Inline entries, laid out like those of a chunk. The key is written last, with lazySet.
+  volatile String key0, key1;
+  Object value0, value1;
+  Endpoint host0, host1;
+  long timestamp0, timestamp1;
+
+  volatile Chunk head; // allocated once the inline entries are used
+  /**
+   * Count of reserved slots. Once flushed, this is {@link #SEALED} plus the count of dropped
+   * annotations, which stays negative.
+   */
+  volatile int size;
+
+  SpanRecorder() {
+  }
+
+  SpanRecorder(int size) {
+    this.size = size;
+  }
+
+  /** Records an annotation, as if {@link Span#addToAnnotations(Annotation)} were called. */
+  public void annotate(long timestamp, String value, @Nullable Endpoint host) {
+    checkNotNull(value, "Null value"); // a null key would mark the entry as unpublished
+    add(timestamp, value, null, host);
+  }
+
+  /**
+   * Records a string binary annotation, as if {@link Span#addToBinary_annotations(BinaryAnnotation)}
+   * were called.
+   */
+  public void tag(String key, String value, @Nullable Endpoint host) {
+    checkNotBlank(key, "Null or blank key");
+    checkNotNull(value, "Null value");
+    add(0L, key, value, host);
+  }
+
+  /** Records an address binary annotation, such as {@code "sa"}, for the given endpoint. */
+  public void address(String key, Endpoint host) {
+    checkNotBlank(key, "Null or blank key");
+    checkNotNull(host, "Null host");
+    add(0L, key, Boolean.TRUE, host);
+  }
+
+  /** Returns the count of annotations and binary annotations not yet flushed. */
+  public int size() {
+    int size = this.size;
+    return size < 0 ? 0 : size;
+  }
+
+  /**
+   * Adds the recorded annotations to the span's Thrift lists, in the order their slots were
+   * reserved. Subsequent annotations are dropped, as are those still being written by another
+   * thread.
+   *
+   * @return the count of entries dropped as their writer hadn't published them yet.
+   */
+  public int flushTo(Span span) {
+    return flushTo(span, 0);
+  }
+
+  int flushTo(Span span, int extraAnnotations) {
+    int count = this.size < 0 ? SEALED : SIZE.getAndSet(this, SEALED);
+    RECORDER.compareAndSet(span, this, FLUSHED); // don't retain the chunks with the span
+    if (count <= 0) { // empty or already flushed
+      presize(span, extraAnnotations, 0);
+      return 0;
+    }
+
+    int annotationCount = 0;
+    Chunk chunk = null;
+    for (int i = 0, offset = 0; i < count; i++) {
+      if (i == INLINE_CAPACITY) {
+        chunk = head();
+      } else if (chunk != null && ++offset == chunk.capacity) {
+        chunk = chunk.next();
+        offset = 0;
+      }
+      // a sizing hint: an entry published after this pass is still added below
+      if (key(chunk, i, offset) != null && value(chunk, i, offset) == null) annotationCount++;
+    }
+    presize(span, annotationCount + extraAnnotations, count - annotationCount);
+
+    int dropped = 0;
+    chunk = null;
+    for (int i = 0, offset = 0; i < count; i++) {
+      if (i == INLINE_CAPACITY) {
+        chunk = head();
+      } else if (chunk != null && ++offset == chunk.capacity) {
+        chunk = chunk.next();
+        offset = 0;
+      }
+      String key = key(chunk, i, offset);
+      if (key == null) { // reserved, but not yet published: don't wait for its writer
+        dropped++;
+        continue;
+      }
+      Object value = value(chunk, i, offset);
+      Endpoint host;
+      long timestamp;
+      if (chunk == null) {
+        host = i == 0 ? host0 : host1;
+        timestamp = i == 0 ? timestamp0 : timestamp1;
+      } else {
+        host = (Endpoint) chunk.entries.get(offset * 3 + 2);
+        timestamp = chunk.timestamps[offset];
+      }
+      if (value == null) {
+        Annotation a = new Annotation(timestamp, key);
+        a.setHost(host);
+        span.addToAnnotations(a);
+      } else if (value == Boolean.TRUE) {
+        BinaryAnnotation ba = new BinaryAnnotation();
+        ba.setKey(key);
+        ba.setValue(BOOL_TRUE);
+        ba.setAnnotation_type(AnnotationType.BOOL);
+        ba.setHost(host);
+        span.addToBinary_annotations(ba);
+      } else {
+        span.addToBinary_annotations(new BinaryAnnotation(key, (String) value, host));
+      }
+    }
+    if (dropped > 0) DROPPED.addAndGet(dropped);
+    return dropped;
+  }
+
+  /** Returns the key of entry {@code i}, which is inline if {@code chunk} is null. */
+  String key(Chunk chunk, int i, int offset) {
+    if (chunk != null) return (String) chunk.entries.get(offset * 3);
+    return i == 0 ? key0 : key1;
+  }
+
+  Object value(Chunk chunk, int i, int offset) {
+    if (chunk != null) return chunk.entries.get(offset * 3 + 1);
+    return i == 0 ? value0 : value1;
+  }
+
+  /** Avoids growing the span's lists from their default capacity as entries are added. */
+  static void presize(Span span, int annotationCount, int binaryAnnotationCount) {
+    if (annotationCount > 0) {
+      if (span.annotations == null) {
+        span.annotations = new ArrayList<Annotation>(annotationCount);
+      } else if (span.annotations instanceof ArrayList) {
+        ((ArrayList<Annotation>) span.annotations)
+            .ensureCapacity(span.annotations.size() + annotationCount);
+      }
+    }
+    if (binaryAnnotationCount > 0) {
+      if (span.binary_annotations == null) {
+        span.binary_annotations = new ArrayList<BinaryAnnotation>(binaryAnnotationCount);
+      } else if (span.binary_annotations instanceof ArrayList) {
+        ((ArrayList<BinaryAnnotation>) span.binary_annotations)
+            .ensureCapacity(span.binary_annotations.size() + binaryAnnotationCount);
+      }
+    }
+  }
+
+  private void add(long timestamp, String key, Object value, Endpoint host) {
+    if (size < 0) return; // sealed, checked first so that late annotations don't contend
+    int index = SIZE.getAndIncrement(this);
+    if (index < 0) return; // sealed
+
+    if (index < INLINE_CAPACITY) { // the key is written last, as flushTo skips entries without one
+      if (index == 0) {
+        timestamp0 = timestamp;
+        value0 = value;
+        host0 = host;
+        KEY0.lazySet(this, key);
+      } else {
+        timestamp1 = timestamp;
+        value1 = value;
+        host1 = host;
+        KEY1.lazySet(this, key);
+      }
+      return;
+    }
+    index -= INLINE_CAPACITY;
+
+    // Chunk k holds FIRST_CHUNK_CAPACITY << k slots, starting at FIRST_CHUNK_CAPACITY * (2^k - 1)
+    int k = 31 - Integer.numberOfLeadingZeros(index / FIRST_CHUNK_CAPACITY + 1);
+    int offset = index - FIRST_CHUNK_CAPACITY * ((1 << k) - 1);
+    Chunk chunk = head();
+    while (k-- > 0) chunk = chunk.next();
+
+    // The key is written last, as the reader in flushTo skips entries without one.
+    int j = offset * 3;
+    chunk.timestamps[offset] = timestamp;
+    chunk.entries.lazySet(j + 1, value);
+    chunk.entries.lazySet(j + 2, host);
+    chunk.entries.lazySet(j, key);
+  }
+
+  /** Returns the first chunk, allocating it if absent. */
+  Chunk head() {
+    Chunk head = this.head;
+    if (head != null) return head;
+    head = new Chunk(FIRST_CHUNK_CAPACITY);
+    return HEAD.compareAndSet(this, null, head) ? head : this.head;
+  }
+
+  static final class Chunk {
+    final int capacity;
+    final long[] timestamps;
+    /**
+     * Three slots per entry: the annotation value or binary annotation key, then the binary
+     * annotation value, then the host. The value slot is null for annotations, a String for
+     * string binary annotations and {@link Boolean#TRUE} for addresses.
+     */
+    final AtomicReferenceArray<Object> entries;
+    volatile Chunk next;
+
+    Chunk(int capacity) {
+      this.capacity = capacity;
+      this.timestamps = new long[capacity];
+      this.entries = new AtomicReferenceArray<Object>(capacity * 3);
+    }
+
+    /** Returns the next chunk, linking a new one if absent. */
+    Chunk next() {
+      Chunk next = this.next;
+      if (next != null) return next;
+      next = new Chunk(capacity * 2);
+      return NEXT.compareAndSet(this, null, next) ? next : this.next;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package com.github.kristofa.brave.internal;
+
+import com.github.kristofa.brave.AsyncReporter;
+import com.twitter.zipkin.gen.Span;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TTransport;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Encodes spans with {@code TBinaryProtocol}, so that span collectors can queue bytes instead of
+ * span objects, and send them without encoding again.
+ *
+ * <p/>A span is written straight into an array of its exact size, as computed by {@link
+ * ThriftSpanSizer}, by a protocol and transport reused per thread. So encoding allocates only the
+ * result, and the span, with its annotations and endpoints, is garbage as soon as it is encoded.
+ */
+public final class ThriftSpanEncoder {
+
+  /** Sizes encoded spans by their length. */
+  public static final AsyncReporter.Sizer<byte[]> SIZER = new AsyncReporter.Sizer<byte[]>() {
+    @Override
+    public int sizeInBytes(byte[] span) {
+      return span.length;
+    }
+  };
+
+  /** Size of the header of a list encoded by {@link #encodeList(List)}: element type and count. */
+  public static final int LIST_HEADER_SIZE = 5;
+
+  static final ThreadLocal<ArrayTransport> TRANSPORT = new ThreadLocal<ArrayTransport>() {
+    @Override
+    protected ArrayTransport initialValue() {
+      return new ArrayTransport();
+    }
+  };
+
+  /** Returns the span encoded with {@code TBinaryProtocol}. */
+  public static byte[] encode(Span span) throws TException {
+    ArrayTransport transport = TRANSPORT.get();
+    transport.reset(new byte[ThriftSpanSizer.INSTANCE.sizeInBytes(span)]);
+    try {
+      span.write(transport.protocol);
+      return transport.toByteArray();
+    } finally {
+      transport.reset(null); // don't retain the result
+    }
+  }
+
+  /**
+   * Returns a {@code TBinaryProtocol} list of the encoded spans, like the body of {@code POST
+   * /api/v1/spans}, by concatenating them after a list header.
+   */
+  public static byte[] encodeList(List<byte[]> spans) {
+    int size = LIST_HEADER_SIZE;
+    for (int i = 0, length = spans.size(); i < length; i++) {
+      size += spans.get(i).length;
+    }
+    byte[] result = new byte[size];
+    result[0] = TType.STRUCT;
+    writeInt(spans.size(), result, 1);
+    int pos = LIST_HEADER_SIZE;
+    for (int i = 0, length = spans.size(); i < length; i++) {
+      byte[] span = spans.get(i);
+      System.arraycopy(span, 0, result, pos, span.length);
+      pos += span.length;
+    }
+    return result;
+  }
+
+  /**
+   * Returns a sender of span objects, which encodes them on the sending thread, then passes them
+   * to the given sender of encoded spans.
+   */
+  public static AsyncReporter.Sender<Span> encoding(final AsyncReporter.Sender<byte[]> delegate) {
+    checkNotNull(delegate, "Null delegate");
+    return new AsyncReporter.Sender<Span>() {
+      @Override
+      public void send(List<Span> spans) throws IOException {
+        List<byte[]> encoded = new ArrayList<byte[]>(spans.size());
+        try {
+          for (int i = 0, length = spans.size(); i < length; i++) {
+            encoded.add(encode(spans.get(i)));
+          }
+        } catch (TException e) {
+          throw new IOException(e);
+        }
+        delegate.send(encoded);
+      }
+
+      @Override
+      public String toString() {
+        return delegate.toString();
+      }
+    };
+  }
+
+  static void writeInt(int value, byte[] buf, int pos) {
+    buf[pos] = (byte) (value >>> 24);
+    buf[pos + 1] = (byte) (value >>> 16);
+    buf[pos + 2] = (byte) (value >>> 8);
+    buf[pos + 3] = (byte) value;
+  }
+
+  /** Writes into an array, growing it if a span changed after it was sized. */
+  static final class ArrayTransport extends TTransport {
+    final TBinaryProtocol protocol = new TBinaryProtocol(this);
+    byte[] buf;
+    int pos;
+
+    void reset(byte[] buf) {
+      this.buf = buf;
+      this.pos = 0;
+    }
+
+    byte[] toByteArray() {
+      return pos == buf.length ? buf : Arrays.copyOf(buf, pos);
+    }
+
+    @Override
+    public void write(byte[] source, int offset, int length) {
+      if (pos + length > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + length));
+      }
+      System.arraycopy(source, offset, buf, pos, length);
+      pos += length;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private ThriftSpanEncoder() { // no instances
+  }
+}
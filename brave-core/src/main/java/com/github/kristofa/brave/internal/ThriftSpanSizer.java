@@ -0,0 +1,106 @@
+package com.github.kristofa.brave.internal;
+
+import com.github.kristofa.brave.AsyncReporter;
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+import java.util.List;
+
+/**
+ * Computes the size of a span encoded with {@code TBinaryProtocol}, without encoding it. This is
+ * the exact size of what span collectors send, so a queue bounded by it bounds the memory that
+ * queued spans take once encoded, whatever the size of their annotations.
+ */
+public final class ThriftSpanSizer implements AsyncReporter.Sizer<Span> {
+
+  public static final ThriftSpanSizer INSTANCE = new ThriftSpanSizer();
+
+  static final int FIELD_HEADER = 3; // type and field id
+  static final int STOP = 1;
+  static final int LIST_HEADER = 5; // element type and size
+  static final int I64 = 8;
+  static final int I32 = 4;
+  static final int I16 = 2;
+  static final int BOOL = 1;
+
+  @Override
+  public int sizeInBytes(Span span) {
+    int size = FIELD_HEADER + I64 + FIELD_HEADER + I64; // trace_id and id
+    if (span.getName() != null) size += FIELD_HEADER + stringSize(span.getName());
+    if (span.isSetParent_id()) size += FIELD_HEADER + I64;
+    List<Annotation> annotations = span.getAnnotations();
+    if (annotations != null) {
+      size += FIELD_HEADER + LIST_HEADER;
+      for (int i = 0, length = annotations.size(); i < length; i++) {
+        size += sizeInBytes(annotations.get(i));
+      }
+    }
+    List<BinaryAnnotation> binaryAnnotations = span.getBinary_annotations();
+    if (binaryAnnotations != null) {
+      size += FIELD_HEADER + LIST_HEADER;
+      for (int i = 0, length = binaryAnnotations.size(); i < length; i++) {
+        size += sizeInBytes(binaryAnnotations.get(i));
+      }
+    }
+    if (span.isSetDebug()) size += FIELD_HEADER + BOOL;
+    if (span.isSetTimestamp()) size += FIELD_HEADER + I64;
+    if (span.isSetDuration()) size += FIELD_HEADER + I64;
+    return size + STOP;
+  }
+
+  static int sizeInBytes(Annotation annotation) {
+    int size = FIELD_HEADER + I64; // timestamp
+    if (annotation.getValue() != null) size += FIELD_HEADER + stringSize(annotation.getValue());
+    if (annotation.isSetHost()) size += FIELD_HEADER + sizeInBytes(annotation.getHost());
+    return size + STOP;
+  }
+
+  static int sizeInBytes(BinaryAnnotation annotation) {
+    int size = 0;
+    if (annotation.getKey() != null) size += FIELD_HEADER + stringSize(annotation.getKey());
+    if (annotation.bufferForValue() != null) {
+      size += FIELD_HEADER + I32 + annotation.bufferForValue().remaining();
+    }
+    if (annotation.getAnnotation_type() != null) size += FIELD_HEADER + I32;
+    if (annotation.isSetHost()) size += FIELD_HEADER + sizeInBytes(annotation.getHost());
+    return size + STOP;
+  }
+
+  static int sizeInBytes(Endpoint endpoint) {
+    int size = FIELD_HEADER + I32 + FIELD_HEADER + I16; // ipv4 and port
+    if (endpoint.getService_name() != null) {
+      size += FIELD_HEADER + stringSize(endpoint.getService_name());
+    }
+    return size + STOP;
+  }
+
+  /** Returns the size of a thrift string: its length, then its UTF-8 bytes. */
+  static int stringSize(String string) {
+    return I32 + utf8Length(string);
+  }
+
+  static int utf8Length(String string) {
+    int length = 0;
+    for (int i = 0, chars = string.length(); i < chars; i++) {
+      char c = string.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (!Character.isSurrogate(c)) {
+        length += 3;
+      } else if (Character.isHighSurrogate(c) && i + 1 < chars
+          && Character.isLowSurrogate(string.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length++; // unpaired surrogates are encoded as '?'
+      }
+    }
+    return length;
+  }
+
+  ThriftSpanSizer() {
+  }
+}
@@ -53,10 +53,23 @@ public class Span implements org.apache.thrift.TBase<Span, Span._Fields>, java.i
   }
 
   /**
-   * Internal field, used for deriving duration with {@link System#nanoTime()}.
+   * Internal field, used for deriving duration and the timestamps of later annotations with
+   * {@code Clock.nanoTime()}.
    */
   public volatile Long startTick;
 
+  /**
+   * Internal field, used to record annotations while the span is in-flight. These are added to
+   * {@link #annotations} and {@link #binary_annotations} when the span is finished.
+   */
+  public volatile com.github.kristofa.brave.internal.SpanRecorder recorder;
+
+  /**
+   * Internal field, used to restore the enclosing local span when this local span finishes. Local
+   * spans of a thread form a stack linked through this field.
+   */
+  public volatile Span localParent;
+
   public long trace_id; // required
   /**
    * Span name in lowercase, rpc method for example
@@ -0,0 +1,170 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveSamplerTest {
+
+    private static final float DELTA = 0.00001f;
+
+    private final Clock mockClock = mock(Clock.class);
+    private final SpanCollectorMetricsHandler mockMetricsHandler = mock(SpanCollectorMetricsHandler.class);
+    private long now;
+
+    @Before
+    public void setup() {
+        when(mockClock.nanoTime()).thenReturn(0L);
+    }
+
+    @Test
+    public void testForwardsEventsToDelegate() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1.0f, mockMetricsHandler, mockClock);
+
+        sampler.incrementAcceptedSpans(3);
+        sampler.incrementDroppedSpans(2);
+
+        verify(mockMetricsHandler).incrementAcceptedSpans(3);
+        verify(mockMetricsHandler).incrementDroppedSpans(2);
+    }
+
+    @Test
+    public void testLowersRateWhileSpansAreDropped() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1.0f, mockMetricsHandler, mockClock);
+        assertTrue(sampler.isSampled(Long.MAX_VALUE));
+
+        sampler.incrementAcceptedSpans(100);
+        sampler.incrementDroppedSpans(10);
+        nextSecond(sampler);
+        assertEquals(0.5f, sampler.rate(), DELTA);
+        assertFalse(sampler.isSampled(Long.MAX_VALUE));
+        assertTrue(sampler.isSampled(Long.MAX_VALUE / 4));
+
+        sampler.incrementAcceptedSpans(100);
+        sampler.incrementDroppedSpans(80);
+        nextSecond(sampler);
+        assertEquals(0.1f, sampler.rate(), DELTA);
+
+        sampler.incrementAcceptedSpans(100);
+        sampler.incrementDroppedSpans(100);
+        nextSecond(sampler);
+        assertEquals(0.01f, sampler.rate(), DELTA);
+    }
+
+    @Test
+    public void testRateDoesntChangeWithinASecond() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1.0f, mockMetricsHandler, mockClock);
+
+        sampler.incrementDroppedSpans(10);
+        when(mockClock.nanoTime()).thenReturn(AdaptiveSampler.NANOS_PER_SECOND - 1);
+        sampler.isSampled(1L);
+
+        assertEquals(1.0f, sampler.rate(), DELTA);
+    }
+
+    @Test
+    public void testRaisesRateWhenCollectorRecovers() {
+        AdaptiveSampler sampler = new AdaptiveSampler(0.5f, mockMetricsHandler, mockClock);
+        sampler.incrementAcceptedSpans(10);
+        sampler.incrementDroppedSpans(5);
+        nextSecond(sampler);
+        assertEquals(0.25f, sampler.rate(), DELTA);
+
+        sampler.incrementAcceptedSpans(10);
+        nextSecond(sampler);
+        assertEquals(0.30f, sampler.rate(), DELTA);
+
+        for (int i = 0; i < 10; i++) {
+            nextSecond(sampler);
+        }
+        assertEquals(0.5f, sampler.rate(), DELTA);
+    }
+
+    @Test
+    public void testRateStaysAboveMinimum() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1.0f, mockMetricsHandler, mockClock);
+
+        for (int i = 0; i < 30; i++) {
+            sampler.incrementDroppedSpans(1);
+            nextSecond(sampler);
+        }
+
+        assertEquals(AdaptiveSampler.MIN_RATE, sampler.rate(), DELTA);
+    }
+
+    @Test
+    public void testLowersRateWhenQueueIsNearlyFull() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1.0f, mockMetricsHandler, mockClock);
+
+        sampler.updateQueueDepth(900, 1000);
+        nextSecond(sampler);
+        assertEquals(0.75f, sampler.rate(), DELTA);
+
+        sampler.updateQueueDepth(100, 1000);
+        nextSecond(sampler);
+        assertEquals(0.85f, sampler.rate(), DELTA);
+    }
+
+    @Test
+    public void testReadsQueueDepthOfAsyncReporter() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1.0f, mockMetricsHandler, mockClock);
+        AsyncReporter<String> reporter = AsyncReporter.builder(new AsyncReporter.Sender<String>() {
+            @Override
+            public void send(List<String> spans) {
+            }
+        }).metrics(sampler).queueSize(10).flushInterval(0, TimeUnit.SECONDS).build();
+
+        for (int i = 0; i < 8; i++) {
+            reporter.report("span");
+        }
+        assertEquals(8, reporter.queuedSpans());
+        nextSecond(sampler);
+        assertEquals(0.75f, sampler.rate(), DELTA);
+
+        reporter.flush();
+        nextSecond(sampler);
+        assertEquals(0.85f, sampler.rate(), DELTA);
+        reporter.close();
+    }
+
+    @Test
+    public void testReadsQueueDepthInBytes() {
+        AdaptiveSampler sampler = new AdaptiveSampler(1.0f, mockMetricsHandler, mockClock);
+        AsyncReporter<String> reporter = AsyncReporter.builder(new AsyncReporter.Sender<String>() {
+            @Override
+            public void send(List<String> spans) {
+            }
+        }).metrics(sampler).sizer(AsyncReporterTest.LENGTH).queuedMaxBytes(100)
+            .flushInterval(0, TimeUnit.SECONDS).build();
+
+        reporter.report(new String(new char[80])); // one span, but 80% of the bytes
+        nextSecond(sampler);
+        assertEquals(0.75f, sampler.rate(), DELTA);
+        reporter.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateAboveOne() {
+        AdaptiveSampler.create(1.1f, mockMetricsHandler);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullDelegate() {
+        AdaptiveSampler.create(1.0f, null);
+    }
+
+    private void nextSecond(Sampler sampler) {
+        now += AdaptiveSampler.NANOS_PER_SECOND;
+        when(mockClock.nanoTime()).thenReturn(now);
+        sampler.isSampled(1L);
+    }
+}
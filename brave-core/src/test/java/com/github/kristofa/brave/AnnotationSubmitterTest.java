@@ -17,12 +17,14 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import java.io.UnsupportedEncodingException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest(AnnotationSubmitter.class)
+@PrepareForTest({AnnotationSubmitter.class, Clock.class})
 public class AnnotationSubmitterTest {
 
     private final static long CURRENT_TIME_MICROSECONDS = System.currentTimeMillis() * 1000;
@@ -54,10 +56,19 @@ public class AnnotationSubmitterTest {
         expectedAnnotation.setValue(ANNOTATION_NAME);
         expectedAnnotation.setTimestamp(CURRENT_TIME_MICROSECONDS);
 
+        mockSpan.recorder.flushTo(mockSpan);
         verify(mockSpan).addToAnnotations(expectedAnnotation);
         verifyNoMoreInteractions(mockSpan);
     }
 
+    @Test
+    public void testSubmitAnnotationNullValueIsIgnored() {
+        annotationSubmitter.submitAnnotation(null);
+        annotationSubmitter.submitAnnotation(null, 1L);
+
+        assertNull(mockSpan.recorder);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testSubmitBinaryAnnotationStringValueEmptyKey() {
         annotationSubmitter.submitBinaryAnnotation(" ", STRING_VALUE);
@@ -79,6 +90,7 @@ public class AnnotationSubmitterTest {
         expectedAnnodation.setValue(STRING_VALUE.getBytes("UTF-8"));
         expectedAnnodation.setAnnotation_type(AnnotationType.STRING);
 
+        mockSpan.recorder.flushTo(mockSpan);
         verify(mockSpan).addToBinary_annotations(expectedAnnodation);
         verifyNoMoreInteractions(mockSpan);
     }
@@ -93,6 +105,7 @@ public class AnnotationSubmitterTest {
         expectedAnnodation.setValue(String.valueOf(INT_VALUE).getBytes());
         expectedAnnodation.setAnnotation_type(AnnotationType.STRING);
 
+        mockSpan.recorder.flushTo(mockSpan);
         verify(mockSpan).addToBinary_annotations(expectedAnnodation);
         verifyNoMoreInteractions(mockSpan);
     }
@@ -103,4 +116,18 @@ public class AnnotationSubmitterTest {
             StaticSpanAndEndpoint.create(null, null));
         assertEquals(CURRENT_TIME_MICROSECONDS, anotherAnnotationSubmitter.currentTimeMicroseconds());
     }
+    @Test
+    public void testSubmitAnnotation_timestampFromStartTick() {
+        Clock mockClock = mock(Clock.class);
+        Span span = new Span().setTimestamp(1000L);
+        span.startTick = 20000L;
+        when(mockClock.nanoTime()).thenReturn(20000L + 7000L);
+
+        AnnotationSubmitter.create(StaticSpanAndEndpoint.create(span, endpoint), mockClock)
+            .submitAnnotation(ANNOTATION_NAME);
+
+        span.recorder.flushTo(span);
+        assertEquals(1007L, span.annotations.get(0).timestamp);
+    }
+
 }
@@ -0,0 +1,277 @@
+package com.github.kristofa.brave;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncReporterTest {
+
+    private final TestMetricsHandler metrics = new TestMetricsHandler();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final AsyncReporter.Sender<String> sender = new AsyncReporter.Sender<String>() {
+        @Override
+        public void send(List<String> spans) {
+            batches.add(new ArrayList<>(spans));
+        }
+    };
+    private AsyncReporter<String> reporter;
+
+    @After
+    public void close() {
+        if (reporter != null) reporter.close();
+    }
+
+    @Test
+    public void testReport_doesntSendUntilFlushed() {
+        reporter = AsyncReporter.builder(sender).metrics(metrics).flushInterval(0, TimeUnit.SECONDS).build();
+
+        reporter.report("a");
+        reporter.report("b");
+        assertTrue(batches.isEmpty());
+
+        reporter.flush();
+        assertEquals(asList(asList("a", "b")), batches);
+        assertEquals(2, metrics.accepted.get());
+        assertEquals(0, metrics.dropped.get());
+    }
+
+    @Test
+    public void testFlush_splitsIntoBatches() {
+        reporter = AsyncReporter.builder(sender).maxBatchSize(2).flushInterval(0, TimeUnit.SECONDS).build();
+
+        reporter.report("a");
+        reporter.report("b");
+        reporter.report("c");
+        reporter.flush();
+
+        assertEquals(asList(asList("a", "b"), asList("c")), batches);
+    }
+
+    @Test
+    public void testReport_dropsWhenQueueIsFull() {
+        reporter = AsyncReporter.builder(sender).metrics(metrics).queueSize(2).flushInterval(0, TimeUnit.SECONDS)
+            .build();
+
+        reporter.report("a");
+        reporter.report("b");
+        reporter.report("c");
+
+        assertEquals(3, metrics.accepted.get());
+        assertEquals(1, metrics.dropped.get());
+    }
+
+    @Test
+    public void testReport_dropsWhenQueuedBytesExceedMax() {
+        reporter = AsyncReporter.builder(sender).metrics(metrics).flushInterval(0, TimeUnit.SECONDS)
+            .sizer(LENGTH).queuedMaxBytes(10).build();
+
+        reporter.report("12345");
+        reporter.report("1234567"); // would exceed 10 bytes
+        reporter.report("123");
+
+        assertEquals(8, reporter.queuedBytes());
+        assertEquals(1, metrics.dropped.get());
+        reporter.flush();
+        assertEquals(0, reporter.queuedBytes());
+        assertEquals(asList(asList("12345", "123")), batches);
+    }
+
+    @Test
+    public void testFlush_splitsBatchesByMessageMaxBytes() {
+        reporter = AsyncReporter.builder(sender).metrics(metrics).flushInterval(0, TimeUnit.SECONDS)
+            .sizer(LENGTH).messageMaxBytes(10).build();
+
+        reporter.report("12345");
+        reporter.report("1234");
+        reporter.report("123");
+        reporter.report("12345678901"); // could never be sent
+        reporter.flush();
+
+        assertEquals(asList(asList("12345", "1234"), asList("123")), batches);
+        assertEquals(1, metrics.dropped.get());
+    }
+
+    @Test
+    public void testSenderFailure_dropsBatch() {
+        reporter = AsyncReporter.builder(new AsyncReporter.Sender<String>() {
+            @Override
+            public void send(List<String> spans) throws IOException {
+                throw new IOException("connection refused");
+            }
+        }).metrics(metrics).flushInterval(0, TimeUnit.SECONDS).build();
+
+        reporter.report("a");
+        reporter.report("b");
+        reporter.flush();
+
+        assertEquals(2, metrics.dropped.get());
+    }
+
+    @Test
+    public void testFlusher_sendsFullBatchBeforeInterval() throws InterruptedException {
+        reporter = AsyncReporter.builder(sender).maxBatchSize(2).flushInterval(1, TimeUnit.HOURS).build();
+
+        reporter.report("a");
+        reporter.report("b");
+
+        for (int i = 0; i < 100 && batches.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(asList(asList("a", "b")), batches);
+    }
+
+    @Test
+    public void testFlusher_sendsBatchOfMessageMaxBytesBeforeInterval() throws InterruptedException {
+        reporter = AsyncReporter.builder(sender).sizer(LENGTH).messageMaxBytes(10)
+            .flushInterval(1, TimeUnit.HOURS).build();
+
+        reporter.report("12345");
+        reporter.report("67890");
+
+        for (int i = 0; i < 100 && batches.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(asList(asList("12345", "67890")), batches);
+    }
+
+    @Test
+    public void testFlusher_sendsPartialBatchAfterInterval() throws InterruptedException {
+        reporter = AsyncReporter.builder(sender).flushInterval(50, TimeUnit.MILLISECONDS).build();
+
+        reporter.report("a");
+
+        for (int i = 0; i < 100 && batches.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(asList(asList("a")), batches);
+    }
+
+    @Test
+    public void testFlush_waitsWhileFlusherSends() throws InterruptedException {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        reporter = AsyncReporter.builder(new AsyncReporter.Sender<String>() {
+            @Override
+            public void send(List<String> spans) throws IOException {
+                maxInFlight.set(Math.max(maxInFlight.get(), inFlight.incrementAndGet()));
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                batches.add(new ArrayList<>(spans));
+                inFlight.decrementAndGet();
+            }
+        }).maxBatchSize(1).flushInterval(1, TimeUnit.HOURS).build();
+
+        reporter.report("a");
+        assertTrue(sending.await(1, TimeUnit.SECONDS));
+        reporter.report("b");
+        Thread flushing = new Thread() {
+            @Override
+            public void run() {
+                reporter.flush();
+            }
+        };
+        flushing.start();
+        Thread.sleep(50);
+        release.countDown();
+        flushing.join();
+
+        assertEquals(1, maxInFlight.get());
+        assertEquals(asList(asList("a"), asList("b")), batches);
+    }
+
+    @Test
+    public void testClose_sendsQueuedSpansThenDropsNewOnes() {
+        reporter = AsyncReporter.builder(sender).metrics(metrics).flushInterval(1, TimeUnit.HOURS).build();
+
+        reporter.report("a");
+        reporter.close();
+        reporter.report("b");
+
+        assertEquals(asList(asList("a")), batches);
+        assertEquals(1, metrics.dropped.get());
+    }
+
+    @Test
+    public void testClose_doesntWaitForSendInFlight() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        reporter = AsyncReporter.builder(new AsyncReporter.Sender<String>() {
+            @Override
+            public void send(List<String> spans) throws IOException {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                batches.add(new ArrayList<>(spans));
+            }
+        }).metrics(metrics).maxBatchSize(1).flushInterval(1, TimeUnit.HOURS)
+            .closeTimeout(10, TimeUnit.MILLISECONDS).build();
+
+        reporter.report("a");
+        assertTrue(sending.await(1, TimeUnit.SECONDS));
+        reporter.report("b");
+        long start = System.nanoTime();
+        reporter.close();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        reporter.report("c"); // dropped without waiting for the send either
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (metrics.dropped.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(asList(asList("a")), batches);
+        assertEquals(2, metrics.dropped.get());
+    }
+
+    @Test
+    public void testClose_dropsQueuedSpansWithoutFlusher() {
+        reporter = AsyncReporter.builder(sender).metrics(metrics).flushInterval(0, TimeUnit.SECONDS).build();
+
+        reporter.report("a");
+        reporter.close();
+
+        assertTrue(batches.isEmpty());
+        assertEquals(1, metrics.dropped.get());
+    }
+
+    static final AsyncReporter.Sizer<String> LENGTH = new AsyncReporter.Sizer<String>() {
+        @Override
+        public int sizeInBytes(String span) {
+            return span.length();
+        }
+    };
+
+    static class TestMetricsHandler implements SpanCollectorMetricsHandler {
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+
+        @Override
+        public void incrementAcceptedSpans(int quantity) {
+            accepted.addAndGet(quantity);
+        }
+
+        @Override
+        public void incrementDroppedSpans(int quantity) {
+            dropped.addAndGet(quantity);
+        }
+    }
+}
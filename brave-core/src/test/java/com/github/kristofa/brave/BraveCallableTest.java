@@ -1,9 +1,12 @@
 package com.github.kristofa.brave;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -20,6 +23,7 @@ public class BraveCallableTest {
     private Callable<String> mockWrappedCallable;
     private ServerSpanThreadBinder mockThreadBinder;
     private ServerSpan mockServerSpan;
+    private ServerSpan mockPreviousServerSpan;
 
     @SuppressWarnings("unchecked")
     @Before
@@ -27,7 +31,8 @@ public class BraveCallableTest {
         mockWrappedCallable = mock(Callable.class);
         mockThreadBinder = mock(ServerSpanThreadBinder.class);
         mockServerSpan = mock(ServerSpan.class);
-        when(mockThreadBinder.getCurrentServerSpan()).thenReturn(mockServerSpan);
+        mockPreviousServerSpan = mock(ServerSpan.class);
+        when(mockThreadBinder.getCurrentServerSpan()).thenReturn(mockServerSpan, mockPreviousServerSpan);
         braveCallable = BraveCallable.create(mockWrappedCallable, mockThreadBinder);
     }
 
@@ -38,11 +43,28 @@ public class BraveCallableTest {
 
         final InOrder inOrder = inOrder(mockWrappedCallable, mockThreadBinder, mockServerSpan);
 
-        inOrder.verify(mockThreadBinder).getCurrentServerSpan();
+        inOrder.verify(mockThreadBinder, times(2)).getCurrentServerSpan();
         inOrder.verify(mockThreadBinder).setCurrentSpan(mockServerSpan);
         inOrder.verify(mockWrappedCallable).call();
+        inOrder.verify(mockThreadBinder).setCurrentSpan(mockPreviousServerSpan);
 
         verifyNoMoreInteractions(mockWrappedCallable, mockThreadBinder, mockServerSpan);
     }
 
+    @Test
+    public void testCall_restoresOnException() throws Exception {
+        final Exception exception = new Exception();
+        when(mockWrappedCallable.call()).thenThrow(exception);
+
+        try {
+            braveCallable.call();
+            fail();
+        } catch (Exception e) {
+            assertSame(exception, e);
+        }
+
+        final InOrder inOrder = inOrder(mockWrappedCallable, mockThreadBinder);
+        inOrder.verify(mockWrappedCallable).call();
+        inOrder.verify(mockThreadBinder).setCurrentSpan(mockPreviousServerSpan);
+    }
 }
@@ -0,0 +1,114 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.twitter.zipkin.gen.Span;
+
+public class BraveForkJoinTaskTest {
+
+    private final ThreadLocalServerClientAndLocalSpanState state =
+        new ThreadLocalServerClientAndLocalSpanState(127 << 24 | 1, 8080, "service");
+    private final Brave brave = new Brave.Builder(state).build();
+    private final ForkJoinPool pool = new ForkJoinPool(1);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        state.setCurrentLocalSpan(null);
+    }
+
+    @Test
+    public void testInvoke_propagatesContext() {
+        final Span localSpan = new Span();
+        state.setCurrentLocalSpan(localSpan);
+
+        assertSame(localSpan, pool.invoke(BraveForkJoinTask.create(new CurrentLocalSpan(), brave)));
+
+        // the worker thread's context was restored
+        state.setCurrentLocalSpan(null);
+        assertNull(pool.invoke(new CurrentLocalSpan()));
+    }
+
+    @Test
+    public void testFork_propagatesContextToWrappedSubtask() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final Span localSpan = new Span();
+            state.setCurrentLocalSpan(localSpan);
+
+            Span[] spans = pool.invoke(BraveForkJoinTask.create(new RecursiveTask<Span[]>() {
+                @Override
+                protected Span[] compute() {
+                    StolenSubtask wrapped = new StolenSubtask();
+                    StolenSubtask plain = new StolenSubtask();
+                    // waits until another worker steals the subtask, so that it doesn't run on this thread
+                    Span wrappedSpan = wrapped.forkAndJoin(BraveForkJoinTask.create(wrapped, brave));
+                    Span plainSpan = plain.forkAndJoin(plain);
+                    return new Span[] {wrappedSpan, plainSpan};
+                }
+            }, brave));
+
+            assertSame(localSpan, spans[0]);
+            assertNull(spans[1]); // not wrapped, so it doesn't see the context
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvoke_rethrowsException() {
+        try {
+            pool.invoke(BraveForkJoinTask.create(new RecursiveTask<Object>() {
+                @Override
+                protected Object compute() {
+                    throw new IllegalStateException("foo");
+                }
+            }, brave));
+            fail();
+        } catch (IllegalStateException e) {
+            // the pool may wrap the exception thrown in a worker thread in a new instance
+            assertTrue(e.getMessage().endsWith("foo"));
+        }
+    }
+
+    class StolenSubtask extends RecursiveTask<Span> {
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread forkingThread = Thread.currentThread();
+
+        Span forkAndJoin(ForkJoinTask<Span> task) {
+            task.fork();
+            try {
+                assertTrue("subtask wasn't stolen", started.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            return task.join();
+        }
+
+        @Override
+        protected Span compute() {
+            assertTrue(Thread.currentThread() != forkingThread);
+            started.countDown();
+            return state.getCurrentLocalSpan();
+        }
+    }
+
+    class CurrentLocalSpan extends RecursiveTask<Span> {
+        @Override
+        protected Span compute() {
+            return state.getCurrentLocalSpan();
+        }
+    }
+}
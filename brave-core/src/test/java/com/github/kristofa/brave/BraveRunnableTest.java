@@ -1,8 +1,12 @@
 package com.github.kristofa.brave;
 
-import static org.mockito.Matchers.anyLong;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -10,19 +14,23 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
 
+import com.twitter.zipkin.gen.Span;
+
 public class BraveRunnableTest {
 
     private BraveRunnable braveRunnable;
     private Runnable mockWrappedRunnable;
     private ServerSpanThreadBinder mockThreadBinder;
     private ServerSpan mockSpan;
+    private ServerSpan mockPreviousSpan;
 
     @Before
     public void setup() {
         mockWrappedRunnable = mock(Runnable.class);
         mockThreadBinder = mock(ServerSpanThreadBinder.class);
         mockSpan = mock(ServerSpan.class);
-        when(mockThreadBinder.getCurrentServerSpan()).thenReturn(mockSpan);
+        mockPreviousSpan = mock(ServerSpan.class);
+        when(mockThreadBinder.getCurrentServerSpan()).thenReturn(mockSpan, mockPreviousSpan);
         braveRunnable = BraveRunnable.create(mockWrappedRunnable, mockThreadBinder);
     }
 
@@ -31,11 +39,76 @@ public class BraveRunnableTest {
         braveRunnable.run();
 
         final InOrder inOrder = inOrder(mockWrappedRunnable, mockThreadBinder, mockSpan);
-        inOrder.verify(mockThreadBinder).getCurrentServerSpan();
+        inOrder.verify(mockThreadBinder, times(2)).getCurrentServerSpan();
         inOrder.verify(mockThreadBinder).setCurrentSpan(mockSpan);
         inOrder.verify(mockWrappedRunnable).run();
+        inOrder.verify(mockThreadBinder).setCurrentSpan(mockPreviousSpan);
 
         verifyNoMoreInteractions(mockWrappedRunnable, mockThreadBinder, mockSpan);
     }
 
+    @Test
+    public void testRun_restoresOnException() throws Exception {
+        final IllegalStateException exception = new IllegalStateException();
+        doThrow(exception).when(mockWrappedRunnable).run();
+
+        try {
+            braveRunnable.run();
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(exception, e);
+        }
+
+        final InOrder inOrder = inOrder(mockWrappedRunnable, mockThreadBinder);
+        inOrder.verify(mockWrappedRunnable).run();
+        inOrder.verify(mockThreadBinder).setCurrentSpan(mockPreviousSpan);
+    }
+
+    @Test
+    public void testRun_bindsServerClientAndLocalSpans() throws Exception {
+        final ThreadLocalServerClientAndLocalSpanState state =
+            new ThreadLocalServerClientAndLocalSpanState(127 << 24 | 1, 8080, "service");
+        final ServerSpan serverSpan = ServerSpan.create(1L, 2L, null, "get");
+        final Span clientSpan = new Span();
+        final Span localSpan = new Span();
+        state.setCurrentServerSpan(serverSpan);
+        state.setCurrentClientSpan(clientSpan);
+        state.setCurrentLocalSpan(localSpan);
+
+        final Object[] seen = new Object[6];
+        final BraveRunnable runnable = BraveRunnable.create(new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = state.getCurrentServerSpan();
+                seen[1] = state.getCurrentClientSpan();
+                seen[2] = state.getCurrentLocalSpan();
+            }
+        }, new Brave.Builder(state).build());
+
+        try {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runnable.run();
+                    seen[3] = state.getCurrentServerSpan().getSpan();
+                    seen[4] = state.getCurrentClientSpan();
+                    seen[5] = state.getCurrentLocalSpan();
+                }
+            });
+            thread.start();
+            thread.join();
+        } finally {
+            state.setCurrentServerSpan(null);
+            state.setCurrentClientSpan(null);
+            state.setCurrentLocalSpan(null);
+        }
+
+        assertSame(serverSpan, seen[0]);
+        assertSame(clientSpan, seen[1]);
+        assertSame(localSpan, seen[2]);
+        // nothing is left behind on the thread that ran the task
+        assertNull(seen[3]);
+        assertNull(seen[4]);
+        assertNull(seen[5]);
+    }
 }
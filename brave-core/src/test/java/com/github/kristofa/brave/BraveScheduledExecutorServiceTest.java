@@ -0,0 +1,75 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.twitter.zipkin.gen.Span;
+
+public class BraveScheduledExecutorServiceTest {
+
+    private final ThreadLocalServerClientAndLocalSpanState state =
+        new ThreadLocalServerClientAndLocalSpanState(127 << 24 | 1, 8080, "service");
+    private final Brave brave = new Brave.Builder(state).build();
+    private BraveScheduledExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = new BraveScheduledExecutorService(Executors.newSingleThreadScheduledExecutor(), brave);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        state.setCurrentServerSpan(null);
+        state.setCurrentLocalSpan(null);
+    }
+
+    @Test
+    public void testSchedule_propagatesContext() throws Exception {
+        final ServerSpan serverSpan = ServerSpan.create(1L, 2L, null, "get");
+        final Span localSpan = new Span();
+        state.setCurrentServerSpan(serverSpan);
+        state.setCurrentLocalSpan(localSpan);
+
+        assertSame(localSpan, executor.schedule(new Callable<Span>() {
+            @Override
+            public Span call() {
+                assertSame(serverSpan, state.getCurrentServerSpan());
+                return state.getCurrentLocalSpan();
+            }
+        }, 1, TimeUnit.MILLISECONDS).get());
+
+        // the worker thread's context was restored
+        state.setCurrentLocalSpan(null);
+        assertNull(executor.schedule(new Callable<Span>() {
+            @Override
+            public Span call() {
+                return state.getCurrentLocalSpan();
+            }
+        }, 1, TimeUnit.MILLISECONDS).get());
+    }
+
+    @Test
+    public void testScheduleAtFixedRate_wrapsCommand() {
+        final ScheduledExecutorService wrappedExecutor = mock(ScheduledExecutorService.class);
+        final ServerSpanThreadBinder threadBinder = mock(ServerSpanThreadBinder.class);
+        final Runnable command = mock(Runnable.class);
+
+        new BraveScheduledExecutorService(wrappedExecutor, threadBinder)
+            .scheduleAtFixedRate(command, 1, 2, TimeUnit.SECONDS);
+
+        verify(wrappedExecutor).scheduleAtFixedRate(BraveRunnable.create(command, threadBinder), 1, 2,
+            TimeUnit.SECONDS);
+    }
+}
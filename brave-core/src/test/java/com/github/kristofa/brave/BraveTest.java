@@ -66,6 +66,27 @@ public class BraveTest {
 
     }
 
+    @Test
+    public void testIdGeneratorSharedByTracers() {
+        final IdGenerator mockIdGenerator = mock(IdGenerator.class);
+        brave = new Brave.Builder(-1062731775, 8080, "unknown").idGenerator(mockIdGenerator).build();
+
+        assertSame(mockIdGenerator, brave.serverTracer().idGenerator());
+        assertSame(mockIdGenerator, brave.clientTracer().idGenerator());
+        assertSame(mockIdGenerator, brave.localTracer().idGenerator());
+    }
+
+    @Test
+    public void testClockSharedByTracers() {
+        final Clock mockClock = mock(Clock.class);
+        brave = new Brave.Builder(-1062731775, 8080, "unknown").clock(mockClock).build();
+
+        assertSame(mockClock, brave.serverTracer().clock());
+        assertSame(mockClock, brave.clientTracer().clock());
+        assertSame(mockClock, brave.localTracer().clock());
+        assertSame(mockClock, brave.serverSpanAnnotationSubmitter().clock());
+    }
+
     @Test
     public void testGetServerSpanAnnotationSubmitter() {
         assertNotNull(brave.serverSpanAnnotationSubmitter());
@@ -8,8 +8,6 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
-import java.util.Random;
-
 import com.github.kristofa.brave.example.TestServerClientAndLocalSpanStateCompilation;
 import org.junit.Before;
 import org.junit.Test;
@@ -26,7 +24,7 @@ import com.twitter.zipkin.gen.Span;
 import com.twitter.zipkin.gen.zipkinCoreConstants;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest(AnnotationSubmitter.class)
+@PrepareForTest({AnnotationSubmitter.class, Clock.class})
 public class ClientTracerTest {
 
     private final static long CURRENT_TIME_MICROSECONDS = System.currentTimeMillis() * 1000;
@@ -36,7 +34,7 @@ public class ClientTracerTest {
     private static final long TRACE_ID = 32534;
 
     private ServerClientAndLocalSpanState state = new TestServerClientAndLocalSpanStateCompilation();
-    private Random mockRandom;
+    private IdGenerator mockIdGenerator;
     private SpanCollector mockCollector;
     private ClientTracer clientTracer;
     private Span mockSpan;
@@ -45,7 +43,7 @@ public class ClientTracerTest {
     @Before
     public void setup() {
         mockSampler = mock(Sampler.class);
-        mockRandom = mock(Random.class);
+        mockIdGenerator = mock(IdGenerator.class);
         mockCollector = mock(SpanCollector.class);
         mockSpan = mock(Span.class);
 
@@ -53,7 +51,7 @@ public class ClientTracerTest {
         PowerMockito.when(System.currentTimeMillis()).thenReturn(CURRENT_TIME_MICROSECONDS / 1000);
         clientTracer = ClientTracer.builder()
             .state(state)
-            .randomGenerator(mockRandom)
+            .idGenerator(mockIdGenerator)
             .spanCollector(mockCollector)
             .traceSampler(mockSampler)
             .build();
@@ -96,6 +94,7 @@ public class ClientTracerTest {
         verifyNoMoreInteractions(mockCollector, mockSampler);
 
         assertEquals(CURRENT_TIME_MICROSECONDS, clientSent.timestamp);
+        clientSent.recorder.flushTo(clientSent);
         assertEquals(expectedAnnotation, clientSent.annotations.get(0));
 
         BinaryAnnotation serverAddress = new BinaryAnnotation()
@@ -116,6 +115,7 @@ public class ClientTracerTest {
 
         clientTracer.setClientSent(1 << 24 | 2 << 16 | 3 << 8 | 4, 9999, null);
 
+        clientSent.recorder.flushTo(clientSent);
         assertEquals("unknown", clientSent.binary_annotations.get(0).getHost().getService_name());
     }
 
@@ -163,8 +163,8 @@ public class ClientTracerTest {
     public void testStartNewSpanSampleNullNotPartOfExistingSpan() {
         state.setCurrentServerSpan(ServerSpan.create(null));
 
-        when(mockRandom.nextLong()).thenReturn(TRACE_ID);
-        when(mockSampler.isSampled(TRACE_ID)).thenReturn(true);
+        when(mockIdGenerator.nextId()).thenReturn(TRACE_ID);
+        when(mockSampler.isSampled(TRACE_ID, REQUEST_NAME)).thenReturn(true);
 
         final SpanId newSpanId = clientTracer.startNewSpan(REQUEST_NAME);
         assertNotNull(newSpanId);
@@ -177,7 +177,7 @@ public class ClientTracerTest {
                 state.getCurrentClientSpan()
         );
 
-        verify(mockSampler).isSampled(TRACE_ID);
+        verify(mockSampler).isSampled(TRACE_ID, REQUEST_NAME);
 
         verifyNoMoreInteractions(mockCollector, mockSampler);
     }
@@ -186,7 +186,7 @@ public class ClientTracerTest {
     public void testStartNewSpanSampleTrueNotPartOfExistingSpan() {
         state.setCurrentServerSpan(ServerSpan.create(true));
 
-        when(mockRandom.nextLong()).thenReturn(TRACE_ID);
+        when(mockIdGenerator.nextId()).thenReturn(TRACE_ID);
 
         final SpanId newSpanId = clientTracer.startNewSpan(REQUEST_NAME);
         assertNotNull(newSpanId);
@@ -206,7 +206,7 @@ public class ClientTracerTest {
     public void testStartNewSpanSampleTruePartOfExistingSpan() {
         final ServerSpan parentSpan = ServerSpan.create(PARENT_TRACE_ID, PARENT_SPAN_ID, null, "name");
         state.setCurrentServerSpan(parentSpan);
-        when(mockRandom.nextLong()).thenReturn(1L);
+        when(mockIdGenerator.nextId()).thenReturn(1L);
 
         final SpanId newSpanId = clientTracer.startNewSpan(REQUEST_NAME);
         assertNotNull(newSpanId);
@@ -225,16 +225,45 @@ public class ClientTracerTest {
     @Test
     public void testSamplerFalse() {
         state.setCurrentServerSpan(ServerSpan.create(null, null));
-        when(mockSampler.isSampled(TRACE_ID)).thenReturn(false);
-        when(mockRandom.nextLong()).thenReturn(TRACE_ID);
+        when(mockSampler.isSampled(TRACE_ID, REQUEST_NAME)).thenReturn(false);
+        when(mockIdGenerator.nextId()).thenReturn(TRACE_ID);
 
         assertNull(clientTracer.startNewSpan(REQUEST_NAME));
 
-        verify(mockSampler).isSampled(TRACE_ID);
+        verify(mockSampler).isSampled(TRACE_ID, REQUEST_NAME);
 
         assertNull(state.getCurrentClientSpan());
         assertEquals(state.getServerEndpoint(), state.getClientEndpoint());
 
         verifyNoMoreInteractions(mockSampler, mockCollector);
     }
+    @Test
+    public void testSetClientSent_timestampDerivedFromServerSpan() {
+        Clock mockClock = mock(Clock.class);
+        clientTracer = ClientTracer.builder()
+            .state(state)
+            .idGenerator(mockIdGenerator)
+            .spanCollector(mockCollector)
+            .traceSampler(mockSampler)
+            .clock(mockClock)
+            .build();
+
+        ServerSpan serverSpan = ServerSpan.create(PARENT_TRACE_ID, PARENT_SPAN_ID, null, "name");
+        serverSpan.getSpan().setTimestamp(1000L);
+        serverSpan.getSpan().startTick = 20000L;
+        state.setCurrentServerSpan(serverSpan);
+
+        Span clientSent = new Span();
+        state.setCurrentClientSpan(clientSent);
+        when(mockClock.nanoTime()).thenReturn(20000L + 3000L);
+
+        clientTracer.setClientSent();
+
+        verify(mockClock).nanoTime();
+        verifyNoMoreInteractions(mockClock); // wall clock isn't read again
+
+        assertEquals(1003L, clientSent.timestamp);
+        assertEquals(23000L, clientSent.startTick.longValue());
+    }
+
 }
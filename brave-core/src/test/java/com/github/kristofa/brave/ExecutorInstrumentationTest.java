@@ -0,0 +1,106 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import com.twitter.zipkin.gen.Span;
+
+public class ExecutorInstrumentationTest {
+
+    private final ThreadLocalServerClientAndLocalSpanState state =
+        new ThreadLocalServerClientAndLocalSpanState(127 << 24 | 1, 8080, "service");
+    private final SpanCollector mockCollector = mock(SpanCollector.class);
+    private final ExecutorMetricsHandler mockMetricsHandler = mock(ExecutorMetricsHandler.class);
+    private final Brave brave = new Brave.Builder(state).spanCollector(mockCollector).build();
+    private final ExecutorService wrappedExecutor = Executors.newFixedThreadPool(1);
+
+    @After
+    public void tearDown() {
+        wrappedExecutor.shutdownNow();
+        state.setCurrentServerSpan(null);
+    }
+
+    @Test
+    public void testSubmit_recordsMetrics() throws Exception {
+        BraveExecutorService executor = new BraveExecutorService(wrappedExecutor, brave, null, mockMetricsHandler);
+
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+
+        InOrder inOrder = inOrder(mockMetricsHandler);
+        inOrder.verify(mockMetricsHandler).recordQueueWait(anyLong());
+        inOrder.verify(mockMetricsHandler).updateActiveTasks(1);
+        inOrder.verify(mockMetricsHandler).updateQueueDepth(0);
+        inOrder.verify(mockMetricsHandler).recordRunTime(anyLong());
+        inOrder.verify(mockMetricsHandler).updateActiveTasks(0);
+        verifyNoMoreInteractions(mockMetricsHandler);
+        verifyZeroInteractions(mockCollector);
+    }
+
+    @Test
+    public void testSubmit_tracesTaskAsChildOfCurrentSpan() throws Exception {
+        BraveExecutorService executor =
+            new BraveExecutorService(wrappedExecutor, brave, "lookup", mockMetricsHandler);
+        state.setCurrentServerSpan(ServerSpan.create(1L, 2L, null, "get"));
+
+        Span current = executor.submit(new Callable<Span>() {
+            @Override
+            public Span call() {
+                return state.getCurrentLocalSpan();
+            }
+        }).get();
+
+        ArgumentCaptor<Span> collected = ArgumentCaptor.forClass(Span.class);
+        verify(mockCollector).collect(collected.capture());
+        Span span = collected.getValue();
+
+        assertSame(span, current);
+        assertEquals("lookup", span.getName());
+        assertEquals(1L, span.getTrace_id());
+        assertEquals(2L, span.getParent_id());
+        assertEquals(BraveExecutorService.TASK_START_ANNOTATION, span.getAnnotations().get(0).getValue());
+        assertTrue(span.getAnnotations().get(0).getTimestamp() >= span.getTimestamp());
+        assertEquals(ExecutorInstrumentation.COMPONENT, new String(span.getBinary_annotations().get(0).getValue(), "UTF-8"));
+    }
+
+    @Test
+    public void testSubmit_unsampledTaskNotTraced() throws Exception {
+        BraveExecutorService executor =
+            new BraveExecutorService(wrappedExecutor, brave, "lookup", mockMetricsHandler);
+        state.setCurrentServerSpan(ServerSpan.create(false));
+
+        assertNull(executor.submit(new Callable<Span>() {
+            @Override
+            public Span call() {
+                return state.getCurrentLocalSpan();
+            }
+        }).get());
+
+        verifyZeroInteractions(mockCollector);
+    }
+
+    @Test
+    public void testQueueDepth_unknownExecutor() {
+        assertEquals(-1, ExecutorInstrumentation.queueDepth(mock(ExecutorService.class)));
+    }
+}
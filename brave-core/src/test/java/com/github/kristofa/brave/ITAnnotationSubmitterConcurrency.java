@@ -2,6 +2,7 @@ package com.github.kristofa.brave;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -17,12 +18,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.github.kristofa.brave.SpanAndEndpoint.StaticSpanAndEndpoint;
+import com.github.kristofa.brave.internal.SpanRecorder;
 import com.twitter.zipkin.gen.Span;
 
 /**
  * This isSampled proves that we have proper synchronisation when submitted annotations for the same span. Without proper
  * synchronisation this isSampled fails with {@link ArrayIndexOutOfBoundsException} because adding items to an {@link ArrayList}
- * is not thread-safe. </p> This isSampled proves that we fixed the threading bug.
+ * is not thread-safe. </p> This isSampled proves that we fixed the threading bug. </p> Annotations are appended without locks,
+ * so this also proves none are lost, and that a span doesn't change once it was sent for collection.
  * 
  * @author kristof
  */
@@ -64,11 +67,39 @@ public class ITAnnotationSubmitterConcurrency {
             result.get();
         }
 
+        span.recorder.flushTo(span);
         assertEquals(400, span.getAnnotations().size());
         assertEquals(400, span.getBinary_annotations().size());
 
     }
 
+    @Test
+    public void testSubmitAnnotationsWhileFinishing() throws InterruptedException, ExecutionException {
+
+        final AnnotationSubmitter annotationSubmitter = AnnotationSubmitter.create(StaticSpanAndEndpoint.create(span, null));
+
+        final List<Future<?>> resultList = new ArrayList<Future<?>>();
+        for (int index = 0; index < 4; index++) {
+            resultList.add(executorService.submit(
+                new AnnotationSubmitThread(index * 10000 + 1, (index + 1) * 10000, annotationSubmitter)));
+        }
+
+        while (SpanRecorder.of(span).size() < 1000) {
+            Thread.yield();
+        }
+        assertTrue(annotationSubmitter.submitEndAnnotation("finished", mock(SpanCollector.class)));
+        final int annotationCount = span.getAnnotations().size();
+        final int binaryAnnotationCount = span.getBinary_annotations().size();
+
+        for (final Future<?> result : resultList) {
+            result.get();
+        }
+
+        assertEquals("finished", span.getAnnotations().get(annotationCount - 1).getValue());
+        assertEquals(annotationCount, span.getAnnotations().size());
+        assertEquals(binaryAnnotationCount, span.getBinary_annotations().size());
+    }
+
     private final class AnnotationSubmitThread implements Callable<Void> {
 
         private final int from;
@@ -71,4 +71,35 @@ public class IdConversionTest {
 	public void testIdShouldntBeUppercase() {
 	  	IdConversion.convertToLong("7FFFFFFFFFFFFFFF");
 	}
+
+	@Test
+	public void testConvertToChars() {
+		final char[] buffer = new char[20];
+		final int length = IdConversion.convertToChars(-4667777584646200191l, buffer, 2);
+		assertEquals(16, length);
+		assertEquals("bf38b90488a1e481", new String(buffer, 2, length));
+	}
+
+	@Test
+	public void testConvertToChars_omitsLeadingZeros() {
+		final char[] buffer = new char[16];
+		assertEquals("0", new String(buffer, 0, IdConversion.convertToChars(0, buffer, 0)));
+		assertEquals("a", new String(buffer, 0, IdConversion.convertToChars(10, buffer, 0)));
+		assertEquals("10000", new String(buffer, 0, IdConversion.convertToChars(0x10000, buffer, 0)));
+	}
+
+	@Test
+	public void testConvertToChars_matchesConvertToString() {
+		final char[] buffer = new char[16];
+		for (long id : new long[] {1, 15, 16, 255, 256, Long.MAX_VALUE, Long.MIN_VALUE, -1}) {
+			assertEquals(IdConversion.convertToString(id),
+				new String(buffer, 0, IdConversion.convertToChars(id, buffer, 0)));
+		}
+	}
+
+	@Test
+	public void testConvertToLong_charSequence() {
+		final StringBuilder id = new StringBuilder("7a842183262a6c62");
+		assertEquals(8828218016717761634l, IdConversion.convertToLong(id));
+	}
 }
@@ -0,0 +1,45 @@
+package com.github.kristofa.brave;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IdGeneratorTest {
+
+    @Test
+    public void testCreate_sharedInstance() {
+        assertSame(IdGenerator.create(), IdGenerator.create());
+    }
+
+    @Test
+    public void testCreate_generatesDistinctIds() {
+        final IdGenerator idGenerator = IdGenerator.create();
+        final Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(idGenerator.nextId());
+        }
+        assertEquals(1000, ids.size());
+    }
+
+    @Test
+    public void testCreateWithRandom_delegates() {
+        final Random mockRandom = mock(Random.class);
+        when(mockRandom.nextLong()).thenReturn(555L);
+
+        assertEquals(555L, IdGenerator.create(mockRandom).nextId());
+        verify(mockRandom).nextLong();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testCreateWithRandom_nullRandom() {
+        IdGenerator.create(null);
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.twitter.zipkin.gen.Span;
+import org.junit.Test;
+
+public class LatencyOutlierSamplerTest {
+
+    private final List<Span> noChildren = Collections.emptyList();
+    private final LatencyOutlierSampler sampler = new LatencyOutlierSampler(0.99, 2);
+
+    @Test
+    public void testKeepsOutliersPerSpanName() {
+        for (int i = 0; i < LatencyOutlierSampler.MIN_DURATIONS; i++) {
+            assertFalse(sampler.isSampled(root("fast", 2000L), noChildren));
+            assertFalse(sampler.isSampled(root("slow", 2000000L), noChildren));
+        }
+
+        assertTrue(sampler.isSampled(root("fast", 50000L), noChildren));
+        assertFalse(sampler.isSampled(root("slow", 50000L), noChildren));
+        assertTrue(sampler.isSampled(root("slow", 3000000L), noChildren));
+    }
+
+    @Test
+    public void testNoThresholdUntilEnoughDurations() {
+        for (int i = 1; i < LatencyOutlierSampler.MIN_DURATIONS; i++) {
+            sampler.isSampled(root("get", 2000L), noChildren);
+        }
+
+        assertEquals(-1, sampler.threshold("get"));
+        assertFalse(sampler.isSampled(root("get", 1000000L), noChildren));
+        assertTrue(sampler.threshold("get") >= 2000L);
+    }
+
+    @Test
+    public void testBoundsSpanNames() {
+        for (String name : new String[] {"a", "b", "c"}) {
+            for (int i = 0; i < LatencyOutlierSampler.MIN_DURATIONS; i++) {
+                sampler.isSampled(root(name, 2000L), noChildren);
+            }
+        }
+
+        assertFalse(sampler.isSampled(root("c", 1000000L), noChildren));
+        assertEquals(-1, sampler.threshold("c"));
+    }
+
+    @Test
+    public void testIgnoresSpansWithoutDuration() {
+        assertFalse(sampler.isSampled(new Span().setName("get"), noChildren));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuantile() {
+        LatencyOutlierSampler.create(1.0);
+    }
+
+    static Span root(String name, long durationMicros) {
+        return new Span().setTrace_id(1L).setId(1L).setName(name).setDuration(durationMicros);
+    }
+}
@@ -2,18 +2,19 @@ package com.github.kristofa.brave;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
-import java.util.Random;
-
 import com.github.kristofa.brave.example.TestServerClientAndLocalSpanStateCompilation;
 import com.github.kristofa.brave.internal.Util;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -21,7 +22,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import com.twitter.zipkin.gen.Span;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({AnnotationSubmitter.class, LocalTracer.class})
+@PrepareForTest({AnnotationSubmitter.class, LocalTracer.class, Clock.class})
 public class LocalTracerTest {
 
     private static final long PARENT_TRACE_ID = 105;
@@ -30,21 +31,21 @@ public class LocalTracerTest {
     private static final String OPERATION_NAME = "operationname";
 
     private ServerClientAndLocalSpanState state = new TestServerClientAndLocalSpanStateCompilation();
-    private Random mockRandom;
+    private IdGenerator mockIdGenerator;
     private SpanCollector mockCollector;
     private LocalTracer localTracer;
 
     @Before
     public void setup() {
-        mockRandom = mock(Random.class);
-        when(mockRandom.nextLong()).thenReturn(555l);
+        mockIdGenerator = mock(IdGenerator.class);
+        when(mockIdGenerator.nextId()).thenReturn(555l);
 
         mockCollector = mock(SpanCollector.class);
 
         PowerMockito.mockStatic(System.class);
         localTracer = LocalTracer.builder()
                 .spanAndEndpoint(SpanAndEndpoint.LocalSpanAndEndpoint.create(state))
-                .randomGenerator(mockRandom)
+                .idGenerator(mockIdGenerator)
                 .spanCollector(mockCollector)
                 .traceSampler(Sampler.create(1.0f))
                 .build();
@@ -74,6 +75,7 @@ public class LocalTracerTest {
 
         assertEquals(1000L, started.timestamp);
         assertEquals(500L, started.startTick.longValue());
+        started.recorder.flushTo(started);
         assertEquals("lc", started.binary_annotations.get(0).getKey());
         assertEquals(COMPONENT_NAME, new String(started.binary_annotations.get(0).getValue(), Util.UTF_8));
         assertEquals(state.getClientEndpoint(), started.binary_annotations.get(0).host);
@@ -110,6 +112,61 @@ public class LocalTracerTest {
         assertNull(localTracer.startNewSpan(COMPONENT_NAME, OPERATION_NAME));
     }
 
+    /**
+     * A local span started while another is current becomes its child. Finishing it makes the
+     * enclosing span current again.
+     * <p>
+     * <p/>Ex.
+     * <pre>
+     * localTracer.startNewSpan("cache", "get");
+     * localTracer.startNewSpan("codec", "decode"); // child of "get"
+     * localTracer.finishSpan(); // "get" is current again
+     * localTracer.finishSpan();
+     * </pre>
+     */
+    @Test
+    public void startNewSpan_nested() {
+        state.setCurrentServerSpan(ServerSpan.create(PARENT_TRACE_ID, PARENT_SPAN_ID, null, "name"));
+        when(mockIdGenerator.nextId()).thenReturn(555L, 556L);
+
+        assertEquals(SpanId.create(PARENT_TRACE_ID, 555L, PARENT_SPAN_ID),
+            localTracer.startNewSpan(COMPONENT_NAME, "get"));
+        Span outer = state.getCurrentLocalSpan();
+
+        assertEquals(SpanId.create(PARENT_TRACE_ID, 556L, 555L),
+            localTracer.startNewSpan(COMPONENT_NAME, "decode"));
+        Span inner = state.getCurrentLocalSpan();
+
+        localTracer.finishSpan();
+        assertSame(outer, state.getCurrentLocalSpan());
+        assertNull("Shouldn't retain the parent after finishing", inner.localParent);
+
+        localTracer.finishSpan();
+        assertNull(state.getCurrentLocalSpan());
+
+        InOrder inOrder = inOrder(mockCollector);
+        inOrder.verify(mockCollector).collect(inner);
+        inOrder.verify(mockCollector).collect(outer);
+        verifyNoMoreInteractions(mockCollector);
+    }
+
+    /**
+     * Without a server span, the outermost local span is the root of the trace, and its children
+     * are sampled without consulting the sampler again.
+     */
+    @Test
+    public void startNewSpan_nestedWithoutServerSpan() {
+        when(mockIdGenerator.nextId()).thenReturn(555L, 556L);
+
+        localTracer.startNewSpan(COMPONENT_NAME, "get");
+        localTracer = LocalTracer
+                .builder(localTracer)
+                .traceSampler(Sampler.create(0.0f)).build();
+
+        assertEquals(SpanId.create(555L, 556L, 555L),
+            localTracer.startNewSpan(COMPONENT_NAME, "decode"));
+    }
+
     /**
      * When finish is called without a duration, the startTick from start is used in duration calculation.
      * <p>
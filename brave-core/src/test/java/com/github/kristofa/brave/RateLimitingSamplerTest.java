@@ -0,0 +1,84 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RateLimitingSamplerTest {
+
+    private final Clock mockClock = mock(Clock.class);
+
+    @Before
+    public void setup() {
+        when(mockClock.nanoTime()).thenReturn(0L);
+    }
+
+    @Test
+    public void testSamplesUpToLimitPerSecond() {
+        Sampler sampler = new RateLimitingSampler(2, mockClock);
+
+        assertTrue(sampler.isSampled(1L));
+        assertTrue(sampler.isSampled(2L));
+        assertFalse(sampler.isSampled(3L));
+
+        when(mockClock.nanoTime()).thenReturn(RateLimitingSampler.NANOS_PER_SECOND - 1);
+        assertFalse(sampler.isSampled(4L));
+
+        when(mockClock.nanoTime()).thenReturn(RateLimitingSampler.NANOS_PER_SECOND);
+        assertTrue(sampler.isSampled(5L));
+        assertTrue(sampler.isSampled(6L));
+        assertFalse(sampler.isSampled(7L));
+    }
+
+    @Test
+    public void testZeroSamplesNothing() {
+        Sampler sampler = new RateLimitingSampler(0, mockClock);
+
+        assertFalse(sampler.isSampled(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRate() {
+        RateLimitingSampler.create(-1);
+    }
+
+    @Test
+    public void testConcurrentCallersDontExceedLimit() throws Exception {
+        final Sampler sampler = new RateLimitingSampler(1000, mockClock);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int sampled = 0;
+                        for (int j = 0; j < 10000; j++) {
+                            if (sampler.isSampled(j)) sampled++;
+                        }
+                        return sampled;
+                    }
+                }));
+            }
+            int sampled = 0;
+            for (Future<Integer> future : futures) {
+                sampled += future.get();
+            }
+            assertEquals(1000, sampled);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
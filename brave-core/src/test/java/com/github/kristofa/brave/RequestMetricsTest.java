@@ -0,0 +1,187 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+    private static final long TRACE_ID = 1L;
+
+    private final Clock mockClock = mock(Clock.class);
+    private final ServerClientAndLocalSpanState state =
+        new ThreadLocalServerClientAndLocalSpanState(127 << 24 | 1, 8080, "service");
+    private RequestMetrics metrics;
+    private Brave brave;
+
+    @Before
+    public void setup() {
+        metrics = new RequestMetrics(2, mockClock);
+        brave = new Brave.Builder(state)
+            .clock(mockClock)
+            .spanCollector(new EmptySpanCollector())
+            .requestMetrics(metrics)
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        brave.serverTracer().clearCurrentSpan();
+        state.setCurrentClientSpan(null);
+    }
+
+    @Test
+    public void testCountsSampledServerRequest() {
+        when(mockClock.nanoTime()).thenReturn(0L);
+        brave.serverRequestInterceptor().handle(serverRequest(TraceData.builder()
+            .sample(true).spanId(SpanId.create(TRACE_ID, TRACE_ID, null)).build(), "get"));
+        when(mockClock.nanoTime()).thenReturn(5119000L);
+        brave.serverResponseInterceptor().handle(serverResponse(Collections.<KeyValueAnnotation>emptyList()));
+
+        RequestMetrics.Stats stats = metrics.serverRequests().get("get");
+        assertEquals(1, stats.requests());
+        assertEquals(0, stats.errors());
+        assertEquals(5119, stats.durationQuantile(1.0)); // upper bound of its histogram bucket
+    }
+
+    @Test
+    public void testCountsUnsampledServerRequest() {
+        when(mockClock.nanoTime()).thenReturn(1000000L);
+        brave.serverRequestInterceptor().handle(serverRequest(TraceData.builder().sample(false).build(), "get"));
+        when(mockClock.nanoTime()).thenReturn(3047000L);
+        brave.serverResponseInterceptor().handle(serverResponse(
+            Arrays.asList(KeyValueAnnotation.create("http.responsecode", "500"))));
+
+        RequestMetrics.Stats stats = metrics.serverRequests().get("get");
+        assertEquals(1, stats.requests());
+        assertEquals(1, stats.errors());
+        assertEquals(2047, stats.durationQuantile(1.0));
+    }
+
+    @Test
+    public void testCountsServerRequestWhenItStarts() {
+        brave.serverRequestInterceptor().handle(serverRequest(TraceData.builder().sample(false).build(), "get"));
+
+        RequestMetrics.Stats stats = metrics.serverRequests().get("get");
+        assertEquals(1, stats.requests());
+        assertEquals(-1, stats.durationQuantile(1.0));
+    }
+
+    @Test
+    public void testCountsSampledServerResponseOnAnotherThread() throws Exception {
+        when(mockClock.nanoTime()).thenReturn(0L);
+        brave.serverRequestInterceptor().handle(serverRequest(TraceData.builder()
+            .sample(true).spanId(SpanId.create(TRACE_ID, TRACE_ID, null)).build(), "get"));
+        final ServerSpan sampled = brave.serverSpanThreadBinder().getCurrentServerSpan();
+        brave.serverTracer().clearCurrentSpan();
+
+        when(mockClock.nanoTime()).thenReturn(2047000L);
+        Thread responseThread = new Thread() {
+            @Override
+            public void run() {
+                brave.serverSpanThreadBinder().setCurrentSpan(sampled);
+                brave.serverResponseInterceptor().handle(serverResponse(
+                    Arrays.asList(KeyValueAnnotation.create("error", "timeout"))));
+            }
+        };
+        responseThread.start();
+        responseThread.join();
+
+        RequestMetrics.Stats stats = metrics.serverRequests().get("get");
+        assertEquals(1, stats.requests());
+        assertEquals(1, stats.errors());
+        assertEquals(2047, stats.durationQuantile(1.0));
+    }
+
+    @Test
+    public void testCountsClientRequests() {
+        when(mockClock.nanoTime()).thenReturn(0L);
+        brave.clientRequestInterceptor().handle(clientRequest("users"));
+        when(mockClock.nanoTime()).thenReturn(7000L);
+        brave.clientResponseInterceptor().handle(clientResponse(
+            Arrays.asList(KeyValueAnnotation.create("error", "timeout"))));
+
+        RequestMetrics.Stats stats = metrics.clientRequests().get("users");
+        assertEquals(1, stats.requests());
+        assertEquals(1, stats.errors());
+        assertEquals(7, stats.durationQuantile(1.0));
+        assertNull(metrics.serverRequests().get("users"));
+    }
+
+    @Test
+    public void testCountsUnsampledClientRequest() {
+        brave.serverTracer().setStateNoTracing();
+        when(mockClock.nanoTime()).thenReturn(0L);
+        brave.clientRequestInterceptor().handle(clientRequest("users"));
+        when(mockClock.nanoTime()).thenReturn(7000L);
+        brave.clientResponseInterceptor().handle(clientResponse(
+            Arrays.asList(KeyValueAnnotation.create("error", "timeout"))));
+
+        RequestMetrics.Stats stats = metrics.clientRequests().get("users");
+        assertEquals(1, stats.requests());
+        assertEquals(1, stats.errors());
+        assertEquals(7, stats.durationQuantile(1.0));
+    }
+
+    @Test
+    public void testUnsampledServerRequestDoesntAllocateServerSpan() {
+        brave.serverRequestInterceptor().handle(serverRequest(TraceData.builder().sample(false).build(), "get"));
+
+        assertSame(ServerSpan.NOT_SAMPLED, brave.serverSpanThreadBinder().getCurrentServerSpan());
+    }
+
+    @Test
+    public void testBoundsSpanNames() {
+        for (String name : new String[] {"a", "b", "c", "d"}) {
+            brave.serverRequestInterceptor().handle(serverRequest(TraceData.builder().sample(false).build(), name));
+            brave.serverResponseInterceptor().handle(serverResponse(Collections.<KeyValueAnnotation>emptyList()));
+        }
+
+        assertEquals(3, metrics.serverRequests().size());
+        assertEquals(2, metrics.serverRequests().get(RequestMetrics.OTHER).requests());
+    }
+
+    @Test
+    public void testIgnoresResponseWithoutRequest() {
+        brave.serverResponseInterceptor().handle(serverResponse(Collections.<KeyValueAnnotation>emptyList()));
+
+        assertEquals(0, metrics.serverRequests().size());
+    }
+
+    static ServerRequestAdapter serverRequest(TraceData traceData, String spanName) {
+        ServerRequestAdapter adapter = mock(ServerRequestAdapter.class);
+        when(adapter.getTraceData()).thenReturn(traceData);
+        when(adapter.getSpanName()).thenReturn(spanName);
+        when(adapter.requestAnnotations()).thenReturn(Collections.<KeyValueAnnotation>emptyList());
+        return adapter;
+    }
+
+    static ServerResponseAdapter serverResponse(Collection<KeyValueAnnotation> annotations) {
+        ServerResponseAdapter adapter = mock(ServerResponseAdapter.class);
+        when(adapter.responseAnnotations()).thenReturn(annotations);
+        return adapter;
+    }
+
+    static ClientRequestAdapter clientRequest(String spanName) {
+        ClientRequestAdapter adapter = mock(ClientRequestAdapter.class);
+        when(adapter.getSpanName()).thenReturn(spanName);
+        when(adapter.requestAnnotations()).thenReturn(Collections.<KeyValueAnnotation>emptyList());
+        return adapter;
+    }
+
+    static ClientResponseAdapter clientResponse(Collection<KeyValueAnnotation> annotations) {
+        ClientResponseAdapter adapter = mock(ClientResponseAdapter.class);
+        when(adapter.responseAnnotations()).thenReturn(annotations);
+        return adapter;
+    }
+}
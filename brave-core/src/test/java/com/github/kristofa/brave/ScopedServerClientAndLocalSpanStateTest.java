@@ -0,0 +1,174 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.kristofa.brave.ScopedServerClientAndLocalSpanState.Context;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+
+public class ScopedServerClientAndLocalSpanStateTest {
+
+    private static final short PORT = 80;
+    private static final String SERVICE_NAME = "service";
+    private ScopedServerClientAndLocalSpanState state;
+    private ServerSpan mockServerSpan;
+    private Span mockSpan;
+
+    @Before
+    public void setup() {
+        // -1062731775 = 192.168.0.1
+        state = new ScopedServerClientAndLocalSpanState(-1062731775, PORT, SERVICE_NAME);
+        mockServerSpan = mock(ServerSpan.class);
+        mockSpan = mock(Span.class);
+    }
+
+    @After
+    public void tearDown() {
+        state.setCurrentClientSpan(null);
+        state.setCurrentServerSpan(null);
+        state.setCurrentLocalSpan(null);
+        state.setCurrentClientServiceName(null);
+    }
+
+    @Test
+    public void testGetAndSetCurrentServerSpan() {
+        assertEquals(ServerSpan.create(null), state.getCurrentServerSpan());
+        state.setCurrentServerSpan(mockServerSpan);
+        assertSame(mockServerSpan, state.getCurrentServerSpan());
+        assertNull("Should not have been modified.", state.getCurrentClientSpan());
+        assertNull("Should not have been modified.", state.getCurrentLocalSpan());
+    }
+
+    @Test
+    public void testGetAndSetCurrentClientSpan() {
+        assertNull(state.getCurrentClientSpan());
+        state.setCurrentClientSpan(mockSpan);
+        assertSame(mockSpan, state.getCurrentClientSpan());
+        assertEquals("Should not have been modified.", ServerSpan.create(null),
+            state.getCurrentServerSpan());
+    }
+
+    @Test
+    public void testGetAndSetCurrentLocalSpan() {
+        assertNull(state.getCurrentLocalSpan());
+        state.setCurrentLocalSpan(mockSpan);
+        assertSame(mockSpan, state.getCurrentLocalSpan());
+        assertNull("Should not have been modified.", state.getCurrentClientSpan());
+    }
+
+    @Test
+    public void testSample() {
+        assertNull(state.sample());
+        state.setCurrentServerSpan(ServerSpan.NOT_SAMPLED);
+        assertEquals(Boolean.FALSE, state.sample());
+    }
+
+    @Test
+    public void testGetClientEndpoint() {
+        assertSame(state.getServerEndpoint(), state.getClientEndpoint());
+
+        state.setCurrentClientServiceName("client");
+        assertEquals(new Endpoint(-1062731775, PORT, "client"), state.getClientEndpoint());
+        assertSame("Should be cached.", state.getClientEndpoint(), state.getClientEndpoint());
+    }
+
+    @Test
+    public void testClearingServerSpanKeepsClientSpan() {
+        state.setCurrentServerSpan(mockServerSpan);
+        state.setCurrentClientSpan(mockSpan);
+
+        state.setCurrentServerSpan(null);
+
+        assertEquals(ServerSpan.create(null), state.getCurrentServerSpan());
+        assertSame(mockSpan, state.getCurrentClientSpan());
+    }
+
+    @Test
+    public void testStateIsPerThread() throws Exception {
+        state.setCurrentServerSpan(mockServerSpan);
+        state.setCurrentClientSpan(mockSpan);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Span otherThreadClientSpan = executor.submit(new Callable<Span>() {
+                @Override
+                public Span call() {
+                    return state.getCurrentClientSpan();
+                }
+            }).get();
+            assertNull(otherThreadClientSpan);
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(mockSpan, state.getCurrentClientSpan());
+    }
+
+    @Test
+    public void testContextIsImmutable() {
+        state.setCurrentServerSpan(mockServerSpan);
+        Context captured = state.currentContext();
+
+        state.setCurrentLocalSpan(mockSpan);
+
+        assertSame(mockServerSpan, captured.serverSpan);
+        assertNull("Should not have been modified.", captured.localSpan);
+        assertNotSame(captured, state.currentContext());
+    }
+
+    @Test
+    public void testBind_returnsPreviousContext() {
+        state.setCurrentServerSpan(mockServerSpan);
+        Context captured = state.bind(null);
+
+        assertSame(Context.EMPTY, state.currentContext());
+        assertSame(Context.EMPTY, state.bind(captured));
+        assertSame(mockServerSpan, state.getCurrentServerSpan());
+    }
+
+    @Test
+    public void testEmptyContextIsShared() {
+        state.setCurrentClientServiceName("client");
+        state.setCurrentClientServiceName(null);
+
+        assertSame(Context.EMPTY, state.currentContext());
+    }
+
+    @Test
+    public void testWrap_runsInCallerContext() throws Exception {
+        state.setCurrentServerSpan(mockServerSpan);
+        state.setCurrentLocalSpan(mockSpan);
+        final Runnable wrapped = state.wrap(new Runnable() {
+            @Override
+            public void run() {
+                assertSame(mockServerSpan, state.getCurrentServerSpan());
+                assertSame(mockSpan, state.getCurrentLocalSpan());
+            }
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Context afterTask = executor.submit(new Callable<Context>() {
+                @Override
+                public Context call() {
+                    wrapped.run();
+                    return state.currentContext();
+                }
+            }).get();
+            assertSame("Should restore the worker's context.", Context.EMPTY, afterTask);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
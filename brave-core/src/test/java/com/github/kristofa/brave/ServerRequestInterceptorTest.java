@@ -56,6 +56,36 @@ public class ServerRequestInterceptorTest {
         verifyNoMoreInteractions(serverTracer);
     }
 
+    @Test
+    public void handleSampleTrueWithoutState() {
+        TraceData traceData = TraceData.builder().sample(true).build();
+        when(adapter.getTraceData()).thenReturn(traceData);
+        when(adapter.getSpanName()).thenReturn(SPAN_NAME);
+        when(adapter.requestAnnotations()).thenReturn(Collections.EMPTY_LIST);
+
+        interceptor.handle(adapter);
+        InOrder inOrder = inOrder(serverTracer);
+        inOrder.verify(serverTracer).clearCurrentSpan();
+        inOrder.verify(serverTracer).setStateUnknown(SPAN_NAME);
+        inOrder.verify(serverTracer).setServerReceived();
+        verifyNoMoreInteractions(serverTracer);
+    }
+
+    @Test
+    public void handleLocallySampledWithoutState() {
+        TraceData traceData = TraceData.builder().sample(true).localDecision(true).build();
+        when(adapter.getTraceData()).thenReturn(traceData);
+        when(adapter.getSpanName()).thenReturn(SPAN_NAME);
+        when(adapter.requestAnnotations()).thenReturn(Collections.EMPTY_LIST);
+
+        interceptor.handle(adapter);
+        InOrder inOrder = inOrder(serverTracer);
+        inOrder.verify(serverTracer).clearCurrentSpan();
+        inOrder.verify(serverTracer).setStateSampled(SPAN_NAME);
+        inOrder.verify(serverTracer).setServerReceived();
+        verifyNoMoreInteractions(serverTracer);
+    }
+
     @Test
     public void handleSampleRequestWithParentSpanId() {
         TraceData traceData = TraceData.builder().spanId(SpanId.create(TRACE_ID, SPAN_ID, PARENT_SPAN_ID)).sample(true).build();
@@ -15,8 +15,6 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.util.Random;
-
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -26,7 +24,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest(AnnotationSubmitter.class)
+@PrepareForTest({AnnotationSubmitter.class, Clock.class})
 public class ServerTracerTest {
 
     private final static long CURRENT_TIME_MICROSECONDS = System.currentTimeMillis() * 1000;
@@ -41,7 +39,7 @@ public class ServerTracerTest {
     private ServerSpan mockServerSpan;
     private Span mockSpan;
     private Endpoint mockEndpoint;
-    private Random mockRandom;
+    private IdGenerator mockIdGenerator;
     private Sampler mockSampler;
 
     @Before
@@ -52,14 +50,14 @@ public class ServerTracerTest {
         mockServerSpan = mock(ServerSpan.class);
 
         mockEndpoint = new Endpoint();
-        mockRandom = mock(Random.class);
+        mockIdGenerator = mock(IdGenerator.class);
         mockSampler = mock(Sampler.class);
 
         PowerMockito.mockStatic(System.class);
         PowerMockito.when(System.currentTimeMillis()).thenReturn(CURRENT_TIME_MICROSECONDS / 1000);
         serverTracer = ServerTracer.builder()
             .state(mockServerSpanState)
-            .randomGenerator(mockRandom)
+            .idGenerator(mockIdGenerator)
             .spanCollector(mockSpanCollector)
             .traceSampler(mockSampler).build();
     }
@@ -90,38 +88,50 @@ public class ServerTracerTest {
     @Test
     public void testSetStateUnknownSamplerTrue() {
 
-        when(mockRandom.nextLong()).thenReturn(TRACE_ID);
-        when(mockSampler.isSampled(TRACE_ID)).thenReturn(true);
+        when(mockIdGenerator.nextId()).thenReturn(TRACE_ID);
+        when(mockSampler.isSampled(TRACE_ID, SPAN_NAME)).thenReturn(true);
 
         serverTracer.setStateUnknown(SPAN_NAME);
         final ServerSpan expectedServerSpan = ServerSpan.create(TRACE_ID, TRACE_ID, null, SPAN_NAME);
 
-        final InOrder inOrder = inOrder(mockSampler, mockRandom, mockServerSpanState);
+        final InOrder inOrder = inOrder(mockSampler, mockIdGenerator, mockServerSpanState);
 
-        inOrder.verify(mockRandom).nextLong();
-        inOrder.verify(mockSampler).isSampled(TRACE_ID);
+        inOrder.verify(mockIdGenerator).nextId();
+        inOrder.verify(mockSampler).isSampled(TRACE_ID, SPAN_NAME);
         inOrder.verify(mockServerSpanState).setCurrentServerSpan(expectedServerSpan);
 
-        verifyNoMoreInteractions(mockServerSpanState, mockSpanCollector, mockRandom);
+        verifyNoMoreInteractions(mockServerSpanState, mockSpanCollector, mockIdGenerator);
+    }
+
+    @Test
+    public void testSetStateSampledSkipsSampler() {
+
+        when(mockIdGenerator.nextId()).thenReturn(TRACE_ID);
+
+        serverTracer.setStateSampled(SPAN_NAME);
+
+        verify(mockIdGenerator).nextId();
+        verify(mockServerSpanState).setCurrentServerSpan(ServerSpan.create(TRACE_ID, TRACE_ID, null, SPAN_NAME));
+        verifyNoMoreInteractions(mockServerSpanState, mockSpanCollector, mockIdGenerator, mockSampler);
     }
 
     @Test
     public void testSetStateUnknownSamplerFalse() {
 
-        when(mockRandom.nextLong()).thenReturn(TRACE_ID);
-        when(mockSampler.isSampled(TRACE_ID)).thenReturn(false);
+        when(mockIdGenerator.nextId()).thenReturn(TRACE_ID);
+        when(mockSampler.isSampled(TRACE_ID, SPAN_NAME)).thenReturn(false);
 
         final ServerSpan expectedServerSpan = ServerSpan.create(false);
 
         serverTracer.setStateUnknown(SPAN_NAME);
 
-        final InOrder inOrder = inOrder(mockSampler, mockRandom, mockServerSpanState);
+        final InOrder inOrder = inOrder(mockSampler, mockIdGenerator, mockServerSpanState);
 
-        inOrder.verify(mockRandom).nextLong();
-        inOrder.verify(mockSampler).isSampled(TRACE_ID);
+        inOrder.verify(mockIdGenerator).nextId();
+        inOrder.verify(mockSampler).isSampled(TRACE_ID, SPAN_NAME);
         inOrder.verify(mockServerSpanState).setCurrentServerSpan(expectedServerSpan);
 
-        verifyNoMoreInteractions(mockServerSpanState, mockSpanCollector, mockRandom);
+        verifyNoMoreInteractions(mockServerSpanState, mockSpanCollector, mockIdGenerator);
     }
 
     @Test
@@ -175,6 +185,7 @@ public class ServerTracerTest {
         verifyNoMoreInteractions(mockServerSpanState, mockSpanCollector);
 
         assertEquals(CURRENT_TIME_MICROSECONDS, serverRecv.timestamp);
+        serverRecv.recorder.flushTo(serverRecv);
         assertEquals(expectedAnnotation, serverRecv.annotations.get(0));
 
         BinaryAnnotation serverAddress = new BinaryAnnotation()
@@ -196,6 +207,7 @@ public class ServerTracerTest {
         when(mockServerSpanState.getServerEndpoint()).thenReturn(mockEndpoint);
         serverTracer.setServerReceived(1 << 24 | 2 << 16 | 3 << 8 | 4, 9999, null);
 
+        serverRecv.recorder.flushTo(serverRecv);
         assertEquals("unknown", serverRecv.binary_annotations.get(0).getHost().getService_name());
     }
 
@@ -233,4 +245,30 @@ public class ServerTracerTest {
         assertEquals(expectedAnnotation, serverSend.annotations.get(0));
     }
 
+    @Test
+    public void testSetServerSend_durationFromStartTick() {
+        Clock mockClock = mock(Clock.class);
+        serverTracer = ServerTracer.builder()
+            .state(mockServerSpanState)
+            .idGenerator(mockIdGenerator)
+            .spanCollector(mockSpanCollector)
+            .traceSampler(mockSampler)
+            .clock(mockClock).build();
+
+        Span serverSend = new Span().setTimestamp(100L);
+        serverSend.startTick = 5000L;
+        when(mockServerSpan.getSpan()).thenReturn(serverSend);
+        when(mockServerSpanState.getCurrentServerSpan()).thenReturn(mockServerSpan);
+        when(mockServerSpanState.getServerEndpoint()).thenReturn(mockEndpoint);
+        when(mockClock.nanoTime()).thenReturn(5000L + 1500L);
+
+        serverTracer.setServerSend();
+
+        verify(mockClock).nanoTime();
+        verifyNoMoreInteractions(mockClock);
+
+        assertEquals(1L, serverSend.duration); // sub-millisecond precision, in microseconds
+        assertEquals(101L, serverSend.annotations.get(0).timestamp);
+    }
+
 }
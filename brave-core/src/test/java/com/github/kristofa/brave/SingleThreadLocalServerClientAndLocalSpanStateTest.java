@@ -0,0 +1,115 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+
+public class SingleThreadLocalServerClientAndLocalSpanStateTest {
+
+    private static final short PORT = 80;
+    private static final String SERVICE_NAME = "service";
+    private SingleThreadLocalServerClientAndLocalSpanState state;
+    private ServerSpan mockServerSpan;
+    private Span mockSpan;
+
+    @Before
+    public void setup() {
+        // -1062731775 = 192.168.0.1
+        state = new SingleThreadLocalServerClientAndLocalSpanState(-1062731775, PORT, SERVICE_NAME);
+        mockServerSpan = mock(ServerSpan.class);
+        mockSpan = mock(Span.class);
+    }
+
+    @After
+    public void tearDown() {
+        state.setCurrentClientSpan(null);
+        state.setCurrentServerSpan(null);
+        state.setCurrentLocalSpan(null);
+        state.setCurrentClientServiceName(null);
+    }
+
+    @Test
+    public void testGetAndSetCurrentServerSpan() {
+        assertEquals(ServerSpan.create(null), state.getCurrentServerSpan());
+        state.setCurrentServerSpan(mockServerSpan);
+        assertSame(mockServerSpan, state.getCurrentServerSpan());
+        assertNull("Should not have been modified.", state.getCurrentClientSpan());
+        assertNull("Should not have been modified.", state.getCurrentLocalSpan());
+    }
+
+    @Test
+    public void testGetAndSetCurrentClientSpan() {
+        assertNull(state.getCurrentClientSpan());
+        state.setCurrentClientSpan(mockSpan);
+        assertSame(mockSpan, state.getCurrentClientSpan());
+        assertEquals("Should not have been modified.", ServerSpan.create(null),
+            state.getCurrentServerSpan());
+    }
+
+    @Test
+    public void testGetAndSetCurrentLocalSpan() {
+        assertNull(state.getCurrentLocalSpan());
+        state.setCurrentLocalSpan(mockSpan);
+        assertSame(mockSpan, state.getCurrentLocalSpan());
+        assertNull("Should not have been modified.", state.getCurrentClientSpan());
+    }
+
+    @Test
+    public void testSample() {
+        assertNull(state.sample());
+        state.setCurrentServerSpan(ServerSpan.NOT_SAMPLED);
+        assertEquals(Boolean.FALSE, state.sample());
+    }
+
+    @Test
+    public void testGetClientEndpoint() {
+        assertSame(state.getServerEndpoint(), state.getClientEndpoint());
+
+        state.setCurrentClientServiceName("client");
+        assertEquals(new Endpoint(-1062731775, PORT, "client"), state.getClientEndpoint());
+        assertSame("Should be cached.", state.getClientEndpoint(), state.getClientEndpoint());
+    }
+
+    @Test
+    public void testClearingServerSpanKeepsClientSpan() {
+        state.setCurrentServerSpan(mockServerSpan);
+        state.setCurrentClientSpan(mockSpan);
+
+        state.setCurrentServerSpan(null);
+
+        assertEquals(ServerSpan.create(null), state.getCurrentServerSpan());
+        assertSame(mockSpan, state.getCurrentClientSpan());
+    }
+
+    @Test
+    public void testStateIsPerThread() throws Exception {
+        state.setCurrentServerSpan(mockServerSpan);
+        state.setCurrentClientSpan(mockSpan);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Span otherThreadClientSpan = executor.submit(new Callable<Span>() {
+                @Override
+                public Span call() {
+                    return state.getCurrentClientSpan();
+                }
+            }).get();
+            assertNull(otherThreadClientSpan);
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(mockSpan, state.getCurrentClientSpan());
+    }
+}
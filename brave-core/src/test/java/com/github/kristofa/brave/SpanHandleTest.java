@@ -0,0 +1,140 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+import com.twitter.zipkin.gen.zipkinCoreConstants;
+
+public class SpanHandleTest {
+
+    private static final long TRACE_ID = 105;
+    private static final long SPAN_ID = 103;
+
+    private final ServerClientAndLocalSpanState state =
+        new ThreadLocalServerClientAndLocalSpanState(127 << 24 | 1, 8080, "service");
+    private final SpanCollector mockCollector = mock(SpanCollector.class);
+    private final IdGenerator mockIdGenerator = mock(IdGenerator.class);
+    private Brave brave;
+
+    @Before
+    public void setup() {
+        when(mockIdGenerator.nextId()).thenReturn(555L, 556L);
+        brave = new Brave.Builder(state)
+            .spanCollector(mockCollector)
+            .idGenerator(mockIdGenerator)
+            .build();
+    }
+
+    @Test
+    public void testServerSpan_joinsIncomingTrace() {
+        TraceData incoming = TraceData.builder().spanId(SpanId.create(TRACE_ID, SPAN_ID, null)).build();
+
+        SpanHandle span = brave.serverTracer().startSpan(incoming, "get");
+        brave.serverTracer().setServerReceived(span);
+        brave.serverTracer().setServerSend(span);
+
+        assertEquals(SpanId.create(TRACE_ID, SPAN_ID, null), span.spanId());
+        Span collected = span.spanAndEndpoint().span();
+        verify(mockCollector).collect(collected);
+        assertEquals(zipkinCoreConstants.SERVER_RECV, collected.getAnnotations().get(0).getValue());
+        assertEquals(zipkinCoreConstants.SERVER_SEND, collected.getAnnotations().get(1).getValue());
+        assertNull("Shouldn't touch thread state", state.getCurrentServerSpan().getSpan());
+    }
+
+    @Test
+    public void testServerSpan_notSampled() {
+        TraceData incoming = TraceData.builder().sample(false).build();
+
+        assertNull(brave.serverTracer().startSpan(incoming, "get"));
+        brave.serverTracer().setServerSend(null); // no-op for unsampled requests
+
+        verifyZeroInteractions(mockCollector);
+    }
+
+    @Test
+    public void testServerSpan_locallySampledWithoutSpanIdGetsIdFromGenerator() {
+        brave = new Brave.Builder(state)
+            .spanCollector(mockCollector)
+            .idGenerator(mockIdGenerator)
+            .traceSampler(Sampler.create(0.0f))
+            .build();
+
+        SpanHandle span = brave.serverTracer()
+            .startSpan(TraceData.builder().sample(true).localDecision(true).build(), "get");
+
+        assertEquals(SpanId.create(555L, 555L, null), span.spanId());
+        // without the local decision, the tracer's sampler decides
+        assertNull(brave.serverTracer().startSpan(TraceData.builder().sample(true).build(), "get"));
+    }
+
+    @Test
+    public void testClientSpan_childOfContext() {
+        SpanHandle server = brave.serverTracer()
+            .startSpan(TraceData.builder().spanId(SpanId.create(TRACE_ID, SPAN_ID, null)).build(), "get");
+
+        SpanHandle client = brave.clientTracer().startNewSpan(server.context(), "lookup");
+        brave.clientTracer().setClientSent(client);
+        client.submitBinaryAnnotation("key", "value");
+        brave.clientTracer().setClientReceived(client);
+
+        assertEquals(SpanId.create(TRACE_ID, 555L, SPAN_ID), client.spanId());
+        Span collected = client.spanAndEndpoint().span();
+        verify(mockCollector).collect(collected);
+        assertEquals(zipkinCoreConstants.CLIENT_SEND, collected.getAnnotations().get(0).getValue());
+        assertEquals(zipkinCoreConstants.CLIENT_RECV, collected.getAnnotations().get(1).getValue());
+        assertEquals("key", collected.getBinary_annotations().get(0).getKey());
+        assertTrue(collected.getDuration() >= 0);
+        assertNull("Shouldn't touch thread state", state.getCurrentClientSpan());
+    }
+
+    @Test
+    public void testClientSpan_usesClientEndpoint() {
+        brave.clientTracer().setCurrentClientServiceName("client");
+        try {
+            SpanHandle client = brave.clientTracer().startNewSpan(TraceData.builder().build(), "lookup");
+            brave.clientTracer().setClientSent(client);
+
+            Endpoint expected = new Endpoint(127 << 24 | 1, (short) 8080, "client");
+            assertEquals(expected, client.spanAndEndpoint().endpoint());
+            assertEquals(expected, client.spanAndEndpoint().span().getAnnotations().get(0).host);
+        } finally {
+            state.setCurrentClientServiceName(null);
+        }
+    }
+
+    @Test
+    public void testClientSpan_newTraceSampledBySampler() {
+        brave = new Brave.Builder(state)
+            .spanCollector(mockCollector)
+            .traceSampler(Sampler.create(0.0f))
+            .build();
+
+        assertNull(brave.clientTracer().startNewSpan(TraceData.builder().build(), "lookup"));
+    }
+
+    @Test
+    public void testLocalSpan_nested() {
+        SpanHandle outer = brave.localTracer().startNewSpan(TraceData.builder().build(), "cache", "get");
+        SpanHandle inner = brave.localTracer().startNewSpan(outer.context(), "codec", "decode");
+        brave.localTracer().finishSpan(inner);
+        brave.localTracer().finishSpan(outer);
+
+        assertEquals(SpanId.create(555L, 555L, null), outer.spanId());
+        assertEquals(SpanId.create(555L, 556L, 555L), inner.spanId());
+        Span collected = inner.spanAndEndpoint().span();
+        verify(mockCollector).collect(collected);
+        assertEquals(zipkinCoreConstants.LOCAL_COMPONENT, collected.getBinary_annotations().get(0).getKey());
+        assertTrue(collected.getDuration() >= 0);
+        assertNull("Shouldn't touch thread state", state.getCurrentLocalSpan());
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+public class SpanNameSamplerTest {
+
+    private final Sampler fallback = mock(Sampler.class);
+    private final Sampler never = Sampler.create(0.0f);
+    private final Sampler always = Sampler.create(1.0f);
+
+    @Test
+    public void testExactNameWinsOverPrefix() {
+        SpanNameSampler sampler = SpanNameSampler.builder()
+            .addRule("get /health", never)
+            .addRule("get /*", always)
+            .build(fallback);
+
+        assertFalse(sampler.isSampled(1L, "get /health"));
+        assertTrue(sampler.isSampled(1L, "get /healthz"));
+    }
+
+    @Test
+    public void testLongestPrefixWins() {
+        SpanNameSampler sampler = SpanNameSampler.builder()
+            .addRule("checkout*", always)
+            .addRule("checkout/preview*", never)
+            .build(fallback);
+
+        assertSame(always, sampler.samplerFor("checkout/pay"));
+        assertSame(never, sampler.samplerFor("checkout/preview/1"));
+        assertSame(fallback, sampler.samplerFor("check"));
+    }
+
+    @Test
+    public void testUnmatchedNameUsesFallback() {
+        SpanNameSampler sampler = SpanNameSampler.builder().addRule("checkout", 1.0f).build(fallback);
+        when(fallback.isSampled(1L, "search")).thenReturn(true);
+
+        assertTrue(sampler.isSampled(1L, "search"));
+        verify(fallback).isSampled(1L, "search");
+    }
+
+    @Test
+    public void testWithoutNameUsesFallback() {
+        SpanNameSampler sampler = SpanNameSampler.builder().addRule("checkout", 1.0f).build(fallback);
+        when(fallback.isSampled(1L)).thenReturn(true);
+
+        assertTrue(sampler.isSampled(1L));
+        assertSame(fallback, sampler.samplerFor(null));
+    }
+
+    @Test
+    public void testRulesAddedAfterBuildDontChangeSampler() {
+        SpanNameSampler.Builder builder = SpanNameSampler.builder();
+        SpanNameSampler sampler = builder.build(fallback);
+
+        builder.addRule("checkout", always).addRule("search*", always);
+
+        assertSame(fallback, sampler.samplerFor("checkout"));
+        assertSame(fallback, sampler.samplerFor("search"));
+    }
+
+    @Test
+    public void testServerTracerSamplesBySpanName() {
+        ServerClientAndLocalSpanState state = new ThreadLocalServerClientAndLocalSpanState(127 << 24 | 1, 80, "service");
+        Brave brave = new Brave.Builder(state)
+            .traceSampler(SpanNameSampler.builder().addRule("health", 0.0f).build(Sampler.create(1.0f)))
+            .spanCollector(new EmptySpanCollector()).build();
+
+        brave.serverTracer().setStateUnknown("health");
+        assertFalse(state.getCurrentServerSpan().getSample());
+
+        brave.serverTracer().setStateUnknown("checkout");
+        assertTrue(state.getCurrentServerSpan().getSample());
+        brave.serverTracer().clearCurrentSpan();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlankRule() {
+        SpanNameSampler.builder().addRule(" ", 1.0f);
+    }
+}
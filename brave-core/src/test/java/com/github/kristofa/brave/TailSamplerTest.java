@@ -0,0 +1,64 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Span;
+import org.junit.Test;
+
+public class TailSamplerTest {
+
+    private final List<Span> noChildren = Collections.emptyList();
+
+    @Test
+    public void testDurationAtLeast() {
+        TailSampler sampler = TailSampler.durationAtLeast(1, TimeUnit.MILLISECONDS);
+
+        assertTrue(sampler.isSampled(new Span().setDuration(1000L), noChildren));
+        assertFalse(sampler.isSampled(new Span().setDuration(999L), noChildren));
+        assertFalse(sampler.isSampled(new Span(), noChildren));
+    }
+
+    @Test
+    public void testHasBinaryAnnotation() {
+        TailSampler sampler = TailSampler.hasBinaryAnnotation("http.responsecode");
+        Span failed = new Span();
+        failed.addToBinary_annotations(new BinaryAnnotation("http.responsecode", "500"));
+        Span other = new Span();
+        other.addToBinary_annotations(new BinaryAnnotation("http.uri", "/"));
+
+        assertTrue(sampler.isSampled(failed, noChildren));
+        assertTrue(sampler.isSampled(other, Collections.singletonList(failed)));
+        assertFalse(sampler.isSampled(other, Collections.singletonList(new Span())));
+    }
+
+    @Test
+    public void testRate() {
+        assertTrue(TailSampler.rate(1.0f).isSampled(new Span().setTrace_id(Long.MIN_VALUE), noChildren));
+        assertFalse(TailSampler.rate(0.0f).isSampled(new Span().setTrace_id(1L), noChildren));
+    }
+
+    @Test
+    public void testAnyOf() {
+        TailSampler sampler = TailSampler.anyOf(TailSampler.rate(0.0f), TailSampler.rate(1.0f));
+
+        assertTrue(sampler.isSampled(new Span().setTrace_id(1L), noChildren));
+    }
+
+    @Test
+    public void testAnyOf_allSamplersSeeEveryTrace() {
+        LatencyOutlierSampler outliers = LatencyOutlierSampler.create(0.5);
+        TailSampler sampler = TailSampler.anyOf(TailSampler.rate(1.0f), outliers);
+
+        for (int i = 0; i < LatencyOutlierSampler.MIN_DURATIONS; i++) {
+            sampler.isSampled(new Span().setTrace_id(1L).setName("get").setDuration(100L), noChildren);
+        }
+
+        assertTrue(outliers.threshold("get") >= 100L);
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.kristofa.brave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Span;
+import com.twitter.zipkin.gen.zipkinCoreConstants;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class TailSamplingSpanCollectorTest {
+
+    private static final long TRACE_ID = 1L;
+
+    private final SpanCollector mockCollector = mock(SpanCollector.class);
+    private final SpanCollectorMetricsHandler mockMetrics = mock(SpanCollectorMetricsHandler.class);
+    private final TailSamplingSpanCollector collector = TailSamplingSpanCollector.builder(mockCollector)
+        .keep(TailSampler.durationAtLeast(100, TimeUnit.MILLISECONDS))
+        .keep(TailSampler.hasBinaryAnnotation("error"))
+        .maxTraces(2)
+        .maxSpansPerTrace(2)
+        .metrics(mockMetrics)
+        .build();
+
+    @Test
+    public void testKeepsSlowTrace() {
+        Span child = span(TRACE_ID, 2L, 1L, 1000L);
+        Span root = span(TRACE_ID, 1L, null, 100000L);
+
+        collector.collect(child);
+        verifyZeroInteractions(mockCollector);
+        collector.collect(root);
+
+        InOrder inOrder = inOrder(mockCollector);
+        inOrder.verify(mockCollector).collect(child);
+        inOrder.verify(mockCollector).collect(root);
+    }
+
+    @Test
+    public void testDiscardsFastTrace() {
+        collector.collect(span(TRACE_ID, 2L, 1L, 1000L));
+        collector.collect(span(TRACE_ID, 1L, null, 99999L));
+
+        verifyZeroInteractions(mockCollector);
+    }
+
+    @Test
+    public void testKeepsTraceWithErrorInChild() {
+        Span child = span(TRACE_ID, 2L, 1L, 1000L);
+        child.addToBinary_annotations(new BinaryAnnotation("error", "timeout"));
+        Span root = span(TRACE_ID, 1L, null, 1000L);
+
+        collector.collect(child);
+        collector.collect(root);
+
+        verify(mockCollector).collect(child);
+        verify(mockCollector).collect(root);
+    }
+
+    @Test
+    public void testServerSpanWithParentIsLocalRoot() {
+        Span root = span(TRACE_ID, 2L, 1L, 100000L);
+        root.addToAnnotations(new Annotation(0L, zipkinCoreConstants.SERVER_RECV));
+
+        collector.collect(root);
+
+        verify(mockCollector).collect(root);
+    }
+
+    @Test
+    public void testLateChildFollowsDecision() {
+        Span root = span(TRACE_ID, 1L, null, 100000L);
+        Span lateChild = span(TRACE_ID, 2L, 1L, 1000L);
+        collector.collect(root);
+        collector.collect(lateChild);
+
+        verify(mockCollector).collect(lateChild);
+
+        Span fastRoot = span(2L, 1L, null, 1000L);
+        collector.collect(fastRoot);
+        collector.collect(span(2L, 2L, 1L, 1000L));
+
+        verify(mockCollector, never()).collect(fastRoot);
+    }
+
+    @Test
+    public void testChildFinishingWhileDecidingFollowsDecision() {
+        final Span child = span(TRACE_ID, 2L, 1L, 1000L);
+        final TailSamplingSpanCollector[] collector = new TailSamplingSpanCollector[1];
+        collector[0] = TailSamplingSpanCollector.builder(mockCollector)
+            .keep(new TailSampler() {
+                @Override
+                public boolean isSampled(Span localRoot, List<Span> children) {
+                    collector[0].collect(child); // as if another thread finished it now
+                    return true;
+                }
+            })
+            .metrics(mockMetrics)
+            .build();
+        assertTrue(collector[0].index(TRACE_ID) != collector[0].index(2L));
+        Span root = span(TRACE_ID, 1L, null, 1000L);
+        Span otherTraceChild = span(2L, 2L, 1L, 1000L);
+        collector[0].collect(otherTraceChild);
+
+        collector[0].collect(root);
+
+        InOrder inOrder = inOrder(mockCollector);
+        inOrder.verify(mockCollector).collect(child);
+        inOrder.verify(mockCollector).collect(root);
+        collector[0].collect(span(2L, 1L, null, 1000L));
+        verify(mockCollector).collect(otherTraceChild); // not evicted by the child of the deciding trace
+        verifyZeroInteractions(mockMetrics);
+    }
+
+    @Test
+    public void testBoundsSpansPerTrace() {
+        Span child1 = span(TRACE_ID, 2L, 1L, 1000L);
+        Span child2 = span(TRACE_ID, 3L, 1L, 1000L);
+        Span child3 = span(TRACE_ID, 4L, 1L, 1000L);
+        collector.collect(child1);
+        collector.collect(child2);
+        collector.collect(child3);
+        collector.collect(span(TRACE_ID, 1L, null, 100000L));
+
+        verify(mockCollector).collect(child1);
+        verify(mockCollector).collect(child2);
+        verify(mockCollector, never()).collect(child3);
+        verify(mockMetrics).incrementDroppedSpans(1);
+    }
+
+    @Test
+    public void testEvictsTraceInSameSlot() {
+        TailSamplingSpanCollector collector = TailSamplingSpanCollector.builder(mockCollector)
+            .keep(TailSampler.durationAtLeast(100, TimeUnit.MILLISECONDS))
+            .maxTraces(1)
+            .metrics(mockMetrics)
+            .build();
+        Span evicted = span(1L, 2L, 1L, 1000L);
+        Span kept = span(2L, 2L, 1L, 1000L);
+        collector.collect(evicted);
+        collector.collect(kept);
+        verify(mockMetrics).incrementDroppedSpans(1);
+
+        collector.collect(span(2L, 1L, null, 100000L));
+        collector.collect(span(1L, 1L, null, 100000L));
+
+        verify(mockCollector).collect(kept);
+        verify(mockCollector, never()).collect(evicted);
+    }
+
+    @Test
+    public void testConcurrentTraces() throws Exception {
+        final AtomicInteger collected = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+        SpanCollector countingCollector = new SpanCollector() {
+            @Override
+            public void collect(Span span) {
+                collected.incrementAndGet();
+            }
+
+            @Override
+            public void addDefaultAnnotation(String key, String value) {
+            }
+        };
+        SpanCollectorMetricsHandler countingMetrics = new SpanCollectorMetricsHandler() {
+            @Override
+            public void incrementAcceptedSpans(int quantity) {
+            }
+
+            @Override
+            public void incrementDroppedSpans(int quantity) {
+                dropped.addAndGet(quantity);
+            }
+        };
+        final TailSamplingSpanCollector collector = TailSamplingSpanCollector.builder(countingCollector)
+            .keep(TailSampler.rate(1.0f))
+            .maxTraces(1024)
+            .metrics(countingMetrics)
+            .build();
+        final int threads = 4;
+        final int tracesPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long firstTraceId = t * tracesPerThread;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (long traceId = firstTraceId; traceId < firstTraceId + tracesPerThread; traceId++) {
+                        collector.collect(span(traceId, 2L, 1L, 1000L));
+                        collector.collect(span(traceId, 1L, null, 1000L));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * tracesPerThread * 2, collected.get() + dropped.get());
+    }
+
+    @Test
+    public void testIsLocalRoot() {
+        assertTrue(TailSamplingSpanCollector.isLocalRoot(span(TRACE_ID, 1L, null, 0L)));
+        assertFalse(TailSamplingSpanCollector.isLocalRoot(span(TRACE_ID, 2L, 1L, 0L)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoSampler() {
+        TailSamplingSpanCollector.builder(mockCollector).build();
+    }
+
+    static Span span(long traceId, long id, Long parentId, long durationMicros) {
+        Span span = new Span().setTrace_id(traceId).setId(id).setName("get").setDuration(durationMicros);
+        if (parentId != null) span.setParent_id(parentId);
+        return span;
+    }
+}
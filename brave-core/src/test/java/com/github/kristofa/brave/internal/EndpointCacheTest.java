@@ -0,0 +1,55 @@
+package com.github.kristofa.brave.internal;
+
+import com.twitter.zipkin.gen.Endpoint;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EndpointCacheTest {
+
+    private static final int IP = 127 << 24 | 1;
+    private static final short PORT = 8080;
+
+    private final EndpointCache cache = new EndpointCache();
+
+    @Test
+    public void testGet_reusesEndpointForSameAddressAndServiceName() {
+        Endpoint endpoint = cache.get(IP, PORT, "users");
+
+        assertEquals(new Endpoint(IP, PORT, "users"), endpoint);
+        assertSame(endpoint, cache.get(IP, PORT, "users"));
+        assertNotSame(endpoint, cache.get(IP, PORT, "accounts"));
+    }
+
+    @Test
+    public void testGet_cachesEachAddressOfSameServiceName() {
+        int otherIp = 10 << 24 | 1;
+        assertTrue(cache.index(IP, PORT, "unknown") != cache.index(otherIp, PORT, "unknown"));
+
+        Endpoint first = cache.get(IP, PORT, "unknown");
+        Endpoint second = cache.get(otherIp, PORT, "unknown");
+
+        assertEquals(new Endpoint(otherIp, PORT, "unknown"), second);
+        assertSame(first, cache.get(IP, PORT, "unknown"));
+        assertSame(second, cache.get(otherIp, PORT, "unknown"));
+    }
+
+    @Test
+    public void testGet_replacesEndpointInCollidingSlot() {
+        EndpointCache cache = new EndpointCache(1);
+        Endpoint first = cache.get(IP, PORT, "users");
+        Endpoint moved = cache.get(IP, (short) 9090, "users");
+
+        assertEquals(new Endpoint(IP, (short) 9090, "users"), moved);
+        assertSame(moved, cache.get(IP, (short) 9090, "users"));
+        assertNotSame(first, cache.get(IP, PORT, "users"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePowerOfTwo() {
+        new EndpointCache(3);
+    }
+}
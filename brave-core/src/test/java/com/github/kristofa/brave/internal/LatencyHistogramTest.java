@@ -0,0 +1,63 @@
+package com.github.kristofa.brave.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void testQuantile_empty() {
+        assertEquals(-1, histogram.quantile(0.99));
+    }
+
+    @Test
+    public void testQuantile_smallValuesAreExact() {
+        for (int i = 0; i < 8; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(0, histogram.quantile(0.0));
+        assertEquals(3, histogram.quantile(0.5));
+        assertEquals(7, histogram.quantile(1.0));
+    }
+
+    @Test
+    public void testQuantile_withinBucketError() {
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 100L);
+        }
+
+        long p99 = histogram.quantile(0.99);
+        assertTrue("p99 was " + p99, p99 >= 990000 && p99 <= 990000 * 1.125);
+        long p50 = histogram.quantile(0.5);
+        assertTrue("p50 was " + p50, p50 >= 500000 && p50 <= 500000 * 1.125);
+    }
+
+    @Test
+    public void testBuckets_coverAllValues() {
+        assertEquals(0, LatencyHistogram.bucket(-1));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.BUCKETS - 1));
+        for (int bucket = 1; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            long lowerBound = LatencyHistogram.upperBound(bucket - 1) + 1;
+            assertEquals(bucket, LatencyHistogram.bucket(lowerBound));
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.upperBound(bucket)));
+        }
+    }
+
+    @Test
+    public void testDecay() {
+        for (int i = 0; i < 10; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1000);
+
+        histogram.decay();
+
+        assertEquals(6, histogram.count());
+    }
+}
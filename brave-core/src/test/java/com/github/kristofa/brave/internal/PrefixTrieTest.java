@@ -0,0 +1,54 @@
+package com.github.kristofa.brave.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PrefixTrieTest {
+
+    private final PrefixTrie<String> trie = new PrefixTrie<String>();
+
+    @Test
+    public void testLongestPrefixWins() {
+        trie.put("/api/", "api");
+        trie.put("/api/users/", "users");
+        trie.put("/static/", "static");
+
+        assertEquals("users", trie.longestPrefixMatch("/api/users/1"));
+        assertEquals("api", trie.longestPrefixMatch("/api/accounts"));
+        assertEquals("static", trie.longestPrefixMatch("/static/"));
+        assertNull(trie.longestPrefixMatch("/api"));
+        assertNull(trie.longestPrefixMatch("/health"));
+    }
+
+    @Test
+    public void testEmptyPrefixMatchesEverything() {
+        trie.put("/a", "a");
+        trie.put("", "all");
+
+        assertEquals("a", trie.longestPrefixMatch("/abc"));
+        assertEquals("all", trie.longestPrefixMatch("/b"));
+        assertEquals("all", trie.longestPrefixMatch(""));
+    }
+
+    @Test
+    public void testPutReplacesValue() {
+        trie.put("/a", "a");
+        trie.put("/a", "b");
+
+        assertEquals("b", trie.longestPrefixMatch("/a"));
+    }
+
+    @Test
+    public void testIsEmpty() {
+        assertTrue(trie.isEmpty());
+
+        trie.put("z", "z");
+
+        assertFalse(trie.isEmpty());
+        assertNull(trie.longestPrefixMatch("a"));
+    }
+}
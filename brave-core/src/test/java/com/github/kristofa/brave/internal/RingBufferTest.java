@@ -0,0 +1,138 @@
+package com.github.kristofa.brave.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+
+    private final RingBuffer<Integer> buffer = new RingBuffer<>(3);
+    private final List<Integer> drained = new ArrayList<>();
+
+    @Test
+    public void testOffer_rejectsWhenFull() {
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertTrue(buffer.offer(3));
+        assertFalse(buffer.offer(4));
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    public void testOffer_capacityOfOne() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(1);
+
+        assertTrue(buffer.offer(1));
+        assertFalse(buffer.offer(2));
+        assertEquals(1, buffer.drainTo(drained, 2));
+        assertTrue(buffer.offer(3));
+        assertEquals(asList(1), drained);
+    }
+
+    @Test
+    public void testOffer_rejectsWhenMaxBytesExceeded() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(10, 100);
+
+        assertTrue(buffer.offer(1, 60));
+        assertFalse(buffer.offer(2, 50));
+        assertTrue(buffer.offer(3, 40));
+        assertEquals(100, buffer.bytes());
+
+        assertEquals(1, buffer.drainTo(drained, 1));
+        assertEquals(40, buffer.bytes());
+        assertTrue(buffer.offer(4, 50));
+    }
+
+    @Test
+    public void testOffer_releasesBytesWhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(1, 100);
+
+        assertTrue(buffer.offer(1, 10));
+        assertFalse(buffer.offer(2, 10));
+        assertEquals(10, buffer.bytes());
+    }
+
+    @Test
+    public void testDrainTo_oldestFirstUpToMax() {
+        buffer.offer(1);
+        buffer.offer(2);
+        buffer.offer(3);
+
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertEquals(asList(1, 2), drained);
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void testDrainTo_upToMaxBytes() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(10, 1000);
+        buffer.offer(1, 40);
+        buffer.offer(2, 40);
+        buffer.offer(3, 40);
+
+        assertEquals(2, buffer.drainTo(drained, 10, 100));
+        assertEquals(asList(1, 2), drained);
+        assertEquals(40, buffer.bytes());
+    }
+
+    @Test
+    public void testDrainTo_firstElementLargerThanMaxBytes() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(10, 1000);
+        buffer.offer(1, 200);
+        buffer.offer(2, 40);
+
+        assertEquals(1, buffer.drainTo(drained, 10, 100));
+        assertEquals(asList(1), drained);
+    }
+
+    @Test
+    public void testDrainTo_freesSlotsAcrossLaps() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.offer(i));
+            assertEquals(2, buffer.drainTo(drained, 3));
+        }
+        assertEquals(20, drained.size());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentProducers_noElementLostOrDuplicated() throws InterruptedException {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        final int producers = 4;
+        final int perProducer = 2000;
+        final CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final int offset = p * perProducer;
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(offset + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        Set<Integer> received = new HashSet<>();
+        while (done.getCount() > 0 || !buffer.isEmpty()) {
+            drained.clear();
+            buffer.drainTo(drained, 16);
+            for (Integer element : drained) {
+                assertTrue("duplicate " + element, received.add(element));
+            }
+        }
+        assertEquals(producers * perProducer, received.size());
+    }
+}
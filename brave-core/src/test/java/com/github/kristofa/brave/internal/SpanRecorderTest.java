@@ -0,0 +1,173 @@
+package com.github.kristofa.brave.internal;
+
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.AnnotationType;
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SpanRecorderTest {
+
+    private static final Endpoint ENDPOINT = new Endpoint(127 << 24 | 1, (short) 8080, "service");
+    private static final Endpoint REMOTE = new Endpoint(10 << 24 | 1, (short) 9411, "remote");
+
+    private final Span span = new Span();
+
+    @Test
+    public void testOf_attachesOnce() {
+        assertNull(span.recorder);
+
+        SpanRecorder recorder = SpanRecorder.of(span);
+        assertSame(recorder, span.recorder);
+        assertSame(recorder, SpanRecorder.of(span));
+    }
+
+    @Test
+    public void testFlushTo_convertsInOrder() {
+        SpanRecorder recorder = SpanRecorder.of(span);
+        recorder.annotate(1L, "sr", ENDPOINT);
+        recorder.tag("http.uri", "/foo", ENDPOINT);
+        recorder.address("ca", REMOTE);
+        recorder.annotate(2L, "ss", ENDPOINT);
+
+        recorder.flushTo(span);
+
+        Annotation sr = new Annotation(1L, "sr");
+        sr.setHost(ENDPOINT);
+        Annotation ss = new Annotation(2L, "ss");
+        ss.setHost(ENDPOINT);
+        assertEquals(2, span.annotations.size());
+        assertEquals(sr, span.annotations.get(0));
+        assertEquals(ss, span.annotations.get(1));
+
+        BinaryAnnotation address = new BinaryAnnotation()
+            .setKey("ca")
+            .setValue(new byte[] {1})
+            .setAnnotation_type(AnnotationType.BOOL)
+            .setHost(REMOTE);
+        assertEquals(2, span.binary_annotations.size());
+        assertEquals(new BinaryAnnotation("http.uri", "/foo", ENDPOINT), span.binary_annotations.get(0));
+        assertEquals(address, span.binary_annotations.get(1));
+    }
+
+    @Test
+    public void testFlushTo_sealsRecorder() {
+        SpanRecorder recorder = SpanRecorder.of(span);
+        recorder.annotate(1L, "sr", ENDPOINT);
+        recorder.flushTo(span);
+
+        assertEquals(0, recorder.size());
+        recorder.annotate(2L, "ss", ENDPOINT);
+        recorder.tag("http.uri", "/foo", ENDPOINT);
+        assertEquals(0, recorder.size());
+
+        recorder.flushTo(span);
+        assertEquals(1, span.annotations.size());
+        assertNull(span.binary_annotations);
+    }
+
+    @Test
+    public void testGrowsPastFirstChunk() {
+        SpanRecorder recorder = SpanRecorder.of(span);
+        for (int i = 0; i < SpanRecorder.FIRST_CHUNK_CAPACITY * 3; i++) { // inline, then 2 chunks
+            recorder.annotate(i, "annotation" + i, ENDPOINT);
+        }
+        recorder.flushTo(span);
+
+        assertEquals(SpanRecorder.FIRST_CHUNK_CAPACITY * 3, span.annotations.size());
+        for (int i = 0; i < SpanRecorder.FIRST_CHUNK_CAPACITY * 3; i++) {
+            assertEquals("annotation" + i, span.annotations.get(i).value);
+            assertEquals(i, span.annotations.get(i).timestamp);
+        }
+    }
+
+    @Test
+    public void testRecordsInlineBeforeAllocatingChunks() {
+        SpanRecorder recorder = SpanRecorder.of(span);
+        for (int i = 0; i < SpanRecorder.INLINE_CAPACITY; i++) {
+            recorder.tag("key" + i, "value", ENDPOINT);
+        }
+        assertNull(recorder.head);
+
+        recorder.annotate(1L, "foo", ENDPOINT);
+        assertNotNull(recorder.head);
+    }
+
+    @Test
+    public void testFlushTo_detachesRecorder() {
+        SpanRecorder recorder = SpanRecorder.of(span);
+        recorder.annotate(1L, "sr", ENDPOINT);
+        recorder.flushTo(span);
+
+        assertSame(SpanRecorder.FLUSHED, span.recorder);
+        SpanRecorder.of(span).annotate(2L, "late", ENDPOINT);
+        assertEquals(0, SpanRecorder.FLUSHED.size());
+        assertEquals(1, span.annotations.size());
+    }
+
+    @Test
+    public void testStartAndFinish_withoutRecorder() {
+        SpanRecorder.start(span, 1L, "sr", ENDPOINT);
+        SpanRecorder.finish(span, 2L, "ss", ENDPOINT);
+
+        assertEquals(2, span.annotations.size());
+        assertEquals("sr", span.annotations.get(0).value);
+        assertEquals("ss", span.annotations.get(1).value);
+        assertSame(SpanRecorder.FLUSHED, span.recorder);
+    }
+
+    @Test
+    public void testFinish_afterRecordedAnnotations() {
+        SpanRecorder.start(span, 1L, "sr", ENDPOINT);
+        SpanRecorder.of(span).annotate(2L, "foo", ENDPOINT);
+        SpanRecorder.of(span).tag("http.uri", "/foo", ENDPOINT);
+        SpanRecorder.finish(span, 3L, "ss", ENDPOINT);
+
+        assertEquals(3, span.annotations.size());
+        assertEquals("foo", span.annotations.get(1).value);
+        assertEquals("ss", span.annotations.get(2).value);
+        assertEquals(1, span.binary_annotations.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testAnnotate_nullValue() {
+        SpanRecorder.of(span).annotate(1L, null, ENDPOINT);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testAddress_nullKey() {
+        SpanRecorder.of(span).address(null, REMOTE);
+    }
+
+    @Test(timeout = 1000L)
+    public void testFlushTo_dropsEntryNeverPublished() {
+        SpanRecorder recorder = SpanRecorder.of(span);
+        recorder.annotate(1L, "sr", ENDPOINT);
+        SpanRecorder.SIZE.getAndIncrement(recorder); // a writer that reserved a slot, then stalled
+        recorder.annotate(2L, "foo", ENDPOINT);
+
+        long dropped = SpanRecorder.droppedAnnotations();
+
+        assertEquals(1, recorder.flushTo(span));
+
+        assertEquals(2, span.annotations.size());
+        assertEquals("foo", span.annotations.get(1).value);
+        assertEquals(dropped + 1, SpanRecorder.droppedAnnotations());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTag_blankKey() {
+        SpanRecorder.of(span).tag(" ", "value", ENDPOINT);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testTag_nullValue() {
+        SpanRecorder.of(span).tag("key", null, ENDPOINT);
+    }
+}
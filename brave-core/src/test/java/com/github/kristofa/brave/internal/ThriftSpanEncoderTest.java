@@ -0,0 +1,96 @@
+package com.github.kristofa.brave.internal;
+
+import com.github.kristofa.brave.AsyncReporter;
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ThriftSpanEncoderTest {
+
+    private static final Endpoint ENDPOINT = new Endpoint(127 << 24 | 1, (short) 8080, "service");
+
+    @Test
+    public void testEncode_sameAsSerializer() throws TException {
+        Span span = span(1L);
+
+        assertArrayEquals(new TSerializer(new TBinaryProtocol.Factory()).serialize(span),
+            ThriftSpanEncoder.encode(span));
+    }
+
+    @Test
+    public void testEncode_decodes() throws TException {
+        Span span = span(1L);
+        Span decoded = new Span();
+        new TDeserializer(new TBinaryProtocol.Factory()).deserialize(decoded, ThriftSpanEncoder.encode(span));
+
+        assertEquals(span, decoded);
+    }
+
+    @Test
+    public void testEncodeList_decodesAsListOfSpans() throws TException {
+        List<Span> spans = asList(span(1L), span(2L));
+
+        assertEquals(spans, decodeList(ThriftSpanEncoder.encodeList(
+            asList(ThriftSpanEncoder.encode(spans.get(0)), ThriftSpanEncoder.encode(spans.get(1))))));
+    }
+
+    @Test
+    public void testEncoding_sendsEncodedSpans() throws Exception {
+        final List<byte[]> sent = new ArrayList<>();
+        AsyncReporter.Sender<Span> sender = ThriftSpanEncoder.encoding(new AsyncReporter.Sender<byte[]>() {
+            @Override
+            public void send(List<byte[]> spans) throws IOException {
+                sent.addAll(spans);
+            }
+        });
+        Span span = span(1L);
+
+        sender.send(asList(span));
+
+        assertEquals(1, sent.size());
+        assertArrayEquals(ThriftSpanEncoder.encode(span), sent.get(0));
+    }
+
+    @Test
+    public void testSizer_lengthOfEncodedSpan() {
+        assertEquals(3, ThriftSpanEncoder.SIZER.sizeInBytes(new byte[3]));
+    }
+
+    static Span span(long id) {
+        Span span = new Span().setTrace_id(id).setId(id).setName("get").setTimestamp(100L).setDuration(200L);
+        span.addToAnnotations(new Annotation(100L, "sr").setHost(ENDPOINT));
+        span.addToAnnotations(new Annotation(300L, "ss").setHost(ENDPOINT));
+        span.addToBinary_annotations(new BinaryAnnotation("http.uri", "/users/été", ENDPOINT));
+        return span;
+    }
+
+    static List<Span> decodeList(byte[] bytes) throws TException {
+        TProtocol protocol = new TBinaryProtocol(new TMemoryInputTransport(bytes));
+        TList list = protocol.readListBegin();
+        assertEquals(TType.STRUCT, list.elemType);
+        List<Span> spans = new ArrayList<>(list.size);
+        for (int i = 0; i < list.size; i++) {
+            Span span = new Span();
+            span.read(protocol);
+            spans.add(span);
+        }
+        return spans;
+    }
+}
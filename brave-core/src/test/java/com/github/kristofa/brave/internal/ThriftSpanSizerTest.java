@@ -0,0 +1,48 @@
+package com.github.kristofa.brave.internal;
+
+import com.twitter.zipkin.gen.Annotation;
+import com.twitter.zipkin.gen.AnnotationType;
+import com.twitter.zipkin.gen.BinaryAnnotation;
+import com.twitter.zipkin.gen.Endpoint;
+import com.twitter.zipkin.gen.Span;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThriftSpanSizerTest {
+
+    private static final Endpoint ENDPOINT = new Endpoint(127 << 24 | 1, (short) 8080, "service");
+
+    @Test
+    public void testSizeInBytes_minimalSpan() throws TException {
+        assertSize(new Span().setTrace_id(1L).setId(2L));
+    }
+
+    @Test
+    public void testSizeInBytes_allFields() throws TException {
+        Span span = new Span().setTrace_id(1L).setId(2L).setParent_id(3L).setName("get")
+            .setDebug(true).setTimestamp(100L).setDuration(200L);
+        span.addToAnnotations(new Annotation(100L, "sr").setHost(ENDPOINT));
+        span.addToAnnotations(new Annotation(300L, "ss"));
+        span.addToBinary_annotations(new BinaryAnnotation("http.uri", "/users/été", ENDPOINT));
+        span.addToBinary_annotations(new BinaryAnnotation()
+            .setKey("bytes").setValue(new byte[] {1, 2, 3}).setAnnotation_type(AnnotationType.BYTES));
+
+        assertSize(span);
+    }
+
+    @Test
+    public void testUtf8Length() {
+        assertEquals("aé€😀".getBytes(Util.UTF_8).length,
+            ThriftSpanSizer.utf8Length("aé€😀"));
+        assertEquals("\ud83d".getBytes(Util.UTF_8).length, ThriftSpanSizer.utf8Length("\ud83d"));
+    }
+
+    static void assertSize(Span span) throws TException {
+        byte[] thrift = new TSerializer(new TBinaryProtocol.Factory()).serialize(span);
+        assertEquals(thrift.length, ThriftSpanSizer.INSTANCE.sizeInBytes(span));
+    }
+}
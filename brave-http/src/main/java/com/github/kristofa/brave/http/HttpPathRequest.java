@@ -0,0 +1,15 @@
+package com.github.kristofa.brave.http;
+
+/**
+ * Implemented by requests that can return the path of their URI without creating a {@link java.net.URI}, such as a
+ * servlet request. {@link HttpSampler} reads the path of each request, so this saves parsing a URI per request.
+ */
+public interface HttpPathRequest extends HttpRequest {
+
+    /**
+     * Returns the same as <code>getUri().getPath()</code>.
+     *
+     * @return Decoded path of the request URI.
+     */
+    String getPath();
+}
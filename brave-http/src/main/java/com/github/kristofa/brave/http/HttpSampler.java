@@ -0,0 +1,149 @@
+package com.github.kristofa.brave.http;
+
+import com.github.kristofa.brave.Sampler;
+import com.github.kristofa.brave.internal.Nullable;
+import com.github.kristofa.brave.internal.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.github.kristofa.brave.internal.Util.checkNotBlank;
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+
+/**
+ * Decides whether to trace an incoming http request from its method and path, before a span name is chosen. Use it with
+ * {@link HttpServerRequestAdapter#HttpServerRequestAdapter(HttpServerRequest, SpanNameProvider, HttpSampler)}:
+ *
+ * <pre>
+ * HttpSampler httpSampler = HttpSampler.builder()
+ *     .addRule(null, "/health", 0.0f)
+ *     .addRule("POST", "/checkout/*", 1.0f)
+ *     .addRule("GET", "/search/*", 0.01f)
+ *     .build();
+ * </pre>
+ *
+ * <p>A path ending with {@code *} matches every path starting with the text before it. A rule for the request method
+ * wins over a rule for any method, an exact path over prefixes, and a longer prefix over a shorter one. Requests
+ * matching no rule are left to the {@link Sampler} of the tracer.
+ *
+ * <p>Rules are compiled once into a hash lookup per method, with a trie for path prefixes, so matching a request costs
+ * the same however many rules there are.
+ */
+public final class HttpSampler {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private final List<Rule> rules = new ArrayList<Rule>();
+
+        Builder() {
+        }
+
+        /**
+         * Samples requests matching the given method and path at a fixed rate.
+         *
+         * @param method http method, such as GET, or <code>null</code> to match any method.
+         * @param path   request path, or a prefix followed by {@code *}.
+         * @param rate   rate expressed as a percentage, see {@link Sampler#create(float)}
+         */
+        public Builder addRule(@Nullable String method, String path, float rate) {
+            return addRule(method, path, Sampler.create(rate));
+        }
+
+        /**
+         * Samples requests matching the given method and path with the given sampler.
+         *
+         * @param method http method, such as GET, or <code>null</code> to match any method.
+         * @param path   request path, or a prefix followed by {@code *}.
+         */
+        public Builder addRule(@Nullable String method, String path, Sampler sampler) {
+            checkNotBlank(path, "Null or blank path");
+            checkNotNull(sampler, "Null sampler");
+            rules.add(new Rule(method, path, sampler));
+            return this;
+        }
+
+        public HttpSampler build() {
+            return new HttpSampler(rules);
+        }
+    }
+
+    static final class Rule {
+        final String method;
+        final String path;
+        final Sampler sampler;
+
+        Rule(String method, String path, Sampler sampler) {
+            this.method = method;
+            this.path = path;
+            this.sampler = sampler;
+        }
+    }
+
+    static final class PathRules {
+        final Map<String, Sampler> exact = new HashMap<String, Sampler>();
+        final PrefixTrie<Sampler> prefixes = new PrefixTrie<Sampler>();
+
+        void add(String path, Sampler sampler) {
+            if (path.endsWith("*")) {
+                prefixes.put(path.substring(0, path.length() - 1), sampler);
+            } else {
+                exact.put(path, sampler);
+            }
+        }
+
+        @Nullable
+        Sampler match(String path) {
+            Sampler sampler = exact.get(path);
+            return sampler != null ? sampler : prefixes.longestPrefixMatch(path);
+        }
+    }
+
+    private final Map<String, PathRules> methodRules = new HashMap<String, PathRules>();
+    private final PathRules anyMethodRules = new PathRules();
+
+    HttpSampler(List<Rule> rules) {
+        for (Rule rule : rules) {
+            PathRules pathRules = anyMethodRules;
+            if (rule.method != null) {
+                String method = rule.method.toUpperCase(Locale.ROOT);
+                pathRules = methodRules.get(method);
+                if (pathRules == null) methodRules.put(method, pathRules = new PathRules());
+            }
+            pathRules.add(rule.path, rule.sampler);
+        }
+    }
+
+    /**
+     * Returns whether to trace the request, or <code>null</code> if no rule matches it. The path of a
+     * {@link HttpPathRequest} is read without parsing its URI.
+     *
+     * @param traceId a random value used to make the decision, such as the trace ID the request would get.
+     */
+    @Nullable
+    public Boolean isSampled(long traceId, HttpRequest request) {
+        String path = request instanceof HttpPathRequest
+            ? ((HttpPathRequest) request).getPath()
+            : request.getUri().getPath();
+        Sampler sampler = samplerFor(request.getHttpMethod(), path);
+        return sampler != null ? sampler.isSampled(traceId) : null;
+    }
+
+    @Nullable
+    Sampler samplerFor(@Nullable String method, @Nullable String path) {
+        if (path == null) return null;
+        Sampler sampler = null;
+        if (method != null) {
+            PathRules pathRules = methodRules.get(method);
+            if (pathRules == null && !methodRules.isEmpty()) pathRules = methodRules.get(method.toUpperCase(Locale.ROOT));
+            if (pathRules != null) sampler = pathRules.match(path);
+        }
+        return sampler != null ? sampler : anyMethodRules.match(path);
+    }
+}
@@ -4,23 +4,38 @@ import com.github.kristofa.brave.*;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 public class HttpServerRequestAdapter implements ServerRequestAdapter {
 
     private final HttpServerRequest serverRequest;
     private final SpanNameProvider spanNameProvider;
+    private final HttpSampler sampler;
 
     public HttpServerRequestAdapter(HttpServerRequest serverRequest, SpanNameProvider spanNameProvider) {
+        this(serverRequest, spanNameProvider, null);
+    }
+
+    /**
+     * Like {@link #HttpServerRequestAdapter(HttpServerRequest, SpanNameProvider)}, except requests that don't carry a
+     * sampling decision are sampled by the rules of the given sampler, when one matches. The adapter only returns the
+     * decision: the {@link ServerTracer} creates the ids of a sampled request with its own {@link IdGenerator}.
+     *
+     * @param sampler Rules by http method and path, or <code>null</code> to leave sampling to the tracer.
+     */
+    public HttpServerRequestAdapter(HttpServerRequest serverRequest, SpanNameProvider spanNameProvider,
+                                    HttpSampler sampler) {
         this.serverRequest = serverRequest;
         this.spanNameProvider = spanNameProvider;
+        this.sampler = sampler;
     }
 
     @Override
     public TraceData getTraceData() {
         final String sampled = serverRequest.getHttpHeaderValue(BraveHttpHeaders.Sampled.getName());
         if (sampled != null) {
-            if (sampled.equals("0") || sampled.toLowerCase().equals("false")) {
+            if (sampled.equals("0") || sampled.equalsIgnoreCase("false")) {
                 return TraceData.builder().sample(false).build();
             } else {
                 final String parentSpanId = serverRequest.getHttpHeaderValue(BraveHttpHeaders.ParentSpanId.getName());
@@ -32,6 +47,11 @@ public class HttpServerRequestAdapter implements ServerRequestAdapter {
                     return TraceData.builder().sample(true).spanId(span).build();
                 }
             }
+        } else if (sampler != null) {
+            Boolean sample = sampler.isSampled(ThreadLocalRandom.current().nextLong(), serverRequest);
+            if (sample != null) {
+                return TraceData.builder().sample(sample).localDecision(true).build();
+            }
         }
         return TraceData.builder().build();
     }
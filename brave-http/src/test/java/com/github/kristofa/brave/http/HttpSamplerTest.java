@@ -0,0 +1,81 @@
+package com.github.kristofa.brave.http;
+
+import com.github.kristofa.brave.Sampler;
+import org.junit.Test;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpSamplerTest {
+
+    private final Sampler never = Sampler.create(0.0f);
+    private final Sampler always = Sampler.create(1.0f);
+
+    @Test
+    public void methodRuleWinsOverAnyMethod() {
+        HttpSampler sampler = HttpSampler.builder()
+                .addRule(null, "/checkout/*", never)
+                .addRule("post", "/checkout/*", always)
+                .build();
+
+        assertSame(always, sampler.samplerFor("POST", "/checkout/pay"));
+        assertSame(always, sampler.samplerFor("post", "/checkout/pay"));
+        assertSame(never, sampler.samplerFor("GET", "/checkout/pay"));
+    }
+
+    @Test
+    public void exactPathWinsOverPrefix() {
+        HttpSampler sampler = HttpSampler.builder()
+                .addRule("GET", "/search/*", never)
+                .addRule("GET", "/search/suggest", always)
+                .build();
+
+        assertSame(always, sampler.samplerFor("GET", "/search/suggest"));
+        assertSame(never, sampler.samplerFor("GET", "/search/suggest/1"));
+        assertNull(sampler.samplerFor("GET", "/search"));
+        assertNull(sampler.samplerFor("GET", null));
+    }
+
+    @Test
+    public void isSampled() {
+        HttpSampler sampler = HttpSampler.builder()
+                .addRule(null, "/health", 0.0f)
+                .addRule(null, "/checkout", 1.0f)
+                .build();
+
+        assertFalse(sampler.isSampled(1L, request("GET", "/health")));
+        assertTrue(sampler.isSampled(1L, request("POST", "/checkout")));
+        assertNull(sampler.isSampled(1L, request("GET", "/")));
+    }
+
+    @Test
+    public void isSampled_readsPathWithoutParsingUri() {
+        HttpSampler sampler = HttpSampler.builder().addRule(null, "/health", 0.0f).build();
+        HttpPathRequest request = mock(HttpPathRequest.class);
+        when(request.getHttpMethod()).thenReturn("GET");
+        when(request.getPath()).thenReturn("/health");
+
+        assertFalse(sampler.isSampled(1L, request));
+        verify(request, never()).getUri();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blankPath() {
+        HttpSampler.builder().addRule("GET", "", 1.0f);
+    }
+
+    static HttpRequest request(String method, String path) {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getHttpMethod()).thenReturn(method);
+        when(request.getUri()).thenReturn(URI.create("http://localhost:8080" + path + "?q=1"));
+        return request;
+    }
+}
@@ -7,6 +7,8 @@ import com.github.kristofa.brave.TraceData;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.net.URI;
+
 import static junit.framework.Assert.assertNull;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -129,4 +131,40 @@ public class HttpServerRequestAdapterTest {
         assertEquals(Long.valueOf(IdConversion.convertToLong(PARENT_SPAN_ID)), spanId.getParentSpanId());
     }
 
+    @Test
+    public void getTraceDataNoSampledHeaderSamplerRuleFalse() {
+        when(serverRequest.getHttpMethod()).thenReturn("GET");
+        when(serverRequest.getUri()).thenReturn(URI.create("/health"));
+        HttpSampler sampler = HttpSampler.builder().addRule(null, "/health", 0.0f).build();
+        adapter = new HttpServerRequestAdapter(serverRequest, spanNameProvider, sampler);
+
+        TraceData traceData = adapter.getTraceData();
+        assertFalse(traceData.getSample());
+        assertNull(traceData.getSpanId());
+    }
+
+    @Test
+    public void getTraceDataNoSampledHeaderSamplerRuleTrue() {
+        when(serverRequest.getHttpMethod()).thenReturn("POST");
+        when(serverRequest.getUri()).thenReturn(URI.create("/checkout"));
+        HttpSampler sampler = HttpSampler.builder().addRule("POST", "/checkout", 1.0f).build();
+        adapter = new HttpServerRequestAdapter(serverRequest, spanNameProvider, sampler);
+
+        TraceData traceData = adapter.getTraceData();
+        assertTrue(traceData.getSample());
+        assertTrue(traceData.isLocalDecision());
+        assertNull(traceData.getSpanId()); // the server tracer creates ids with its own generator
+    }
+
+    @Test
+    public void getTraceDataNoSampledHeaderNoSamplerRule() {
+        when(serverRequest.getHttpMethod()).thenReturn("GET");
+        when(serverRequest.getUri()).thenReturn(URI.create("/search"));
+        HttpSampler sampler = HttpSampler.builder().addRule(null, "/health", 0.0f).build();
+        adapter = new HttpServerRequestAdapter(serverRequest, spanNameProvider, sampler);
+
+        TraceData traceData = adapter.getTraceData();
+        assertNull(traceData.getSample());
+        assertNull(traceData.getSpanId());
+    }
 }
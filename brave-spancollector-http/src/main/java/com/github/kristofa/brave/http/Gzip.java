@@ -0,0 +1,53 @@
+package com.github.kristofa.brave.http;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses request bodies in the gzip format, reusing one {@link Deflater} and output buffer for
+ * all of them, instead of a new {@link java.util.zip.GZIPOutputStream} and its native memory per
+ * request. Bodies are compressed one at a time, normally on the thread that posts spans.
+ */
+final class Gzip {
+  /** magic number, deflate method, no flags, no modification time, no extra flags, unknown OS */
+  static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+  static final int TRAILER_SIZE = 8;
+
+  final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true /* raw, for gzip */);
+  final CRC32 crc = new CRC32();
+  byte[] buf = new byte[8192];
+
+  /** Returns the input compressed in the gzip format. */
+  synchronized byte[] compress(byte[] input) {
+    deflater.reset();
+    deflater.setInput(input);
+    deflater.finish();
+    crc.reset();
+    crc.update(input, 0, input.length);
+
+    System.arraycopy(HEADER, 0, buf, 0, HEADER.length);
+    int pos = HEADER.length;
+    while (!deflater.finished()) {
+      if (pos == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+      pos += deflater.deflate(buf, pos, buf.length - pos);
+    }
+    if (pos + TRAILER_SIZE > buf.length) buf = Arrays.copyOf(buf, pos + TRAILER_SIZE);
+    pos = writeIntLE((int) crc.getValue(), buf, pos);
+    pos = writeIntLE(input.length, buf, pos);
+    return Arrays.copyOf(buf, pos);
+  }
+
+  /** Releases the native memory of the deflater. */
+  synchronized void end() {
+    deflater.end();
+  }
+
+  static int writeIntLE(int value, byte[] buf, int pos) {
+    buf[pos] = (byte) value;
+    buf[pos + 1] = (byte) (value >>> 8);
+    buf[pos + 2] = (byte) (value >>> 16);
+    buf[pos + 3] = (byte) (value >>> 24);
+    return pos + 4;
+  }
+}
@@ -1,32 +1,47 @@
 package com.github.kristofa.brave.http;
 
 import com.github.kristofa.brave.*;
+import com.github.kristofa.brave.internal.LatencyHistogram;
 import com.github.kristofa.brave.internal.Nullable;
+import com.github.kristofa.brave.internal.ThriftSpanEncoder;
+import com.github.kristofa.brave.internal.ThriftSpanSizer;
 import com.google.auto.value.AutoValue;
 import com.twitter.zipkin.gen.Span;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayDeque;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executors;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TList;
-import org.apache.thrift.protocol.TType;
-import org.apache.thrift.transport.TMemoryBuffer;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * SpanCollector which submits spans to Zipkin, using its {@code POST /spans} endpoint.
+ *
+ * <p>Spans are queued and posted by an {@link AsyncReporter}, so {@link #collect(Span)} doesn't
+ * block request threads. They are posted once {@link Config.Builder#messageMaxSpans(int)} or {@link
+ * Config.Builder#messageMaxBytes(int)} are queued, or when the flush interval elapsed, whichever
+ * comes first. Each post is bounded by both, so that bursts don't become posts larger than the
+ * server accepts.
+ *
+ * <p>Up to {@link Config.Builder#maxConcurrentPosts(int)} posts are in flight at once, over
+ * connections kept alive by the JDK. Batches are encoded by the reporter thread while previous
+ * ones are posted, and {@link #postStats()} reports how long posts take.
  */
 public final class HttpSpanCollector implements SpanCollector, Flushable, Closeable {
 
@@ -36,36 +51,194 @@ public final class HttpSpanCollector implements SpanCollector, Flushable, Closea
       return new AutoValue_HttpSpanCollector_Config.Builder()
           .connectTimeout(10 * 1000)
           .readTimeout(60 * 1000)
-          .flushInterval(1);
+          .flushInterval(1)
+          .messageMaxSpans(QUEUE_SIZE)
+          .messageMaxBytes(5 * 1024 * 1024)
+          .queuedMaxBytes((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 100))
+          .encodeOnCollect(false)
+          .compressionEnabled(false)
+          .compressionMinBytes(1024)
+          .maxConcurrentPosts(2);
     }
 
     abstract int connectTimeout();
 
     abstract int readTimeout();
 
-    abstract int flushInterval();
+    abstract int flushIntervalMillis();
+
+    abstract int messageMaxSpans();
+
+    abstract int messageMaxBytes();
+
+    abstract int queuedMaxBytes();
+
+    abstract boolean encodeOnCollect();
+
+    abstract boolean compressionEnabled();
+
+    abstract int compressionMinBytes();
+
+    abstract int maxConcurrentPosts();
 
     @AutoValue.Builder
-    public interface Builder {
+    public static abstract class Builder {
       /** Default 10 * 1000 milliseconds. 0 implies no timeout. */
-      Builder connectTimeout(int connectTimeout);
+      public abstract Builder connectTimeout(int connectTimeout);
 
       /** Default 60 * 1000 milliseconds. 0 implies no timeout. */
-      Builder readTimeout(int readTimeout);
+      public abstract Builder readTimeout(int readTimeout);
+
+      /**
+       * Default 1 second. 0 implies spans are {@link #flush() flushed} externally.
+       *
+       * @see #flushIntervalMillis(int)
+       */
+      public Builder flushInterval(int flushInterval) {
+        return flushIntervalMillis(flushInterval * 1000);
+      }
+
+      /**
+       * Maximum time a span waits before it is posted, in milliseconds, for intervals of less than
+       * a second. Spans are also posted as soon as {@link #messageMaxSpans(int)} or {@link
+       * #messageMaxBytes(int)} are queued, whichever comes first. Default 1000 milliseconds. 0
+       * implies spans are {@link #flush() flushed} externally.
+       */
+      public abstract Builder flushIntervalMillis(int flushIntervalMillis);
+
+      /** Maximum number of spans posted at once. Default 10000, the size of the queue. */
+      public abstract Builder messageMaxSpans(int messageMaxSpans);
+
+      /**
+       * Maximum size of a post body, before compression. Larger batches are split into several
+       * posts, and a span that wouldn't fit in a body on its own is dropped. Default 5 MiB.
+       */
+      public abstract Builder messageMaxBytes(int messageMaxBytes);
+
+      /**
+       * Maximum total size of pending spans, as encoded in Thrift. Spans that don't fit are dropped.
+       * Default 1% of the maximum heap size.
+       */
+      public abstract Builder queuedMaxBytes(int queuedMaxBytes);
+
+      /**
+       * Default false. True implies {@link #collect(Span)} encodes the span on the calling thread,
+       * and only its bytes are queued. This costs the caller the encoding, but the span is garbage
+       * right away, instead of surviving in the queue until flushed.
+       */
+      public abstract Builder encodeOnCollect(boolean encodeOnCollect);
+
+      /**
+       * Default false. True implies bodies of at least {@link #compressionMinBytes(int)} are posted
+       * with {@code Content-Encoding: gzip}, which Zipkin accepts. Annotations such as URIs and
+       * queries compress well, so this usually saves most of the bandwidth for a little CPU.
+       */
+      public abstract Builder compressionEnabled(boolean compressionEnabled);
+
+      /**
+       * Default 1024 bytes. Bodies smaller than this are posted uncompressed, as gzip would save
+       * little or nothing.
+       */
+      public abstract Builder compressionMinBytes(int compressionMinBytes);
+
+      /**
+       * Maximum number of posts in flight at once. Default 2. While this many posts await their
+       * response, the next batch is encoded and waits for one of them to complete, so a slow
+       * response doesn't stall other posts. Connections are kept alive and reused by the JDK, which
+       * keeps up to 5 idle connections per server unless {@code http.maxConnections} is set.
+       */
+      public abstract Builder maxConcurrentPosts(int maxConcurrentPosts);
+
+      public abstract Config build();
+    }
+  }
+
+  static final int QUEUE_SIZE = 10000;
+
+  private static final Logger LOGGER = Logger.getLogger(HttpSpanCollector.class.getName());
+
+  /**
+   * Counts of posts to Zipkin, which show how much compression saves and how long the server takes
+   * to respond. Counts include failed posts.
+   */
+  public static final class PostStats {
+    final AtomicLong posts = new AtomicLong();
+    final AtomicLong compressedPosts = new AtomicLong();
+    final AtomicLong failedPosts = new AtomicLong();
+    final AtomicLong rawBytes = new AtomicLong();
+    final AtomicLong postedBytes = new AtomicLong();
+    final LatencyHistogram durations = new LatencyHistogram();
+
+    PostStats() {
+    }
+
+    /** Returns the number of posts. */
+    public long posts() {
+      return posts.get();
+    }
+
+    /** Returns the number of posts whose body was compressed. */
+    public long compressedPosts() {
+      return compressedPosts.get();
+    }
+
+    /** Returns the number of posts that failed, whose spans were dropped. */
+    public long failedPosts() {
+      return failedPosts.get();
+    }
+
+    /**
+     * Returns the duration in microseconds at or below which the given fraction of posts received
+     * their response or failed, or -1 if none did. The result is within 12.5% of the exact quantile.
+     *
+     * @param quantile between 0 and 1, for example 0.99 for the 99th percentile.
+     */
+    public long durationQuantile(double quantile) {
+      return durations.quantile(quantile);
+    }
+
+    /** Returns the total size of the bodies as encoded in Thrift, before any compression. */
+    public long rawBytes() {
+      return rawBytes.get();
+    }
+
+    /** Returns the total size of the bodies as posted, after compression where enabled. */
+    public long postedBytes() {
+      return postedBytes.get();
+    }
 
-      /** Default 1 second. 0 implies spans are {@link #flush() flushed} externally. */
-      Builder flushInterval(int flushInterval);
+    void record(int rawLength, int postedLength, boolean compressed) {
+      if (compressed) compressedPosts.incrementAndGet();
+      rawBytes.addAndGet(rawLength);
+      postedBytes.addAndGet(postedLength);
+      posts.incrementAndGet();
+    }
 
-      Config build();
+    void recordResult(long durationMicros, boolean failed) {
+      durations.record(durationMicros);
+      if (failed) failedPosts.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+      return "PostStats{posts=" + posts + ", failedPosts=" + failedPosts + ", rawBytes=" + rawBytes
+          + ", postedBytes=" + postedBytes + "}";
     }
   }
 
-  private final String url;
+  private final URL url;
   private final Config config;
   private final SpanCollectorMetricsHandler metrics;
-  private final BlockingQueue<Span> pending = new LinkedBlockingQueue<>(1000);
-  @Nullable // for testing
-  private final Flusher flusher;
+  private final PostStats postStats = new PostStats();
+  @Nullable // unless compression is enabled
+  final Gzip gzip; // visible for testing
+  final int maxConcurrentPosts;
+  final Semaphore postPermits; // visible for testing
+  private final ThreadPoolExecutor postExecutor;
+  @Nullable // when encoding on collect
+  private final AsyncReporter<Span> reporter;
+  @Nullable // unless encoding on collect
+  private final AsyncReporter<byte[]> encodedReporter;
 
   /**
    * Create a new instance with default configuration.
@@ -92,88 +265,177 @@ public final class HttpSpanCollector implements SpanCollector, Flushable, Closea
   // Visible for testing. Ex when tests need to explicitly control flushing, set interval to 0.
   HttpSpanCollector(String baseUrl, Config config,
       SpanCollectorMetricsHandler metrics) {
-    this.url = baseUrl + (baseUrl.endsWith("/") ? "" : "/") + "api/v1/spans";
-    this.metrics = metrics;
+    try {
+      this.url = new URL(baseUrl + (baseUrl.endsWith("/") ? "" : "/") + "api/v1/spans");
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
     this.config = config;
-    this.flusher = config.flushInterval() > 0 ? new Flusher(this, config.flushInterval()) : null;
+    this.metrics = metrics;
+    this.gzip = config.compressionEnabled() ? new Gzip() : null;
+    this.maxConcurrentPosts = config.maxConcurrentPosts();
+    if (maxConcurrentPosts <= 0) throw new IllegalArgumentException("maxConcurrentPosts <= 0");
+    this.postPermits = new Semaphore(maxConcurrentPosts);
+    // no thread is kept when idle, and permits ensure there are never more posts than threads
+    this.postExecutor = new ThreadPoolExecutor(maxConcurrentPosts, maxConcurrentPosts,
+        60, SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "HttpSpanCollector-post");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    this.postExecutor.allowCoreThreadTimeOut(true);
+    if (config.encodeOnCollect()) {
+      this.reporter = null;
+      this.encodedReporter = reporter(new HttpSender(), ThriftSpanEncoder.SIZER, config, metrics);
+    } else {
+      this.reporter = reporter(ThriftSpanEncoder.encoding(new HttpSender()),
+          ThriftSpanSizer.INSTANCE, config, metrics);
+      this.encodedReporter = null;
+    }
+  }
+
+  static <S> AsyncReporter<S> reporter(AsyncReporter.Sender<S> sender, AsyncReporter.Sizer<S> sizer,
+      Config config, SpanCollectorMetricsHandler metrics) {
+    return AsyncReporter.builder(sender)
+        .metrics(metrics)
+        .queueSize(QUEUE_SIZE)
+        .sizer(sizer)
+        .queuedMaxBytes(config.queuedMaxBytes())
+        .maxBatchSize(config.messageMaxSpans())
+        .messageMaxBytes(config.messageMaxBytes() - ThriftSpanEncoder.LIST_HEADER_SIZE)
+        .flushInterval(config.flushIntervalMillis(), MILLISECONDS)
+        .threadName("HttpSpanCollector")
+        .build();
   }
 
   /**
-   * Queues the span for collection, or drops it if the queue is full.
+   * Queues the span for collection, or drops it if the queue is full, or if its size would exceed
+   * {@link Config.Builder#queuedMaxBytes(int) queuedMaxBytes}.
    *
    * @param span Span, should not be <code>null</code>.
    */
   @Override
   public void collect(Span span) {
-    metrics.incrementAcceptedSpans(1);
-    if (!pending.offer(span)) {
+    if (reporter != null) {
+      reporter.report(span);
+      return;
+    }
+    byte[] encoded;
+    try {
+      encoded = ThriftSpanEncoder.encode(span);
+    } catch (TException e) {
+      metrics.incrementAcceptedSpans(1);
       metrics.incrementDroppedSpans(1);
+      return;
     }
+    encodedReporter.report(encoded);
   }
 
   /**
-   * Calling this will flush any pending spans to the http transport on the current thread.
+   * Calling this will flush any pending spans to the http transport, and wait for their posts to
+   * complete.
    */
   @Override
   public void flush() {
-    if (pending.isEmpty()) return;
-    Queue<Span> drained = new ArrayDeque<>(pending.size());
-    pending.drainTo(drained);
-    if (drained.isEmpty()) return;
-
-    // Thrift-encode the spans for transport
-    int spanCount = drained.size();
-    TMemoryBuffer thrifts = new TMemoryBuffer(spanCount * 200); // guess 200bytes/span
-    try {
-      TBinaryProtocol oprot = new TBinaryProtocol(thrifts);
-      oprot.writeListBegin(new TList(TType.STRUCT, drained.size()));
-      while (!drained.isEmpty()) {
-        drained.remove().write(oprot);
+    // Returns once every drained batch is in the sender, which holds a permit until it is posted
+    if (reporter != null) reporter.flush();
+    if (encodedReporter != null) encodedReporter.flush();
+    int maxConcurrentPosts = config.maxConcurrentPosts();
+    postPermits.acquireUninterruptibly(maxConcurrentPosts);
+    postPermits.release(maxConcurrentPosts);
+  }
+
+  /** Returns counts of posts so far, including raw and compressed sizes of their bodies. */
+  public PostStats postStats() {
+    return postStats;
+  }
+
+  /**
+   * Posts batches of Thrift-encoded spans as a Thrift list, without encoding them again. Once a
+   * post permit is free, the body is built on the calling thread, then posted by the executor.
+   * Failed posts count their spans as dropped themselves, as the caller has moved on.
+   *
+   * <p>The permit is held from before encoding until the post completes, so {@link #flush()} also
+   * waits for a batch that is still being encoded or compressed.
+   */
+  final class HttpSender implements AsyncReporter.Sender<byte[]> {
+    @Override
+    public void send(List<byte[]> spans) throws IOException {
+      try {
+        postPermits.acquire(); // waits while maxConcurrentPosts are in flight
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted waiting for a post to complete");
+      }
+      boolean posting = false;
+      try {
+        // checked with the permit held, so that close() knows whether the deflater may be in use
+        if (postExecutor.isShutdown()) throw new IOException("closed");
+        byte[] thrifts = ThriftSpanEncoder.encodeList(spans);
+        boolean compress = gzip != null && thrifts.length >= config.compressionMinBytes();
+        byte[] body = compress ? gzip.compress(thrifts) : thrifts;
+        postStats.record(thrifts.length, body.length, compress);
+        postExecutor.execute(new Post(body, compress, spans.size()));
+        posting = true; // the post releases the permit
+      } catch (RejectedExecutionException e) { // closed
+        throw new IOException(e);
+      } finally {
+        if (!posting) postPermits.release();
       }
-      oprot.writeListEnd();
-    } catch (TException e) {
-      metrics.incrementDroppedSpans(spanCount);
-      return;
     }
 
-    // Send the thrifts to the zipkin endpoint
-    try {
-      postSpans(thrifts.getArray());
-    } catch (IOException e) {
-      metrics.incrementDroppedSpans(spanCount);
-      return;
+    @Override
+    public String toString() {
+      return "HttpSender(" + url + ")";
     }
   }
 
-  /** Calls flush on a fixed interval */
-  static final class Flusher implements Runnable {
-    final Flushable flushable;
-    final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+  final class Post implements Runnable {
+    final byte[] body;
+    final boolean compressed;
+    final int spanCount;
 
-    Flusher(Flushable flushable, int flushInterval) {
-      this.flushable = flushable;
-      this.scheduler.scheduleWithFixedDelay(this, 0, flushInterval, SECONDS);
+    Post(byte[] body, boolean compressed, int spanCount) {
+      this.body = body;
+      this.compressed = compressed;
+      this.spanCount = spanCount;
     }
 
     @Override
     public void run() {
+      long start = System.nanoTime();
+      boolean failed = true;
       try {
-        flushable.flush();
-      } catch (IOException ignored) {
+        postSpans(body, compressed);
+        failed = false;
+      } catch (IOException | RuntimeException e) {
+        metrics.incrementDroppedSpans(spanCount);
+        if (LOGGER.isLoggable(Level.FINE)) {
+          LOGGER.log(Level.FINE, "Dropped " + spanCount + " spans: " + e.getMessage(), e);
+        }
+      } finally {
+        postStats.recordResult((System.nanoTime() - start) / 1000, failed);
+        postPermits.release();
       }
     }
   }
 
-  void postSpans(byte[] thrifts) throws IOException {
+  void postSpans(byte[] body, boolean compressed) throws IOException {
     // intentionally not closing the connection, so as to use keep-alives
-    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
     connection.setConnectTimeout(config.connectTimeout());
     connection.setReadTimeout(config.readTimeout());
     connection.setRequestMethod("POST");
     connection.addRequestProperty("Content-Type", "application/x-thrift");
+    if (compressed) connection.addRequestProperty("Content-Encoding", "gzip");
     connection.setDoOutput(true);
-    connection.setFixedLengthStreamingMode(thrifts.length);
-    connection.getOutputStream().write(thrifts);
+    connection.setFixedLengthStreamingMode(body.length);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
 
     try (InputStream in = connection.getInputStream()) {
       while (in.read() != -1) ; // skip
@@ -193,14 +455,27 @@ public final class HttpSpanCollector implements SpanCollector, Flushable, Closea
   }
 
   /**
-   * Requests a cease of delivery. There will be at most one in-flight request processing after this
-   * call returns.
+   * Requests a cease of delivery. Pending spans are posted for up to 5 seconds, or dropped if
+   * spans are flushed externally. Posts in flight are then given up to 5 more seconds to complete.
    */
   @Override
   public void close() {
-    if (flusher != null) flusher.scheduler.shutdown();
-    // throw any outstanding spans on the floor
-    int dropped = pending.drainTo(new LinkedList<>());
-    metrics.incrementDroppedSpans(dropped);
+    if (reporter != null) reporter.close();
+    if (encodedReporter != null) encodedReporter.close();
+    postExecutor.shutdown();
+    boolean terminated = false;
+    try {
+      terminated = postExecutor.awaitTermination(5, SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (gzip == null || !terminated) return;
+    // A send may still be compressing after the reporter gave up waiting for it. Each send holds a
+    // permit from before it checks for shutdown, so if none is held, none will use the deflater.
+    // Otherwise, the deflater is left to the garbage collector, which ends it too.
+    if (postPermits.tryAcquire(maxConcurrentPosts)) {
+      postPermits.release(maxConcurrentPosts);
+      gzip.end();
+    }
   }
 }
@@ -0,0 +1,56 @@
+package com.github.kristofa.brave.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GzipTest {
+
+  Gzip gzip = new Gzip();
+
+  @Test
+  public void compress_readableByGZIPInputStream() throws IOException {
+    byte[] input = "GET /users/1 SELECT * FROM users WHERE id = ?".getBytes("UTF-8");
+
+    assertThat(gunzip(gzip.compress(input))).isEqualTo(input);
+  }
+
+  @Test
+  public void compress_reusesDeflater() throws IOException {
+    byte[] first = new byte[100];
+    byte[] second = "second".getBytes("UTF-8");
+
+    gzip.compress(first);
+
+    assertThat(gunzip(gzip.compress(second))).isEqualTo(second);
+  }
+
+  @Test
+  public void compress_growsBuffer() throws IOException {
+    byte[] input = new byte[100000]; // random bytes don't compress, so exceed the initial buffer
+    new Random(1L).nextBytes(input);
+
+    assertThat(gunzip(gzip.compress(input))).isEqualTo(input);
+  }
+
+  @Test
+  public void compress_empty() throws IOException {
+    assertThat(gunzip(gzip.compress(new byte[0]))).isEmpty();
+  }
+
+  static byte[] gunzip(byte[] compressed) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[1024];
+      for (int read; (read = in.read(buf)) != -1; ) {
+        out.write(buf, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+}
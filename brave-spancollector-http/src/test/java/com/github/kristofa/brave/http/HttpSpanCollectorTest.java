@@ -1,18 +1,24 @@
 package com.github.kristofa.brave.http;
 
 import com.github.kristofa.brave.SpanCollectorMetricsHandler;
+import com.github.kristofa.brave.internal.ThriftSpanEncoder;
+import com.github.kristofa.brave.internal.ThriftSpanSizer;
 import com.twitter.zipkin.gen.Span;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 import okhttp3.mockwebserver.SocketPolicy;
+import okio.GzipSource;
+import okio.Okio;
 import org.junit.Rule;
 import org.junit.Test;
 import zipkin.Codec;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 public class HttpSpanCollectorTest {
 
@@ -41,10 +47,25 @@ public class HttpSpanCollectorTest {
 
   @Test
   public void dropsWhenQueueIsFull() throws Exception {
-    for (int i = 0; i < 1001; i++)
+    for (int i = 0; i < 10001; i++)
       collector.collect(span(1L, "foo"));
 
-    assertThat(metrics.acceptedSpans.get()).isEqualTo(1001);
+    assertThat(metrics.acceptedSpans.get()).isEqualTo(10001);
+    assertThat(metrics.droppedSpans.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void dropsWhenQueuedBytesExceedMax() throws Exception {
+    int spanSize = ThriftSpanSizer.INSTANCE.sizeInBytes(span(1L, "foo"));
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).queuedMaxBytes(spanSize * 2).build(),
+        metrics);
+
+    collector.collect(span(1L, "foo"));
+    collector.collect(span(2L, "bar"));
+    collector.collect(span(3L, "baz")); // doesn't fit, though there's room for 10000 spans
+
+    assertThat(metrics.acceptedSpans.get()).isEqualTo(3);
     assertThat(metrics.droppedSpans.get()).isEqualTo(1);
   }
 
@@ -70,6 +91,212 @@ public class HttpSpanCollectorTest {
     );
   }
 
+  @Test
+  public void splitsPostsByMessageMaxBytes() throws Exception {
+    int spanSize = ThriftSpanSizer.INSTANCE.sizeInBytes(span(1L, "foo"));
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).maxConcurrentPosts(1) // in order
+            .messageMaxBytes(ThriftSpanEncoder.LIST_HEADER_SIZE + spanSize * 2).build(),
+        metrics);
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+
+    collector.collect(span(1L, "foo"));
+    collector.collect(span(2L, "bar"));
+    collector.collect(span(3L, "baz"));
+
+    collector.flush(); // manually flush the spans
+
+    assertThat(Codec.THRIFT.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(zipkinSpan(1L, "foo"), zipkinSpan(2L, "bar"));
+    assertThat(Codec.THRIFT.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(zipkinSpan(3L, "baz"));
+  }
+
+  @Test
+  public void splitsPostsByMessageMaxSpans() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).messageMaxSpans(2).build(), metrics);
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+
+    collector.collect(span(1L, "foo"));
+    collector.collect(span(2L, "bar"));
+    collector.collect(span(3L, "baz"));
+
+    collector.flush(); // manually flush the spans
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void postsAfterSubSecondFlushInterval() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushIntervalMillis(50).build(), metrics);
+    server.enqueue(new MockResponse());
+
+    collector.collect(span(1L, "foo"));
+
+    RecordedRequest request = server.takeRequest(500, TimeUnit.MILLISECONDS);
+    assertThat(request).isNotNull();
+    assertThat(Codec.THRIFT.readSpans(request.getBody().readByteArray()))
+        .containsExactly(zipkinSpan(1L, "foo"));
+    collector.close();
+  }
+
+  @Test
+  public void slowResponseDoesntDelayConcurrentPost() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).messageMaxSpans(1)
+            .maxConcurrentPosts(2).build(), metrics);
+    server.enqueue(new MockResponse().setBody("slow").setBodyDelay(1, TimeUnit.SECONDS));
+    server.enqueue(new MockResponse());
+
+    collector.collect(span(1L, "foo"));
+    collector.collect(span(2L, "bar"));
+    Thread flusher = new Thread() {
+      @Override
+      public void run() {
+        collector.flush();
+      }
+    };
+    flusher.start();
+
+    // both posts are sent while the first one awaits its response
+    assertThat(server.takeRequest(500, TimeUnit.MILLISECONDS)).isNotNull();
+    assertThat(server.takeRequest(500, TimeUnit.MILLISECONDS)).isNotNull();
+    flusher.join();
+    assertThat(metrics.droppedSpans.get()).isZero();
+  }
+
+  @Test
+  public void flushWaitsForBatchesTheFlusherIsSending() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushIntervalMillis(1).messageMaxSpans(1)
+            .compressionEnabled(true).compressionMinBytes(0).build(), metrics);
+    for (int i = 0; i < 20; i++) {
+      server.enqueue(new MockResponse());
+    }
+
+    for (int i = 0; i < 20; i++) {
+      collector.collect(span(i, "foo"));
+    }
+    collector.flush();
+
+    // no request is left in a batch the background thread drained, but hasn't posted yet
+    assertThat(server.getRequestCount()).isEqualTo(20);
+    assertThat(collector.postStats().posts()).isEqualTo(20);
+    collector.close();
+  }
+
+  @Test
+  public void postStatsRecordDurationsAndFailures() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    collector.collect(span(1L, "foo"));
+    collector.flush();
+    collector.collect(span(2L, "bar"));
+    collector.flush();
+
+    HttpSpanCollector.PostStats stats = collector.postStats();
+    assertThat(stats.posts()).isEqualTo(2);
+    assertThat(stats.failedPosts()).isEqualTo(1);
+    assertThat(stats.durationQuantile(0.5)).isGreaterThanOrEqualTo(0);
+  }
+
+  @Test
+  public void postsSpansEncodedOnCollect() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).encodeOnCollect(true).build(), metrics);
+    server.enqueue(new MockResponse());
+
+    collector.collect(span(1L, "foo"));
+    collector.collect(span(2L, "bar"));
+
+    collector.flush(); // manually flush the spans
+
+    RecordedRequest request = server.takeRequest();
+    List<zipkin.Span> zipkinSpans = Codec.THRIFT.readSpans(request.getBody().readByteArray());
+    assertThat(zipkinSpans).containsExactly(
+        zipkinSpan(1L, "foo"),
+        zipkinSpan(2L, "bar")
+    );
+    assertThat(metrics.acceptedSpans.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void closeEndsDeflater() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).compressionEnabled(true).build(),
+        metrics);
+
+    collector.close();
+
+    try {
+      collector.gzip.deflater.getTotalIn();
+      fail("deflater should be ended");
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  @Test
+  public void closeLeavesDeflaterInUseToGC() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).compressionEnabled(true).build(),
+        metrics);
+    collector.postPermits.acquire(); // as if a send was still compressing
+
+    collector.close();
+
+    collector.gzip.compress(new byte[] {1, 2, 3}); // doesn't fail
+  }
+
+  @Test
+  public void postsCompressedSpans() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).compressionEnabled(true).build(),
+        metrics);
+    server.enqueue(new MockResponse());
+
+    for (int i = 1; i <= 100; i++) {
+      collector.collect(span(i, "foo"));
+    }
+    collector.flush(); // manually flush the spans
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+    List<zipkin.Span> zipkinSpans =
+        Codec.THRIFT.readSpans(Okio.buffer(new GzipSource(request.getBody())).readByteArray());
+    assertThat(zipkinSpans).hasSize(100).startsWith(zipkinSpan(1L, "foo"));
+
+    HttpSpanCollector.PostStats stats = collector.postStats();
+    assertThat(stats.posts()).isEqualTo(1);
+    assertThat(stats.compressedPosts()).isEqualTo(1);
+    assertThat(stats.postedBytes()).isEqualTo(request.getBodySize());
+    assertThat(stats.rawBytes()).isGreaterThan(stats.postedBytes());
+  }
+
+  @Test
+  public void doesntCompressSmallBodies() throws Exception {
+    collector = new HttpSpanCollector(server.url("").toString(),
+        HttpSpanCollector.Config.builder().flushInterval(0).compressionEnabled(true).build(),
+        metrics);
+    server.enqueue(new MockResponse());
+
+    collector.collect(span(1L, "foo"));
+    collector.flush(); // manually flush the spans
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isNull();
+    assertThat(Codec.THRIFT.readSpans(request.getBody().readByteArray()))
+        .containsExactly(zipkinSpan(1L, "foo"));
+
+    HttpSpanCollector.PostStats stats = collector.postStats();
+    assertThat(stats.compressedPosts()).isZero();
+    assertThat(stats.rawBytes()).isEqualTo(stats.postedBytes());
+  }
+
   @Test
   public void incrementsDroppedSpansWhenServerErrors() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(500));
@@ -0,0 +1,33 @@
+package com.github.kristofa.brave.kafka;
+
+import com.github.kristofa.brave.AsyncReporter;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.thrift.protocol.TBinaryProtocol;
+
+import java.util.List;
+
+/**
+ * Sends spans, one message per span, to the topic `zipkin`. Spans are already encoded in {@linkplain TBinaryProtocol},
+ * so each message is the encoded span as is.
+ */
+class KafkaSender implements AsyncReporter.Sender<byte[]> {
+
+    private final Producer<byte[], byte[]> producer;
+
+    KafkaSender(Producer<byte[], byte[]> producer) {
+        this.producer = producer;
+    }
+
+    @Override
+    public void send(List<byte[]> spans) {
+        for (byte[] thrift : spans) {
+            producer.send(new ProducerRecord<byte[], byte[]>("zipkin", thrift));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "KafkaSender(zipkin)";
+    }
+}
@@ -4,20 +4,27 @@ import com.github.kristofa.brave.SpanCollector;
 
 import java.io.Closeable;
 import java.util.Properties;
-import java.util.concurrent.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.github.kristofa.brave.AsyncReporter;
 import com.github.kristofa.brave.SpanCollectorMetricsHandler;
+import com.github.kristofa.brave.internal.ThriftSpanEncoder;
+import com.github.kristofa.brave.internal.ThriftSpanSizer;
 import com.twitter.zipkin.gen.Span;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.thrift.TException;
 import com.github.kristofa.brave.EmptySpanCollectorMetricsHandler;
 
 /**
  * SpanCollector which submits spans to Kafka using <a href="http://kafka.apache.org/documentation.html#producerapi">Kafka Producer api</a>.
  * <p>
  * Spans are sent to kafka as keyed messages: the key is the topic zipkin and the value is a TBinaryProtocol encoded Span.
+ * Spans are encoded once, either by the sending thread, or when collected if so configured.
+ * </p>
+ * <p>
+ * Spans are queued and sent by an {@link AsyncReporter}, so {@link #collect(Span)} doesn't block request threads.
  * </p>
  */
 public class KafkaSpanCollector implements SpanCollector, Closeable {
@@ -39,12 +46,13 @@ public class KafkaSpanCollector implements SpanCollector, Closeable {
         return props;
     }
 
+    static final int QUEUE_SIZE = 10000;
+    static final int DEFAULT_QUEUED_MAX_BYTES = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 100);
+
     private final Producer<byte[], byte[]> producer;
-    private final ExecutorService executorService;
-    private final SpanProcessingTask spanProcessingTask;
-    private final Future<Integer> future;
-    private final BlockingQueue<Span> queue;
     private final SpanCollectorMetricsHandler metricsHandler;
+    private final AsyncReporter<Span> reporter; // null when encoding on collect
+    private final AsyncReporter<byte[]> encodedReporter; // null unless encoding on collect
 
     /**
      * Create a new instance with default configuration.
@@ -68,21 +76,75 @@ public class KafkaSpanCollector implements SpanCollector, Closeable {
      *                        can use {@linkplain EmptySpanCollectorMetricsHandler}
      */
     public KafkaSpanCollector(Properties kafkaProperties, SpanCollectorMetricsHandler metricsHandler) {
+        this(kafkaProperties, metricsHandler, DEFAULT_QUEUED_MAX_BYTES);
+    }
+
+    /**
+     * KafkaSpanCollector with a memory budget for queued spans.
+     *
+     * @param kafkaProperties Configuration for Kafka producer, see {@link #KafkaSpanCollector(Properties,
+     *                        SpanCollectorMetricsHandler)}.
+     * @param metricsHandler  Gets notified when spans are accepted or dropped. If you are not interested in these events you
+     *                        can use {@linkplain EmptySpanCollectorMetricsHandler}
+     * @param queuedMaxBytes  Maximum total size of queued spans, as encoded with TBinaryProtocol. Further spans are dropped.
+     *                        Defaults to 1% of the maximum heap size.
+     */
+    public KafkaSpanCollector(Properties kafkaProperties, SpanCollectorMetricsHandler metricsHandler, int queuedMaxBytes) {
+        this(kafkaProperties, metricsHandler, queuedMaxBytes, false);
+    }
+
+    /**
+     * KafkaSpanCollector with a memory budget for queued spans, which optionally encodes spans when they are collected.
+     *
+     * @param kafkaProperties Configuration for Kafka producer, see {@link #KafkaSpanCollector(Properties,
+     *                        SpanCollectorMetricsHandler)}.
+     * @param metricsHandler  Gets notified when spans are accepted or dropped. If you are not interested in these events you
+     *                        can use {@linkplain EmptySpanCollectorMetricsHandler}
+     * @param queuedMaxBytes  Maximum total size of queued spans, as encoded with TBinaryProtocol. Further spans are dropped.
+     * @param encodeOnCollect True to encode spans on the thread calling {@link #collect(Span)}, and queue only their bytes.
+     *                        Spans are then garbage right away, instead of surviving in the queue until sent.
+     */
+    public KafkaSpanCollector(Properties kafkaProperties, SpanCollectorMetricsHandler metricsHandler, int queuedMaxBytes,
+                              boolean encodeOnCollect) {
         producer = new KafkaProducer<>(kafkaProperties);
         this.metricsHandler = metricsHandler;
-        executorService = Executors.newSingleThreadExecutor();
-        queue = new ArrayBlockingQueue<Span>(1000);
-        spanProcessingTask = new SpanProcessingTask(queue, producer, metricsHandler);
-        future = executorService.submit(spanProcessingTask);
+        if (encodeOnCollect) {
+            reporter = null;
+            encodedReporter = reporter(new KafkaSender(producer), ThriftSpanEncoder.SIZER, metricsHandler, queuedMaxBytes);
+        } else {
+            reporter = reporter(ThriftSpanEncoder.encoding(new KafkaSender(producer)), ThriftSpanSizer.INSTANCE,
+                metricsHandler, queuedMaxBytes);
+            encodedReporter = null;
+        }
+    }
+
+    private static <S> AsyncReporter<S> reporter(AsyncReporter.Sender<S> sender, AsyncReporter.Sizer<S> sizer,
+                                                 SpanCollectorMetricsHandler metricsHandler, int queuedMaxBytes) {
+        return AsyncReporter.builder(sender)
+            .metrics(metricsHandler)
+            .queueSize(QUEUE_SIZE)
+            .sizer(sizer)
+            .queuedMaxBytes(queuedMaxBytes)
+            .threadName("KafkaSpanCollector")
+            .build();
     }
 
     @Override
     public void collect(com.twitter.zipkin.gen.Span span) {
-        metricsHandler.incrementAcceptedSpans(1);
-        if (!queue.offer(span)) {
+        if (reporter != null) {
+            reporter.report(span);
+            return;
+        }
+        final byte[] encoded;
+        try {
+            encoded = ThriftSpanEncoder.encode(span);
+        } catch (TException e) {
+            metricsHandler.incrementAcceptedSpans(1);
             metricsHandler.incrementDroppedSpans(1);
-            LOGGER.log(Level.WARNING, "Queue rejected span!");
+            LOGGER.log(Level.WARNING, "TException when encoding span.", e);
+            return;
         }
+        encodedReporter.report(encoded);
     }
 
     @Override
@@ -92,16 +154,10 @@ public class KafkaSpanCollector implements SpanCollector, Closeable {
 
     @Override
     public void close() {
-        spanProcessingTask.stop();
-        try {
-            Integer nrProcessedSpans = future.get(6000, TimeUnit.MILLISECONDS);
-            LOGGER.info("SpanProcessingTask processed " + nrProcessedSpans + " spans.");
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Exception when waiting for SpanProcessTask to finish.", e);
-        }
-        executorService.shutdown();
+        // sends queued spans, or drops them after 5 seconds
+        if (reporter != null) reporter.close();
+        if (encodedReporter != null) encodedReporter.close();
         producer.close();
-        metricsHandler.incrementDroppedSpans(queue.size());
         LOGGER.info("KafkaSpanCollector closed.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.github.kristofa.brave.scribe;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.kristofa.brave.AsyncReporter;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+
+import com.twitter.zipkin.gen.LogEntry;
+import com.twitter.zipkin.gen.scribe.Client;
+
+import static com.github.kristofa.brave.internal.Util.checkNotNull;
+import static java.lang.String.format;
+
+/**
+ * Submits batches of spans to a Scribe compatible destination, as base64 encoded {@linkplain TBinaryProtocol} log
+ * entries in category zipkin. Spans are already encoded, so they are only base64 encoded here. If logging fails, it is
+ * retried once with a new connection.
+ * <p/>
+ * Note: this class is used by a single {@link AsyncReporter} thread, hence it is not thread-safe.
+ *
+ * @see ScribeSpanCollector
+ */
+class ScribeSender implements AsyncReporter.Sender<byte[]> {
+
+    private static final Logger LOGGER = Logger.getLogger(ScribeSender.class.getName());
+
+    private final ScribeClientProvider clientProvider;
+    private final List<LogEntry> logEntries = new ArrayList<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param clientProvider {@link ScribeClientProvider} that provides client used to submit spans to zipkin span collector.
+     */
+    ScribeSender(final ScribeClientProvider clientProvider) {
+        this.clientProvider = checkNotNull(clientProvider, "Null clientProvider");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void send(final List<byte[]> spans) throws IOException {
+        logEntries.clear();
+        for (final byte[] span : spans) {
+            logEntries.add(new LogEntry("zipkin", Base64.encode(span)));
+        }
+        final long start = System.currentTimeMillis();
+        log(logEntries);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            final long end = System.currentTimeMillis();
+            LOGGER.fine("Submitting " + logEntries.size() + " spans to service took " + (end - start) + "ms.");
+        }
+    }
+
+    private void log(final List<LogEntry> logEntries) throws IOException {
+        try {
+            clientProvider.getClient().Log(logEntries);
+        } catch (final TException e) {
+            LOGGER.fine(format("Exception when trying to log Span.  Will retry: %s", e.getMessage()));
+            final Client newClient = clientProvider.exception(e);
+            if (newClient == null) {
+                LOGGER.warning("Logging spans failed (couldn't establish connection). " + logEntries.size() + " spans are lost!");
+                throw new IOException("couldn't establish connection", e);
+            }
+            LOGGER.fine("Got new client with new connection. Logging with new client.");
+            try {
+                newClient.Log(logEntries);
+            } catch (final TException e2) {
+                LOGGER.log(Level.WARNING, "Logging spans failed. " + logEntries.size() + " spans are lost!", e2);
+                throw new IOException(e2);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ScribeSender";
+    }
+}
@@ -5,16 +5,15 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.github.kristofa.brave.AsyncReporter;
 import com.github.kristofa.brave.SpanCollectorMetricsHandler;
 import com.github.kristofa.brave.SpanCollector;
+import com.github.kristofa.brave.internal.ThriftSpanEncoder;
+import com.github.kristofa.brave.internal.ThriftSpanSizer;
 
 import org.apache.thrift.TException;
 
@@ -31,6 +30,11 @@ import static com.github.kristofa.brave.internal.Util.checkNotNull;
  * This SpanCollector is implemented so it puts spans on a queue which are processed by a separate thread. In this way we are
  * submitting spans asynchronously and we should have minimal overhead on application performance.
  * </p>
+ * <p>
+ * Each of the {@link ScribeSpanCollectorParams#getNrOfThreads() threads} is an {@link AsyncReporter} with its own
+ * connection and a share of the queue size and queued max bytes. Spans are spread over them in turn. A batch is sent once it is full, or
+ * after a second.
+ * </p>
  *
  * @author kristof
  */
@@ -39,11 +43,10 @@ public class ScribeSpanCollector implements SpanCollector, Closeable {
     private static final String UTF_8 = "UTF-8";
     private static final Logger LOGGER = Logger.getLogger(ScribeSpanCollector.class.getName());
 
-    private final BlockingQueue<Span> spanQueue;
-    private final ExecutorService executorService;
-    private final List<SpanProcessingThread> spanProcessingThreads = new ArrayList<>();
+    private final List<AsyncReporter<Span>> reporters = new ArrayList<>();
+    private final List<AsyncReporter<byte[]>> encodedReporters = new ArrayList<>(); // when encoding on collect
     private final List<ScribeClientProvider> clientProviders = new ArrayList<>();
-    private final List<Future<Integer>> futures = new ArrayList<>();
+    private final AtomicInteger nextReporter = new AtomicInteger();
     private final Set<BinaryAnnotation> defaultAnnotations = new HashSet<>();
     private final SpanCollectorMetricsHandler metricsHandler;
 
@@ -70,21 +73,39 @@ public class ScribeSpanCollector implements SpanCollector, Closeable {
         checkNotBlank(host, "Null or empty host");
         checkNotNull(params, "Null params");
 
-        metricsHandler = params.getMetricsHandler();
-        spanQueue = new ArrayBlockingQueue<Span>(params.getQueueSize());
-        executorService = Executors.newFixedThreadPool(params.getNrOfThreads());
+        final int nrOfThreads = params.getNrOfThreads();
+        // round up, so that every thread has room for at least one span
+        final int queueSizePerThread = (params.getQueueSize() + nrOfThreads - 1) / nrOfThreads;
+        final long queuedMaxBytesPerThread = (params.getQueuedMaxBytes() + (long) nrOfThreads - 1) / nrOfThreads;
 
-        for (int i = 1; i <= params.getNrOfThreads(); i++) {
+        for (int i = 1; i <= nrOfThreads; i++) {
 
-            // Creating a client provider for every spanProcessingThread.
+            // Creating a client provider for every reporter thread.
             ScribeClientProvider clientProvider = createZipkinCollectorClientProvider(host,
                     port, params);
-            final SpanProcessingThread spanProcessingThread = new SpanProcessingThread(spanQueue, clientProvider,
-                    params.getBatchSize(), metricsHandler);
-            spanProcessingThreads.add(spanProcessingThread);
             clientProviders.add(clientProvider);
-            futures.add(executorService.submit(spanProcessingThread));
+            final ScribeSender sender = new ScribeSender(clientProvider);
+            if (params.encodeOnCollect()) {
+                encodedReporters.add(AsyncReporter.builder(sender)
+                        .sizer(ThriftSpanEncoder.SIZER)
+                        .metrics(params.getMetricsHandler())
+                        .queueSize(queueSizePerThread)
+                        .queuedMaxBytes(queuedMaxBytesPerThread)
+                        .maxBatchSize(params.getBatchSize())
+                        .threadName("ScribeSpanCollector-" + i)
+                        .build());
+            } else {
+                reporters.add(AsyncReporter.builder(ThriftSpanEncoder.encoding(sender))
+                        .sizer(ThriftSpanSizer.INSTANCE)
+                        .metrics(params.getMetricsHandler())
+                        .queueSize(queueSizePerThread)
+                        .queuedMaxBytes(queuedMaxBytesPerThread)
+                        .maxBatchSize(params.getBatchSize())
+                        .threadName("ScribeSpanCollector-" + i)
+                        .build());
+            }
         }
+        metricsHandler = params.getMetricsHandler();
     }
 
     private ScribeClientProvider createZipkinCollectorClientProvider(String zipkinCollectorHost,
@@ -109,25 +130,27 @@ public class ScribeSpanCollector implements SpanCollector, Closeable {
     @Override
     public void collect(final Span span) {
 
-        metricsHandler.incrementAcceptedSpans(1);
-        final long start = System.currentTimeMillis();
-
         if (!defaultAnnotations.isEmpty()) {
             for (final BinaryAnnotation ba : defaultAnnotations) {
                 span.addToBinary_annotations(ba);
             }
         }
 
-        final boolean offer = spanQueue.offer(span);
-        if (!offer) {
-            LOGGER.warning("Queue rejected Span, span not submitted: "+ span);
+        final int next = nextReporter.getAndIncrement() & Integer.MAX_VALUE;
+        if (!reporters.isEmpty()) {
+            reporters.get(next % reporters.size()).report(span);
+            return;
+        }
+        final byte[] encoded;
+        try {
+            encoded = ThriftSpanEncoder.encode(span);
+        } catch (final TException e) {
+            LOGGER.log(Level.WARNING, "TException when encoding span.", e);
+            metricsHandler.incrementAcceptedSpans(1);
             metricsHandler.incrementDroppedSpans(1);
-        } else {
-            final long end = System.currentTimeMillis();
-            if (LOGGER.isLoggable(Level.FINE)) {
-                LOGGER.fine("Adding span to queue took " + (end - start) + "ms.");
-            }
+            return;
         }
+        encodedReporters.get(next % encodedReporters.size()).report(encoded);
     }
 
     /**
@@ -144,23 +167,17 @@ public class ScribeSpanCollector implements SpanCollector, Closeable {
     @Override
     public void close() {
 
-        LOGGER.info("Stopping SpanProcessingThread.");
-        for (final SpanProcessingThread thread : spanProcessingThreads) {
-            thread.stop();
+        LOGGER.info("Stopping reporter threads.");
+        // sends queued spans, or drops them after 5 seconds
+        for (final AsyncReporter<Span> reporter : reporters) {
+            reporter.close();
         }
-        for (final Future<Integer> future : futures) {
-            try {
-                final Integer spansProcessed = future.get();
-                LOGGER.info("SpanProcessingThread processed " + spansProcessed + "spans.");
-            } catch (final Exception e) {
-                LOGGER.log(Level.WARNING, "Exception when getting result of SpanProcessingThread.", e);
-            }
+        for (final AsyncReporter<byte[]> reporter : encodedReporters) {
+            reporter.close();
         }
         for(final ScribeClientProvider clientProvider : clientProviders) {
             clientProvider.close();
         }
-        executorService.shutdown();
-        metricsHandler.incrementDroppedSpans(spanQueue.size());
         LOGGER.info("ScribeSpanCollector closed.");
     }
 
@@ -12,7 +12,10 @@ import static com.github.kristofa.brave.internal.Util.checkNotNull;
  * <ul>
  * <li>queue size: Size of the queue that is used as buffer between producers of spans and the thread(s) that submit the
  * spans to collector.</li>
+ * <li>queued max bytes: Maximum total size of the spans in the queue, once encoded. Spans that don't fit are dropped, so
+ * that spans with large annotations can't use more memory than intended.</li>
  * <li>batch size: The maximum number of spans that is submitted at once to collector of spans.</li>
+ * <li>encode on collect: Indicates if spans should be encoded when collected, so that only their bytes are queued.</li>
  * <li>number of threads: The number of parallel threads for submitting spans to collector.</li>
  * <li>socket time out: Time in milliseconds after which our socket connections will time out. When it times out an exception
  * will be thrown.</li>
@@ -25,16 +28,19 @@ import static com.github.kristofa.brave.internal.Util.checkNotNull;
  */
 public class ScribeSpanCollectorParams {
 
-    public int DEFAULT_QUEUE_SIZE = 200;
+    public int DEFAULT_QUEUE_SIZE = 10000;
+    public int DEFAULT_QUEUED_MAX_BYTES = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 100);
     public int DEFAULT_BATCH_SIZE = 10;
     public int DEFAULT_NR_OF_THREADS = 1;
     public int DEFAULT_SOCKET_TIMEOUT = 5000;
 
     private int queueSize;
+    private int queuedMaxBytes;
     private int batchSize;
     private int nrOfThreads;
     private int socketTimeout;
     private boolean failOnSetup = true;
+    private boolean encodeOnCollect = false;
     private SpanCollectorMetricsHandler metricsHandler = new EmptySpanCollectorMetricsHandler();
 
     /**
@@ -42,6 +48,7 @@ public class ScribeSpanCollectorParams {
      */
     public ScribeSpanCollectorParams() {
         queueSize = DEFAULT_QUEUE_SIZE;
+        queuedMaxBytes = DEFAULT_QUEUED_MAX_BYTES;
         batchSize = DEFAULT_BATCH_SIZE;
         nrOfThreads = DEFAULT_NR_OF_THREADS;
         socketTimeout = DEFAULT_SOCKET_TIMEOUT;
@@ -67,6 +74,26 @@ public class ScribeSpanCollectorParams {
         this.queueSize = queueSize;
     }
 
+    /**
+     * Gets the maximum total size in bytes of queued spans.
+     *
+     * @return queued max bytes.
+     */
+    public int getQueuedMaxBytes() {
+        return queuedMaxBytes;
+    }
+
+    /**
+     * Sets the maximum total size in bytes of queued spans, as encoded with TBinaryProtocol. The default is 1% of the
+     * maximum heap size. Spans are dropped once either this or the queue size is reached.
+     *
+     * @param queuedMaxBytes Maximum total size in bytes of queued spans.
+     */
+    public void setQueuedMaxBytes(final int queuedMaxBytes) {
+        if (queuedMaxBytes <= 0) throw new IllegalArgumentException("queuedMaxBytes must be positive");
+        this.queuedMaxBytes = queuedMaxBytes;
+    }
+
     /**
      * Gets the maximum batch size.
      * 
@@ -145,6 +172,27 @@ public class ScribeSpanCollectorParams {
         return failOnSetup;
     }
 
+    /**
+     * Sets encode on collect value.
+     *
+     * @param encodeOnCollect <code>true</code> in case {@link ScribeSpanCollector#collect} should encode spans on the
+     *            calling thread, and queue only their bytes. Spans are then garbage right away, instead of surviving in
+     *            the queue until sent. Or <code>false</code> in case spans are encoded by the threads that send them.
+     */
+    public void setEncodeOnCollect(final boolean encodeOnCollect) {
+        this.encodeOnCollect = encodeOnCollect;
+    }
+
+    /**
+     * Indicates if {@link ScribeSpanCollector} encodes spans when they are collected.
+     *
+     * @return <code>true</code> in case spans are encoded on the thread that collects them. Default value =
+     *         <code>false</code>.
+     */
+    public boolean encodeOnCollect() {
+        return encodeOnCollect;
+    }
+
     public SpanCollectorMetricsHandler getMetricsHandler() {
         return metricsHandler;
     }
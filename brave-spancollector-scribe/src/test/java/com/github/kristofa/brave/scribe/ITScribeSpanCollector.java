@@ -3,6 +3,7 @@ package com.github.kristofa.brave.scribe;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.apache.thrift.transport.TTransportException;
@@ -79,6 +80,18 @@ public class ITScribeSpanCollector {
         assertEquals(firstBurstOfSpans + secondBurstOfSpans, scribeServer.getReceivedSpans().size());
     }
 
+    @Test
+    public void testEncodeOnCollect() {
+        final ScribeSpanCollectorParams params = new ScribeSpanCollectorParams();
+        params.setEncodeOnCollect(true);
+
+        try (ScribeSpanCollector scribeSpanCollector = new ScribeSpanCollector("localhost", PORT, params)) {
+            submitSpans(scribeSpanCollector, 10);
+        }
+        final List<Span> receivedSpans = scribeServer.getReceivedSpans();
+        assertEquals(10, receivedSpans.size());
+        assertEquals(SPAN_NAME, receivedSpans.get(0).getName());
+    }
 
     private void submitSpans(ScribeSpanCollector scribeSpanCollector, int nrOfSpans) {
         for (int i = 1; i <= nrOfSpans; i++) {
@@ -1,12 +1,13 @@
 package com.github.kristofa.brave.servlet;
 
+import com.github.kristofa.brave.http.HttpPathRequest;
 import com.github.kristofa.brave.http.HttpServerRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import java.net.URI;
 import java.net.URISyntaxException;
 
-public class ServletHttpServerRequest implements HttpServerRequest {
+public class ServletHttpServerRequest implements HttpServerRequest, HttpPathRequest {
 
     private final HttpServletRequest request;
 
@@ -28,6 +29,13 @@ public class ServletHttpServerRequest implements HttpServerRequest {
         }
     }
 
+    @Override
+    public String getPath() {
+        String path = request.getRequestURI();
+        // only escaped paths need the URI to decode them
+        return path != null && path.indexOf('%') != -1 ? getUri().getPath() : path;
+    }
+
     @Override
     public String getHttpMethod() {
         return request.getMethod();